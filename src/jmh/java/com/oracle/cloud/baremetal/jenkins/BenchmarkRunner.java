@@ -0,0 +1,31 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import org.junit.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with {@code mvn -Pbenchmark test}. The GC profiler
+ * reports the allocation rate next to the throughput, and the results are
+ * written to {@code target/jmh-result.json} so that they can be compared
+ * across releases. {@code -Dbenchmark.include=<regex>} selects benchmarks.
+ */
+public class BenchmarkRunner {
+    @Test
+    public void runBenchmarks() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(System.getProperty("benchmark.include", "com\\.oracle\\.cloud\\.baremetal\\.jenkins\\..*Benchmark"))
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .shouldFailOnError(true)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,105 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jmock.Mockery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.oracle.cloud.baremetal.jenkins.client.BaremetalCloudClient;
+
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.model.labels.LabelAtom;
+
+/**
+ * Template lookup and node counting, which Jenkins calls for every label in
+ * the queue on each provisioning cycle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CloudBenchmark {
+    static class BenchmarkCloud extends TestBaremetalCloud {
+        final NodeCountIndex index = new NodeCountIndex(Clock.INSTANCE);
+
+        BenchmarkCloud(TestBaremetalCloud.Builder builder) {
+            super(builder);
+        }
+
+        @Override
+        NodeCountIndex getNodeCountIndex() {
+            return index;
+        }
+    }
+
+    @Param({"1", "10", "100"})
+    int templateCount;
+
+    @Param({"10", "1000"})
+    int nodesPerTemplate;
+
+    BenchmarkCloud cloud;
+    Label lastTemplateLabel;
+    Label unknownLabel;
+
+    @Setup
+    public void setUp() {
+        // Provisioning logs each count; keep the log out of the measurement.
+        Logger.getLogger(BaremetalCloud.class.getName()).setLevel(Level.WARNING);
+
+        List<BaremetalCloudAgentTemplate> templates = new ArrayList<>();
+        for (int i = 0; i < templateCount; i++) {
+            templates.add(new TestBaremetalCloudAgentTemplate.Builder()
+                    .templateId(i)
+                    .description("template " + i)
+                    .mode(Node.Mode.EXCLUSIVE)
+                    .labelString("linux x86 pool-" + i)
+                    .build());
+        }
+        cloud = new BenchmarkCloud(new TestBaremetalCloud.Builder()
+                .templates(templates)
+                .client(new Mockery().mock(BaremetalCloudClient.class)));
+        for (int i = 0; i < templateCount; i++) {
+            for (int j = 0; j < nodesPerTemplate; j++) {
+                cloud.index.pendingAdded(cloud.name, i, "agent-" + i + "-" + j);
+            }
+        }
+        lastTemplateLabel = new LabelAtom("pool-" + (templateCount - 1));
+        unknownLabel = new LabelAtom("windows");
+    }
+
+    @Benchmark
+    public BaremetalCloudAgentTemplate getTemplate() {
+        return cloud.getTemplate(lastTemplateLabel);
+    }
+
+    @Benchmark
+    public BaremetalCloudAgentTemplate getTemplateNoMatch() {
+        return cloud.getTemplate(unknownLabel);
+    }
+
+    @Benchmark
+    public int getNodeCount() {
+        return cloud.getNodeCount();
+    }
+
+    @Benchmark
+    public int getTemplateNodeCount() {
+        return cloud.getTemplateNodeCount(templateCount - 1);
+    }
+}
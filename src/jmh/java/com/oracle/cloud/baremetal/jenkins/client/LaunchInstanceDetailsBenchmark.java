@@ -0,0 +1,71 @@
+package com.oracle.cloud.baremetal.jenkins.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.oracle.bmc.core.model.LaunchInstanceDetails;
+import com.oracle.cloud.baremetal.jenkins.BaremetalCloudAgentTemplate;
+import com.oracle.cloud.baremetal.jenkins.BaremetalCloudNsgTemplate;
+import com.oracle.cloud.baremetal.jenkins.BaremetalCloudTagsTemplate;
+import com.oracle.cloud.baremetal.jenkins.TestBaremetalCloudAgentTemplate;
+
+/**
+ * Assembly of the launch request in {@code createInstance}, without the
+ * OCI calls around it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LaunchInstanceDetailsBenchmark {
+    private static final String PUBLIC_KEY = "ssh-rsa AAAAB3NzaC1yc2EAAAADAQABAAAAYQCphMI+vErH97+bZKJWc8ADbw7PzwxgUsQvANRarF0Poaxmv4/yQf0fsVz0r6/2tSlmj4pV6oQC7fPuyyH4OE21MXYV1XVSbqYWuycAVAgR/OwxVUM3OcKiSeyeoiBmTTc=";
+
+    BaremetalCloudAgentTemplate template;
+    String userData;
+
+    @Setup
+    public void setUp() {
+        List<BaremetalCloudNsgTemplate> nsgs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            nsgs.add(new BaremetalCloudNsgTemplate("ocid1.compartment.oc1..nsg", "ocid1.networksecuritygroup.oc1..nsg" + i));
+        }
+        List<BaremetalCloudTagsTemplate> tags = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tags.add(new BaremetalCloudTagsTemplate(i % 2 == 0 ? "None" : "Operations", "key" + i, "value" + i));
+        }
+        template = new TestBaremetalCloudAgentTemplate.Builder()
+                .templateId(1)
+                .compartmentId("ocid1.compartment.oc1..compartment")
+                .availableDomain("Uocm:PHX-AD-1")
+                .subnetId("ocid1.subnet.oc1.phx.subnet")
+                .imageId("ocid1.image.oc1.phx.image")
+                .shape("VM.Standard.E4.Flex")
+                .ocpu("2")
+                .memoryInGBs("32")
+                .nsgIds(nsgs)
+                .tags(tags)
+                .build();
+        StringBuilder data = new StringBuilder("#!/bin/bash\n");
+        for (int i = 0; i < 100; i++) {
+            data.append("echo line ").append(i).append('\n');
+        }
+        userData = data.toString();
+    }
+
+    @Benchmark
+    public LaunchInstanceDetails newLaunchInstanceDetails() {
+        return SDKBaremetalCloudClient.newLaunchInstanceDetails("jenkins-instance", template, PUBLIC_KEY, userData, false);
+    }
+}
@@ -3,43 +3,56 @@ package com.oracle.cloud.baremetal.jenkins;
 import static com.cloudbees.plugins.credentials.CredentialsMatchers.anyOf;
 import static com.cloudbees.plugins.credentials.CredentialsMatchers.instanceOf;
 
+import com.cloudbees.jenkins.plugins.sshcredentials.SSHUserPrivateKey;
 import com.cloudbees.plugins.credentials.Credentials;
 import com.cloudbees.plugins.credentials.CredentialsMatchers;
 import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.common.StandardListBoxModel;
 import com.cloudbees.plugins.credentials.domains.DomainRequirement;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Stream;
 import java.net.InetAddress;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 
-import com.oracle.bmc.waiter.BmcGenericWaiter;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.HttpResponse;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 
 import com.oracle.bmc.core.model.Instance;
+import com.oracle.bmc.model.BmcException;
+import com.oracle.cloud.baremetal.jenkins.client.ApiRateLimiter;
 import com.oracle.cloud.baremetal.jenkins.client.BaremetalCloudClient;
 import com.oracle.cloud.baremetal.jenkins.client.BaremetalCloudClientFactory;
 import com.oracle.cloud.baremetal.jenkins.client.SDKBaremetalCloudClientFactory;
 import com.oracle.cloud.baremetal.jenkins.credentials.BaremetalCloudCredentials;
-import com.oracle.cloud.baremetal.jenkins.retry.LinearRetry;
+import com.oracle.cloud.baremetal.jenkins.metrics.ProvisioningMetrics;
+import com.oracle.cloud.baremetal.jenkins.retry.BackoffRetry;
 import com.oracle.cloud.baremetal.jenkins.retry.Retry;
+import com.oracle.cloud.baremetal.jenkins.ssh.SshComputerLauncher;
+import com.oracle.cloud.baremetal.jenkins.ssh.SshConnectionHandoff;
 import com.oracle.cloud.baremetal.jenkins.ssh.SshConnector;
 import com.trilead.ssh2.Connection;
 
@@ -57,12 +70,16 @@ import hudson.security.ACL;
 import hudson.slaves.AbstractCloudImpl;
 import hudson.slaves.Cloud;
 import hudson.slaves.NodeProvisioner.PlannedNode;
+import hudson.util.DaemonThreadFactory;
 import hudson.util.FormValidation;
 import hudson.util.HttpResponses;
 import hudson.util.ListBoxModel;
+import hudson.util.NamingThreadFactory;
 import jenkins.model.Jenkins;
+import jenkins.slaves.JnlpAgentReceiver;
+import jenkins.util.Timer;
+import net.sf.json.JSONObject;
 
-import static java.lang.Math.toIntExact;
 import org.kohsuke.stapler.AncestorInPath;
 
 
@@ -86,6 +103,12 @@ public class BaremetalCloud extends AbstractCloudImpl{
     /** Time to sleep while polling if an orchestration has started. */
     private static final long START_POLL_SLEEP_MILLIS = TimeUnit.SECONDS.toMillis(5);
 
+    /** Longest terminate or stop request before it is retried. */
+    private static final Duration TERMINATION_ATTEMPT_TIMEOUT = Duration.ofSeconds(30);
+
+    /** Longest wait for an instance to be running when the template has no start timeout. */
+    private static final long MAX_RUNNING_WAIT_NANOS = TimeUnit.MINUTES.toNanos(20);
+
     static String cloudNameToName(String cloudName) {
         return NAME_PREFIX + cloudName.trim();
     }
@@ -106,6 +129,22 @@ public class BaremetalCloud extends AbstractCloudImpl{
     private final String maxAsyncThreads;
     private final int nextTemplateId;
     private final List<? extends BaremetalCloudAgentTemplate> templates;
+    private String maxTerminationThreads;
+    /** Created on first use, since unmarshalled clouds skip the constructor. */
+    private transient volatile TemplateResolver templateResolver;
+
+    /** Default number of instances of one cloud terminated in parallel. */
+    static final int DEFAULT_MAX_TERMINATION_THREADS = 5;
+
+    /**
+     * Termination executors by cloud name. Kept outside the cloud object so
+     * that saving the configuration, which replaces the cloud, does not drop
+     * terminations in progress.
+     */
+    private static final ConcurrentMap<String, ThreadPoolExecutor> TERMINATION_EXECUTORS = new ConcurrentHashMap<>();
+
+    /** Stopped instances which can be resumed, by cloud name. */
+    private static final ConcurrentMap<String, StoppedInstanceIndex> STOPPED_INSTANCES = new ConcurrentHashMap<>();
 
     @DataBoundConstructor
     public BaremetalCloud(
@@ -147,12 +186,49 @@ public class BaremetalCloud extends AbstractCloudImpl{
         return nextTemplateId;
     }
 
+    public String getMaxTerminationThreads() {
+        return maxTerminationThreads;
+    }
+
+    @DataBoundSetter
+    public void setMaxTerminationThreads(String maxTerminationThreads) {
+        this.maxTerminationThreads = maxTerminationThreads;
+    }
+
+    int getMaxTerminationThreadsValue() {
+        return FormValidationValue.validatePositiveInteger(maxTerminationThreads, DEFAULT_MAX_TERMINATION_THREADS).getValue();
+    }
+
     public List<? extends BaremetalCloudAgentTemplate> getTemplates() {
         return templates;
     }
 
-    ExecutorService getThreadPoolForRemoting() {
-        return Computer.threadPoolForRemoting;
+    /**
+     * Returns the executor used to terminate instances of this cloud. At most
+     * {@link #getMaxTerminationThreads} terminations run at the same time;
+     * idle threads are released after a minute.
+     *
+     * @return the termination executor
+     */
+    ExecutorService getTerminationExecutor() {
+        int threads = getMaxTerminationThreadsValue();
+        ThreadPoolExecutor executor = TERMINATION_EXECUTORS.computeIfAbsent(name, n -> {
+            ThreadPoolExecutor e = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    new NamingThreadFactory(new DaemonThreadFactory(), "OCI termination " + getCloudName()));
+            e.allowCoreThreadTimeOut(true);
+            return e;
+        });
+        synchronized (executor) {
+            if (executor.getMaximumPoolSize() < threads) {
+                executor.setMaximumPoolSize(threads);
+                executor.setCorePoolSize(threads);
+            } else if (executor.getMaximumPoolSize() > threads) {
+                executor.setCorePoolSize(threads);
+                executor.setMaximumPoolSize(threads);
+            }
+        }
+        return executor;
     }
 
     private String fmtLogMsg(String msg) {
@@ -180,20 +256,24 @@ public class BaremetalCloud extends AbstractCloudImpl{
         LOGGER.info(fmtLogMsg("requested Agent provision excessWorkload: " + excessWorkload));
         List<PlannedNode> plannedNodes = new ArrayList<>();
 
-        boolean templateInstanceCapInvalid = false;
-
-        if (template.getInstanceCap() == null || template.getInstanceCap().isEmpty()) {
-            templateInstanceCapInvalid = true;
-        } else if (Integer.parseInt(template.getInstanceCap()) >= getInstanceCap()) {
-            templateInstanceCapInvalid = true;
-        }
-
-        while (excessWorkload > 0
-                && (plannedNodes.size() + getNodeCount() < getInstanceCap()
-                    && (templateInstanceCapInvalid || plannedNodes.size() + getTemplateNodeCount(template.getTemplateId()) < Integer.parseInt(template.getInstanceCap())))) {
+        while (excessWorkload > 0) {
+            // Warm spares are already counted, so they are handed out even at the cap.
+            BaremetalCloudAgent spare = WarmPool.INSTANCE.claim(this, template);
+            if (spare != null) {
+                LOGGER.info(fmtLogMsg("Using warm spare " + spare.getInstanceId()));
+                int numExecutors = template.getNumExecutorsValue();
+                plannedNodes.add(new BaremetalCloudPlannedNode(spare.getNodeName(), CompletableFuture.<Node>completedFuture(spare),
+                        numExecutors, this.name, template.getTemplateId()));
+                excessWorkload -= numExecutors;
+                continue;
+            }
+            // Planned nodes are counted by the index as soon as they start.
+            if (!hasCapacity(template)) {
+                break;
+            }
             Provisioner provisioner = new Provisioner(template);
             String displayName = provisioner.getPlannedNodeDisplayName();
-            Future<Node> future = getThreadPoolForRemoting().submit(provisioner);
+            Future<Node> future = provisioner.start();
 
             int numExecutors = provisioner.numExecutors;
             plannedNodes.add(new BaremetalCloudPlannedNode(displayName, future, numExecutors, this.name, template.getTemplateId()));
@@ -204,7 +284,33 @@ public class BaremetalCloud extends AbstractCloudImpl{
         return plannedNodes;
     }
 
-    private class Provisioner implements Callable<Node> {
+    /**
+     * @param template the template
+     * @return true if neither the cloud nor the template instance cap is reached
+     */
+    boolean hasCapacity(BaremetalCloudAgentTemplate template) {
+        if (getNodeCount() >= getInstanceCap()) {
+            return false;
+        }
+        String templateCap = template.getInstanceCap();
+        if (templateCap == null || templateCap.isEmpty() || Integer.parseInt(templateCap) >= getInstanceCap()) {
+            return true;
+        }
+        return getTemplateNodeCount(template.getTemplateId()) < Integer.parseInt(templateCap);
+    }
+
+    /**
+     * Instances kept as warm spares are named with this prefix so that they
+     * can be found again after a restart.
+     *
+     * @param template the template
+     * @return the display name prefix of the template's warm spares
+     */
+    String getSpareInstanceNamePrefix(BaremetalCloudAgentTemplate template) {
+        return INSTANCE_NAME_PREFIX + "spare-" + getCloudName() + "-" + template.getTemplateId() + "-" + JENKINS_IP + "-";
+    }
+
+    private class Provisioner {
         final BaremetalCloudAgentTemplate template;
         final int numExecutors;
         final String name;
@@ -227,105 +333,285 @@ public class BaremetalCloud extends AbstractCloudImpl{
             return instanceName;
         }
 
-        @Override
-        public Node call() throws Exception {
-            return provision(name, template, instanceName);
+        CompletableFuture<Node> start() {
+            NodeCountIndex index = getNodeCountIndex();
+            index.pendingAdded(BaremetalCloud.this.name, template.getTemplateId(), instanceName);
+            return provisionAsync(name, template, instanceName).handle((agent, e) -> {
+                if (agent != null) {
+                    // Count the agent before NodeProvisioner adds it, so it is never missed.
+                    index.nodeAdded(agent);
+                }
+                index.pendingRemoved(BaremetalCloud.this.name, template.getTemplateId(), instanceName);
+                if (e != null) {
+                    throw new CompletionException(ProvisioningPipeline.unwrap(e));
+                }
+                return agent;
+            });
         }
     }
 
-    private BaremetalCloudAgent provision(String name, BaremetalCloudAgentTemplate template, String instanceName) throws Exception {
-        LOGGER.info("Provisioning new cloud infrastructure instance");
-	    boolean using_stopped_instance = false;
-        try {
-            BaremetalCloudClient client = getClient();
-            Instance instance = null;
+    /**
+     * State of one provision, shared by the pipeline stages.
+     */
+    static final class ProvisionState {
+        String name;
+        String instanceName;
+        Instance instance;
+        boolean usingStoppedInstance;
+        String ip;
+        /** Authenticated SSH connection handed to the launcher. */
+        Connection connection;
+        String sshUser;
+
+        ProvisionState(String name, String instanceName) {
+            this.name = name;
+            this.instanceName = instanceName;
+        }
+    }
 
-            if (!template.getStopOnIdle()) {
-                instance = client.createInstance(instanceName, template);
-            } else {
-                List<Instance> allStoppedInstances = client.getStoppedInstances(template.getCompartmentId(), template.getAvailableDomain());
-                if (!allStoppedInstances.isEmpty()) {
-                    String searchName;
-                    if (template.getInstanceNamePrefix() == null || template.getInstanceNamePrefix().isEmpty()) {
-                        searchName = INSTANCE_NAME_PREFIX + JENKINS_IP + "-";
-                    } else {
-                        searchName = INSTANCE_NAME_PREFIX + template.getInstanceNamePrefix() + "-" + JENKINS_IP + "-";
-                    }
-                    long numberOfSuitableInstances = allStoppedInstances.stream()
-                            .filter(n -> n.getDisplayName().contains(searchName))
-                            .filter(n -> n.getShape().equals(template.getShape()))
-                            .filter(n -> n.getImageId().equals(template.getImageId()))
-                            .count();
-                    if (numberOfSuitableInstances > 0) {
-                        String instanceId = allStoppedInstances.stream()
-                                .filter(n -> n.getDisplayName().contains(searchName))
-                                .filter(n -> n.getShape().equals(template.getShape()))
-                                .filter(n -> n.getImageId().equals(template.getImageId()))
-                                .findAny().get().getId();
-                        using_stopped_instance = true;
-                        instance = client.startInstance(instanceId);
-                        instanceName = instance.getDisplayName();
-                        name = BaremetalCloud.NAME_PREFIX + instance.getDisplayName().replace(searchName, "");
-                    } else {
-                        // If there is no any stopped by this Jenkins instance -> create a new one
-                        instance = client.createInstance(instanceName, template);
-                    }
-                } else {
-                    // If there is no any stopped instance -> create a new one
-                    instance = client.createInstance(instanceName, template);
-                }
+    StoppedInstanceIndex getStoppedInstanceIndex() {
+        return STOPPED_INSTANCES.computeIfAbsent(name, n -> new StoppedInstanceIndex(Clock.INSTANCE));
+    }
 
-            }
+    ProvisioningPipeline getProvisioningPipeline() {
+        return ProvisioningPipeline.INSTANCE;
+    }
 
-            String Ip = "";
-            TimeoutHelper timeoutHelper = new TimeoutHelper(getClock(), template.getStartTimeoutNanos(), START_POLL_SLEEP_MILLIS);
-            try {
-                client.waitForInstanceProvisioningToComplete(instance.getId());
-                Ip = client.getInstanceIp(template, instance.getId());
-                LOGGER.info("Provisioned instance " + instanceName + " with ip " + Ip);
-                awaitInstanceSshAvailable(Ip, template.getSshConnectTimeoutMillis(), timeoutHelper);
+    ProvisioningMetrics getProvisioningMetrics() {
+        return ProvisioningMetrics.INSTANCE;
+    }
+
+    /**
+     * Provisions an instance as a pipeline of stages: launch, wait until the
+     * instance is running, look up its IP and wait until SSH is available.
+     * No thread is held while waiting between polling attempts.
+     *
+     * @param name the agent name
+     * @param template the template
+     * @param instanceName the instance display name
+     * @return a future completed with the new agent
+     */
+    CompletableFuture<BaremetalCloudAgent> provisionAsync(String name, BaremetalCloudAgentTemplate template, String instanceName) {
+        LOGGER.info("Provisioning new cloud infrastructure instance");
+        ProvisioningPipeline pipeline = getProvisioningPipeline();
+        ProvisionState state = new ProvisionState(name, instanceName);
+        Clock clock = getClock();
+        long startTimeoutNanos = template.getStartTimeoutNanos();
+        ProvisioningMetrics metrics = getProvisioningMetrics();
+        String metricsName = ProvisioningMetrics.getTemplateName(this.name, template.getTemplateId());
+        ProvisioningMetrics.Timer provisionTimer = metrics.start(metricsName, "provision");
+
+        ProvisioningMetrics.Timer launchTimer = metrics.start(metricsName, "launch");
+        CompletableFuture<BaremetalCloudAgent> stages = pipeline.submit(ProvisioningPipeline.Stage.LAUNCH, () -> launchInstance(state, template))
+            .whenComplete(launchTimer::stop)
+            .thenCompose(instance -> {
+                long beginNanos = clock.nanoTime();
+                ProvisioningMetrics.Timer runningTimer = metrics.start(metricsName, "running");
+                return pipeline.poll(ProvisioningPipeline.Stage.API,
+                        () -> {
+                            runningTimer.attempt();
+                            return getRunningInstance(instance.getId());
+                        },
+                        startTimeoutNanos == 0 ? MAX_RUNNING_WAIT_NANOS : startTimeoutNanos,
+                        START_POLL_SLEEP_MILLIS,
+                        "Timed out waiting for instance " + instance.getId() + " to be running")
+                    .whenComplete(runningTimer::stop)
+                    .thenCompose(running -> {
+                        ProvisioningMetrics.Timer ipTimer = metrics.start(metricsName, "ip");
+                        return pipeline.submit(ProvisioningPipeline.Stage.API,
+                                () -> state.ip = getClient().getInstanceIp(template, instance.getId()))
+                            .whenComplete(ipTimer::stop);
+                    })
+                    .thenCompose(ip -> {
+                        LOGGER.info("Provisioned instance " + state.instanceName + " with ip " + ip);
+                        if (template.getInboundAgent()) {
+                            // The agent connects on its own, there is nothing to wait for.
+                            return CompletableFuture.completedFuture(Boolean.TRUE);
+                        }
+                        long remainingNanos = 0;
+                        if (startTimeoutNanos != 0) {
+                            remainingNanos = Math.max(1, startTimeoutNanos - (clock.nanoTime() - beginNanos));
+                        }
+                        ProvisioningMetrics.Timer sshTimer = metrics.start(metricsName, "ssh");
+                        return pipeline.poll(ProvisioningPipeline.Stage.SSH,
+                                () -> {
+                                    sshTimer.attempt();
+                                    return probeSsh(state, template) ? Boolean.TRUE : null;
+                                },
+                                remainingNanos,
+                                START_POLL_SLEEP_MILLIS,
+                                "Timed out connecting to SSH")
+                            .whenComplete(sshTimer::stop);
+                    });
+            })
+            .thenCompose(available -> pipeline.submit(ProvisioningPipeline.Stage.API, () -> {
                 template.setTemplateSleep(false);
                 template.resetFailureCount();
-            } catch (BmcGenericWaiter.WaitConditionFailedException | IOException | RuntimeException ex) {
-		        if (using_stopped_instance) {
-		            LOGGER.log(Level.WARNING, "Provision node: " + instanceName + " failed for stopped node. Check credentials.", ex);
-                    try {
-                        stopCloudResources(instance.getId());
-                    } catch(Exception e){
-                        LOGGER.log(Level.WARNING, "Stopping failed node failed",e);
-                    }
-                } else {
-                    try {
-                        recycleCloudResources(instance.getId());
-                        LOGGER.log(Level.WARNING, "Provision node: " + instanceName + " failed, and created resources have been recycled.", ex);
-                    } catch (IOException | RuntimeException e2) {
-                        LOGGER.log(Level.WARNING, "Provision node: " + instanceName + " failed, and failed to recycle node " + instanceName, ex);
-                    }
+                BaremetalCloudAgent agent = newBaremetalCloudAgent(state.name, template, this.name, state.instance.getId(), state.ip);
+                if (state.connection != null) {
+                    SshConnectionHandoff.INSTANCE.offer(state.instance.getId(), state.ip, state.sshUser, state.connection);
+                    state.connection = null;
                 }
-                throw ex;
+                if (template.getInboundAgent()) {
+                    watchInboundConnection(state.name, startTimeoutNanos == 0 ? MAX_RUNNING_WAIT_NANOS : startTimeoutNanos);
+                }
+                return agent;
+            }));
+
+        CompletableFuture<BaremetalCloudAgent> result = new CompletableFuture<>();
+        stages.whenComplete((agent, e) -> {
+            provisionTimer.stop(agent, e);
+            if (e == null) {
+                result.complete(agent);
+            } else {
+                Throwable cause = ProvisioningPipeline.unwrap(e);
+                if (state.connection != null) {
+                    state.connection.close();
+                }
+                onProvisionFailure(state, template, cause);
+                result.completeExceptionally(cause);
             }
-            return newBaremetalCloudAgent(name, template, this.name, instance.getId(), Ip);
-        } catch (IOException | RuntimeException e) {
-            String message = e.getMessage();
-            String cause = (message != null) ? message : e.toString();
-            if(!template.isTemplateSleep()) {
-                template.increaseFailureCount(cause);
+        });
+        return result;
+    }
+
+    private Instance launchInstance(ProvisionState state, BaremetalCloudAgentTemplate template) throws Exception {
+        BaremetalCloudClient client = getClient();
+        Instance instance = null;
+
+        if (template.getInboundAgent()) {
+            // Stopped instances are not resumed: cloud-init only starts the agent on first boot.
+            instance = client.createInstance(state.instanceName, template, getInboundUserData(state.name, template));
+        } else if (!template.getStopOnIdle()) {
+            instance = client.createInstance(state.instanceName, template);
+        } else {
+            String searchName;
+            if (template.getInstanceNamePrefix() == null || template.getInstanceNamePrefix().isEmpty()) {
+                searchName = INSTANCE_NAME_PREFIX + JENKINS_IP + "-";
+            } else {
+                searchName = INSTANCE_NAME_PREFIX + template.getInstanceNamePrefix() + "-" + JENKINS_IP + "-";
             }
-            if(template.doNotDisable==null) {
-                LOGGER.log(Level.INFO, "DoNotDisable option is null. Go to template config, if you wish to change.");
-                throw e;
+            StoppedInstanceIndex index = getStoppedInstanceIndex();
+            Instance stopped = index.claim(client, template.getCompartmentId(), template.getAvailableDomain(),
+                    template.getShape(), template.getImageId(), searchName);
+            if (stopped != null) {
+                try {
+                    instance = client.startInstance(stopped.getId());
+                } catch (Exception e) {
+                    index.release(stopped.getId());
+                    throw e;
+                }
+                state.usingStoppedInstance = true;
+                state.instanceName = instance.getDisplayName();
+                state.name = BaremetalCloud.NAME_PREFIX + instance.getDisplayName().replace(searchName, "");
+            } else {
+                // If there is no any stopped by this Jenkins instance -> create a new one
+                instance = client.createInstance(state.instanceName, template);
             }
-            if (!template.getDoNotDisable()) {
-                throw e;
+        }
+        state.instance = instance;
+        return instance;
+    }
+
+    private String getInboundUserData(String name, BaremetalCloudAgentTemplate template) throws IOException {
+        String jenkinsUrl = JenkinsUtil.getJenkinsInstance().getRootUrl();
+        if (jenkinsUrl == null) {
+            throw new IOException("The Jenkins URL must be configured to launch inbound agents");
+        }
+        String user = template.getJenkinsAgentUser();
+        if (user == null || user.trim().isEmpty()) {
+            SSHUserPrivateKey credentials = (SSHUserPrivateKey) matchCredentials(SSHUserPrivateKey.class, template.getSshCredentialsId());
+            user = credentials != null ? credentials.getUsername() : SshComputerLauncher.DEFAULT_SSH_USER;
+        }
+        return InboundAgentUserData.build(jenkinsUrl, name, JnlpAgentReceiver.SLAVE_SECRET.mac(name), user,
+                template.getRemoteFS(), template.getCustomJavaPath(), template.getCustomJVMOpts(),
+                template.getInitScriptEnvVarsVersion());
+    }
+
+    /**
+     * Terminates an inbound agent which did not connect in time, since its
+     * cloud-init script failed or it cannot reach Jenkins.
+     */
+    private void watchInboundConnection(String nodeName, long timeoutNanos) {
+        Timer.get().schedule(() -> {
+            Jenkins jenkins = Jenkins.getInstanceOrNull();
+            Node node = jenkins == null ? null : jenkins.getNode(nodeName);
+            if (!(node instanceof BaremetalCloudAgent)) {
+                return;
+            }
+            Computer computer = node.toComputer();
+            if (computer != null && computer.isOffline() && computer.getConnectTime() == 0) {
+                LOGGER.warning(fmtLogMsg("Inbound agent " + nodeName + " did not connect in time, terminating it"));
+                try {
+                    ((BaremetalCloudAgent) node).terminate();
+                } catch (IOException | InterruptedException e) {
+                    LOGGER.log(Level.WARNING, fmtLogMsg("Failed to terminate inbound agent " + nodeName), e);
+                }
+            }
+        }, timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the instance id if the instance is running, or null if it is still starting
+     */
+    private String getRunningInstance(String instanceId) throws Exception {
+        Instance.LifecycleState state = getClient().getInstanceState(instanceId);
+        if (state == Instance.LifecycleState.Running) {
+            return instanceId;
+        }
+        if (state == Instance.LifecycleState.Terminating || state == Instance.LifecycleState.Terminated) {
+            throw new IOException("Instance " + instanceId + " is " + state + " while waiting for it to be running");
+        }
+        return null;
+    }
+
+    private void onProvisionFailure(ProvisionState state, BaremetalCloudAgentTemplate template, Throwable e) {
+        if (state.instance != null) {
+            // Clean up in the background so that the failure is reported without waiting for OCI.
+            final String failedInstanceName = state.instanceName;
+            if (state.usingStoppedInstance) {
+                LOGGER.log(Level.WARNING, "Provision node: " + failedInstanceName + " failed for stopped node. Check credentials.", e);
+                requestTerminationAsync(state.instance.getId(), TerminationTracker.Action.STOP).whenComplete((r, e2) -> {
+                    if (e2 != null) {
+                        LOGGER.log(Level.WARNING, "Stopping failed node failed", e2);
+                    }
+                });
             } else {
-                LOGGER.log(Level.WARNING, e.toString());
-                template.setTemplateSleep(true);
-                LOGGER.log(Level.WARNING, "Since do not disable option is selected, " +
-                        "this particular template will sleep for {0} minutes before re-trying any provisioning: " + template.getDisplayName(),template.getRetryTimeoutMins());
-                template.setSleepStartTime(System.currentTimeMillis());
-                throw e;
+                LOGGER.log(Level.WARNING, "Provision node: " + failedInstanceName + " failed, recycling created resources.", e);
+                requestTerminationAsync(state.instance.getId(), TerminationTracker.Action.TERMINATE).whenComplete((r, e2) -> {
+                    if (e2 != null) {
+                        LOGGER.log(Level.WARNING, "Provision node: " + failedInstanceName + " failed, and failed to recycle node " + failedInstanceName, e2);
+                    } else {
+                        LOGGER.log(Level.INFO, "Provision node: " + failedInstanceName + " failed, and created resources have been recycled.");
+                    }
+                });
             }
         }
+
+        if (!(e instanceof IOException || e instanceof RuntimeException)) {
+            return;
+        }
+        if (ApiRateLimiter.isThrottled(e)) {
+            // Throttling says nothing about the template; the rate limiter has already backed off.
+            LOGGER.log(Level.INFO, "Provisioning with template {0} was throttled by OCI", template.getDisplayName());
+            return;
+        }
+        String message = e.getMessage();
+        String cause = (message != null) ? message : e.toString();
+        if(!template.isTemplateSleep()) {
+            template.increaseFailureCount(cause);
+        }
+        if(template.doNotDisable==null) {
+            LOGGER.log(Level.INFO, "DoNotDisable option is null. Go to template config, if you wish to change.");
+            return;
+        }
+        if (template.getDoNotDisable()) {
+            LOGGER.log(Level.WARNING, e.toString());
+            template.setTemplateSleep(true);
+            LOGGER.log(Level.WARNING, "Since do not disable option is selected, " +
+                    "this particular template will sleep for {0} minutes before re-trying any provisioning: " + template.getDisplayName(),template.getRetryTimeoutMins());
+            template.setSleepStartTime(System.currentTimeMillis());
+        }
     }
 
     /**
@@ -351,30 +637,149 @@ public class BaremetalCloud extends AbstractCloudImpl{
         }
     }
 
-    public synchronized void recycleCloudResources(String instanceId) throws IOException {
-        BaremetalCloudClient client = getClient();
-        Retry<String> retry = getTerminationRetry(() -> client.terminateInstance(instanceId));
-        try{
-            retry.run();
-            client.waitForInstanceTerminationToComplete(instanceId);
-        }catch(Exception e){
-            throw new IOException(e);
+    /**
+     * Terminate and stop requests in progress for all clouds, by instance id.
+     */
+    static final TerminationTracker TERMINATIONS = new TerminationTracker();
+
+    /**
+     * Sends the terminate request for the instance and returns once OCI has
+     * accepted it. Waiting for the instance to reach its final state happens
+     * on the termination executor.
+     *
+     * @param instanceId the instance id
+     * @throws IOException if the terminate request failed
+     */
+    public void recycleCloudResources(String instanceId) throws IOException {
+        requestTermination(instanceId, TerminationTracker.Action.TERMINATE);
+    }
+
+    /**
+     * Sends the stop request for the instance and returns once OCI has
+     * accepted it. Waiting for the instance to reach its final state happens
+     * on the termination executor.
+     *
+     * @param instanceId the instance id
+     * @throws IOException if the stop request failed
+     */
+    public void stopCloudResources(String instanceId) throws IOException {
+        requestTermination(instanceId, TerminationTracker.Action.STOP);
+    }
+
+    CompletableFuture<Void> requestTermination(String instanceId, TerminationTracker.Action action) throws IOException {
+        TerminationTracker.Started started = TERMINATIONS.begin(instanceId, action, getClock());
+        TerminationTracker.Request request = started.request;
+        if (!started.created) {
+            LOGGER.fine(fmtLogMsg("Already in progress: " + request));
+            return request.completion;
+        }
+        BaremetalCloudClient client;
+        try {
+            client = getClient();
+            sendTerminationRequest(client, request);
+        } catch (IOException | RuntimeException e) {
+            TERMINATIONS.fail(request, e);
+            throw e;
         }
+        awaitTerminationAsync(client, request);
+        return request.completion;
     }
 
-    public synchronized void stopCloudResources(String instanceId) throws IOException {
-        BaremetalCloudClient client = getClient();
-        Retry<String> retry = getTerminationRetry(() -> client.stopInstance(instanceId));
-        try{
+    /**
+     * Terminates or stops the instance without blocking the caller. Used when
+     * cleaning up after a failed provision.
+     *
+     * @param instanceId the instance id
+     * @param action terminate or stop
+     * @return a future completing when the instance reached its final state
+     */
+    CompletableFuture<Void> requestTerminationAsync(String instanceId, TerminationTracker.Action action) {
+        TerminationTracker.Started started = TERMINATIONS.begin(instanceId, action, getClock());
+        TerminationTracker.Request request = started.request;
+        if (!started.created) {
+            return request.completion;
+        }
+        try {
+            getTerminationExecutor().execute(() -> {
+                BaremetalCloudClient client;
+                try {
+                    client = getClient();
+                } catch (RuntimeException e) {
+                    TERMINATIONS.fail(request, e);
+                    return;
+                }
+                // The executor thread is not held while the request is retried.
+                getTerminationRetry(getTerminationTask(client, request)).runAsync().whenComplete((r, e) -> {
+                    if (e != null) {
+                        TERMINATIONS.fail(request, new IOException(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e));
+                        return;
+                    }
+                    TERMINATIONS.waiting(request);
+                    awaitTerminationAsync(client, request);
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            TERMINATIONS.fail(request, e);
+        }
+        return request.completion;
+    }
+
+    private void sendTerminationRequest(BaremetalCloudClient client, TerminationTracker.Request request) throws IOException {
+        Retry<String> retry = getTerminationRetry(getTerminationTask(client, request));
+        try {
             retry.run();
-            client.waitForInstanceTerminationToComplete(instanceId);
-        }catch(Exception e){
+        } catch (Exception e) {
             throw new IOException(e);
         }
+        TERMINATIONS.waiting(request);
+    }
+
+    private static Callable<String> getTerminationTask(BaremetalCloudClient client, TerminationTracker.Request request) {
+        String instanceId = request.instanceId;
+        return request.action == TerminationTracker.Action.STOP
+                ? () -> client.stopInstance(instanceId)
+                : () -> client.terminateInstance(instanceId);
+    }
+
+    private void awaitTerminationAsync(BaremetalCloudClient client, TerminationTracker.Request request) {
+        try {
+            getTerminationExecutor().execute(() -> awaitTermination(client, request));
+        } catch (RejectedExecutionException e) {
+            TERMINATIONS.fail(request, e);
+        }
+    }
+
+    private void awaitTermination(BaremetalCloudClient client, TerminationTracker.Request request) {
+        try {
+            client.waitForInstanceTerminationToComplete(request.instanceId);
+            TERMINATIONS.complete(request);
+            if (request.action == TerminationTracker.Action.STOP) {
+                getStoppedInstanceIndex().release(request.instanceId);
+            }
+            LOGGER.fine(fmtLogMsg(request + " in " + TimeUnit.NANOSECONDS.toMillis(request.getElapsedNanos()) + "ms"));
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, fmtLogMsg("Failed waiting for " + request), e);
+            TERMINATIONS.fail(request, e);
+        }
     }
 
     public Retry<String> getTerminationRetry(Callable<String> task) {
-        return new LinearRetry<String>(task);
+        return BackoffRetry.builder(task)
+                .attemptTimeout(TERMINATION_ATTEMPT_TIMEOUT)
+                .retryOn(BaremetalCloud::isRetryable)
+                .build();
+    }
+
+    /**
+     * @param e a failed OCI call
+     * @return false for client errors which another attempt cannot fix
+     */
+    static boolean isRetryable(Throwable e) {
+        if (e instanceof BmcException) {
+            int status = ((BmcException) e).getStatusCode();
+            return status < 400 || status >= 500 || status == 409 || status == 429;
+        }
+        return e instanceof Exception;
     }
 
     Clock getClock() {
@@ -391,6 +796,15 @@ public class BaremetalCloud extends AbstractCloudImpl{
     }
 
     public BaremetalCloudAgentTemplate getTemplate(Label label) {
+        TemplateResolver resolver = templateResolver;
+        if (resolver == null) {
+            resolver = new TemplateResolver(this::findTemplate, BaremetalCloudAgentTemplate::getAvailabilityVersion);
+            templateResolver = resolver;
+        }
+        return resolver.resolve(label);
+    }
+
+    private BaremetalCloudAgentTemplate findTemplate(Label label) {
         for (BaremetalCloudAgentTemplate t : templates) {
             if (t.getDisableCause() != null || t.isTemplateSleep()) {
                 if(t.getDisableCause()!=null) {
@@ -472,7 +886,7 @@ public class BaremetalCloud extends AbstractCloudImpl{
             // NodeProvisioner, so that class will not be aware that a node is being
             // provisioned until ExplicitProvisioner adds it.
             ExplicitProvisioner provisioner = new ExplicitProvisioner(template);
-            getThreadPoolForRemoting().submit(provisioner);
+            provisioner.start();
             sbNames.append(provisioner.name).append(" ");
             numExecutors = provisioner.numExecutors;
 
@@ -504,22 +918,26 @@ public class BaremetalCloud extends AbstractCloudImpl{
         }
 
         @Override
-        public Node call() throws Exception {
+        CompletableFuture<Node> start() {
             // Simulate NodeProvisioner.update.
             String displayName = getPlannedNodeDisplayName();
-            try {
-                addNode(super.call());
-                LOGGER.log(Level.INFO, "{0} provisioning successfully completed via Nodes screen", displayName);
-            } catch (Exception e) {
-                LOGGER.log(Level.WARNING, displayName + " provisioning via Nodes screen failed!", e);
-            }
-
-            // doProvision does not use the Future.
-            return null;
+            return super.start().whenComplete((node, e) -> {
+                Throwable failure = e;
+                if (failure == null) {
+                    try {
+                        addNode(node);
+                        LOGGER.log(Level.INFO, "{0} provisioning successfully completed via Nodes screen", displayName);
+                        return;
+                    } catch (IOException | RuntimeException ex) {
+                        failure = ex;
+                    }
+                }
+                LOGGER.log(Level.WARNING, displayName + " provisioning via Nodes screen failed!", ProvisioningPipeline.unwrap(failure));
+            });
         }
     }
 
-    private BaremetalCloudAgentTemplate getTemplateById(int templateId) {
+    BaremetalCloudAgentTemplate getTemplateById(int templateId) {
         for (BaremetalCloudAgentTemplate t : templates) {
             if (t.getTemplateId() == templateId) {
                 return t;
@@ -564,89 +982,96 @@ public class BaremetalCloud extends AbstractCloudImpl{
         return HttpResponses.redirectTo("../../computer/");
     }
 
+    /**
+     * Reports the provisioning latencies and counters of the templates of
+     * this cloud, and the state of the OCI API rate limits, as JSON.
+     *
+     * @return the http response
+     */
+    public HttpResponse doMetrics() {
+        checkPermission(Jenkins.SYSTEM_READ);
+        JSONObject rateLimits = new JSONObject();
+        ApiRateLimiter.INSTANCE.getStats().forEach((bucket, stats) -> {
+            JSONObject json = new JSONObject();
+            json.put("rate", stats.rate);
+            json.put("maxRate", stats.maxRate);
+            json.put("occupancy", stats.getOccupancy());
+            json.put("acquired", stats.acquired);
+            json.put("waits", stats.waits);
+            json.put("waitMillis", TimeUnit.NANOSECONDS.toMillis(stats.waitNanos));
+            json.put("maxWaitMillis", TimeUnit.NANOSECONDS.toMillis(stats.maxWaitNanos));
+            json.put("throttled", stats.throttled);
+            rateLimits.put(bucket, json);
+        });
+        JSONObject data = new JSONObject();
+        data.put("templates", getProvisioningMetrics().toJson(ProvisioningMetrics.getCloudPrefix(name)));
+        data.put("rateLimits", rateLimits);
+        return HttpResponses.okJSON(data);
+    }
+
     public BaremetalCloudClient getClient(){
         BaremetalCloudClientFactory factory = SDKBaremetalCloudClientFactory.INSTANCE;
         return factory.createClient(credentialsId, Integer.parseInt(maxAsyncThreads));
     }
 
-    private synchronized int getNodeCount() {
-        long count = 0;
-        Jenkins jenkins = JenkinsUtil.getJenkinsInstance();
-
-        // Provisioned nodes
-        count += jenkins.getNodes()
-            .stream()
-            .filter(n -> n instanceof BaremetalCloudAgent)
-            .filter(n -> ((BaremetalCloudAgent) n).cloudName.equals(name))
-            .peek(n -> LOGGER.fine(fmtLogMsg("Peeking provisioned nodes: " + n.getNodeName())))
-            .count();
-
-        // Nodes waiting in provisioning queue
-        count += Stream.concat(
-                // Nodes provisioning for no label
-                jenkins.unlabeledNodeProvisioner.getPendingLaunches().stream(),
-                // Nodes provisioning for specific label
-                jenkins.getLabels().stream().flatMap(l -> l.nodeProvisioner.getPendingLaunches().stream())
-        )
-            .filter(pn -> pn instanceof BaremetalCloudPlannedNode)
-            .filter(pn -> ((BaremetalCloudPlannedNode) pn).getCloudName().equals(name))
-            .peek(pn -> LOGGER.fine(fmtLogMsg("Peeking provisioning nodes: " + ((BaremetalCloudPlannedNode) pn).displayName)))
-            .count();
+    NodeCountIndex getNodeCountIndex() {
+        NodeCountIndex index = NodeCountIndex.INSTANCE;
+        index.ensureInitialized(() -> JenkinsUtil.getJenkinsInstance().getNodes());
+        return index;
+    }
 
+    int getNodeCount() {
+        int count = getNodeCountIndex().count(name);
         LOGGER.info(fmtLogMsg("Found " + count + " provisioned or provisioning Nodes"));
-
-        return toIntExact(count);
+        return count;
     }
 
-    protected synchronized int getTemplateNodeCount(int templateId) {
-        long count = 0;
-        Jenkins jenkins = JenkinsUtil.getJenkinsInstance();
+    protected int getTemplateNodeCount(int templateId) {
+        int count = getNodeCountIndex().count(name, templateId);
         BaremetalCloudAgentTemplate template = getTemplateById(templateId);
+        if (template != null && LOGGER.isLoggable(Level.FINE)) {
+            String tempCap = template.getInstanceCap();
+            String maxCap = (tempCap==null || tempCap.isEmpty()) ? "NA" : tempCap;
+            LOGGER.fine(fmtLogMsg("Found " + count + " provisioned or provisioning Nodes for the template "
+                    + template.getDisplayName() + ". Max Cap: " + maxCap));
+        }
+        return count;
+    }
+    /**
+     * Checks that SSH is available on a new instance. When the connection
+     * also authenticates with the template credentials, it is kept in the
+     * state to be handed to the launcher.
+     *
+     * @return true if SSH is available
+     */
+    boolean probeSsh(ProvisionState state, BaremetalCloudAgentTemplate template) throws IOException, InterruptedException {
+        Connection connection = SshConnector.createConnection(state.ip, SshComputerLauncher.DEFAULT_SSH_PORT);
+        try {
+            SshConnector.connect(connection, template.getSshConnectTimeoutMillis(),
+                    Boolean.TRUE.equals(template.getVerificationStrategy()) ? "Strict Verification" : "No Verification");
+        } catch (IOException e) {
+            LOGGER.log(Level.FINER, "Ignoring exception connecting to SSH during provision", e);
+            connection.close();
+            return false;
+        }
 
-        // Provisioned nodes
-        count += jenkins.getNodes()
-            .stream()
-            .filter(n -> n instanceof BaremetalCloudAgent)
-            .filter(n -> ((BaremetalCloudAgent) n).cloudName.equals(name))
-            .filter(n -> ((BaremetalCloudAgent) n).templateId == templateId)
-            .peek(n -> LOGGER.fine(fmtLogMsg("Peeking provisioned nodes: " + n.getNodeName())))
-            .count();
-
-        // Nodes waiting in provisioning queue
-        count += Stream.concat(
-                // Nodes provisioning for no label
-                jenkins.unlabeledNodeProvisioner.getPendingLaunches().stream(),
-                // Nodes provisioning for specific label
-                jenkins.getLabels().stream().flatMap(l -> l.nodeProvisioner.getPendingLaunches().stream())
-        )
-            .filter(pn -> pn instanceof BaremetalCloudPlannedNode)
-            .filter(pn -> ((BaremetalCloudPlannedNode) pn).getCloudName().equals(name))
-            .filter(pn -> ((BaremetalCloudPlannedNode) pn).getTemplateId() == templateId)
-            .peek(pn -> LOGGER.fine(fmtLogMsg("Peeking provisioning nodes: " + ((BaremetalCloudPlannedNode) pn).displayName)))
-            .count();
-
-        String tempCap = template.getInstanceCap();
-        String maxCap = (tempCap==null || tempCap.isEmpty()) ? "NA" : tempCap;
-        LOGGER.fine(fmtLogMsg("Found " + count + " provisioned or provisioning Nodes for the template "
-                + template.getDisplayName() + ". Max Cap: " + maxCap));
-
-        return toIntExact(count);
-    }
-    // make sure the instance if available before launch agent on it.
-    private void awaitInstanceSshAvailable(String host, int connectTimeoutMillis, TimeoutHelper timeoutHelper) throws IOException, InterruptedException {
-        do {
-            Connection connection = SshConnector.createConnection(host, 22);
+        SSHUserPrivateKey credentials = (SSHUserPrivateKey) matchCredentials(SSHUserPrivateKey.class, template.getSshCredentialsId());
+        boolean authenticated = false;
+        if (credentials != null) {
             try {
-                SshConnector.connect(connection, connectTimeoutMillis,"No Verification");
-                return;
+                authenticated = SshConnector.authenticate(connection, credentials.getUsername(), credentials.getPrivateKey());
             } catch (IOException e) {
-                LOGGER.log(Level.FINER, "Ignoring exception connecting to SSH during provision", e);
-            } finally {
-                connection.close();
+                LOGGER.log(Level.FINER, "Ignoring exception authenticating to SSH during provision", e);
             }
-        } while (timeoutHelper.sleep());
-
-        throw new IOException("Timed out connecting to SSH");
+        }
+        if (authenticated) {
+            state.connection = connection;
+            state.sshUser = credentials.getUsername();
+        } else {
+            // The launcher connects on its own.
+            connection.close();
+        }
+        return true;
     }
 
     @Override
@@ -713,6 +1138,13 @@ public class BaremetalCloud extends AbstractCloudImpl{
             return result.includeMatchingAs(ACL.SYSTEM, context, BaremetalCloudCredentials.class, domainRequirements, anyOf(instanceOf(BaremetalCloudCredentials.class)));
         }
 
+        public FormValidation doCheckMaxTerminationThreads(@QueryParameter String value) {
+            if (value == null || value.trim().isEmpty()) {
+                return FormValidation.ok();
+            }
+            return FormValidationValue.validatePositiveInteger(value, DEFAULT_MAX_TERMINATION_THREADS).getFormValidation();
+        }
+
         public static FormValidation withContext(FormValidation fv, String context) {
             return FormValidation.error(JenkinsUtil.unescape(fv.getMessage()) + ": " + context);
         }
@@ -1,9 +1,9 @@
 package com.oracle.cloud.baremetal.jenkins;
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -13,6 +13,7 @@ import org.kohsuke.stapler.StaplerRequest;
 
 import com.oracle.bmc.core.model.Instance;
 import com.oracle.cloud.baremetal.jenkins.client.BaremetalCloudClient;
+import com.oracle.cloud.baremetal.jenkins.ssh.KnownHostsStore;
 import com.oracle.cloud.baremetal.jenkins.ssh.SshComputerLauncher;
 
 import hudson.Extension;
@@ -23,6 +24,7 @@ import hudson.model.Descriptor.FormException;
 import hudson.slaves.AbstractCloudComputer;
 import hudson.slaves.AbstractCloudSlave;
 import hudson.slaves.ComputerLauncher;
+import hudson.slaves.JNLPLauncher;
 import hudson.slaves.NodeProperty;
 import hudson.slaves.OfflineCause;
 import hudson.slaves.RetentionStrategy;
@@ -66,25 +68,39 @@ public class BaremetalCloudAgent extends AbstractCloudSlave{
                 name,
                 template.getDescription(),
                 template.getRemoteFS(),
-                template.getSshCredentialsId(),
-                template.getAssignPublicIP(),
-                template.getUsePublicIP(),
                 template.getNumExecutors(),
                 template.getMode(),
                 template.getLabelString(),
-                template.getIdleTerminationMinutes(),
                 Collections.<NodeProperty<?>> emptyList(),
                 cloudName,
-                template.getSshConnectTimeoutMillis(),
                 template.getVerificationStrategy(),
                 instanceId,
                 template.getJenkinsAgentUser(),
                 template.getCustomJavaPath(),
                 template.getCustomJVMOpts(),
                 template.getInitScriptEnvVarsVersion(),
-                template.getInitScriptTimeoutSeconds(),
-                host,
+                createLauncher(template, host),
+                createRetentionStrategy(template.getIdleTerminationMinutes()),
                 template.getTemplateId());
+        this.hostip = host;
+    }
+
+    private static ComputerLauncher createLauncher(BaremetalCloudAgentTemplate template, String host) {
+        if (template.getInboundAgent()) {
+            JNLPLauncher launcher = new JNLPLauncher();
+            launcher.setWebSocket(true);
+            return launcher;
+        }
+        return new SshComputerLauncher(
+                host,
+                template.getSshConnectTimeoutMillis(),
+                template.getJenkinsAgentUser(),
+                template.getCustomJavaPath(),
+                template.getCustomJVMOpts(),
+                template.getInitScriptEnvVarsVersion(),
+                template.getInitScriptTimeoutSeconds(),
+                template.getSshCredentialsId(),
+                template.getVerificationStrategy());
     }
 
     @DataBoundConstructor
@@ -177,6 +193,10 @@ public class BaremetalCloudAgent extends AbstractCloudSlave{
         return instanceId;
     }
 
+    String getHost() {
+        return hostip;
+    }
+
     @Override
     public AbstractCloudComputer<BaremetalCloudAgent> createComputer() {
         return new BaremetalCloudComputer(this);
@@ -211,37 +231,16 @@ public class BaremetalCloudAgent extends AbstractCloudSlave{
                 .filter(t->t.getTemplateId() == templateId)
                 .findFirst();
         if (temp.isPresent()){
-            stopOnIdle = temp.get().getStopOnIdle();
+            // Stopped inbound instances are never resumed, so they are always terminated.
+            stopOnIdle = temp.get().getStopOnIdle() && !temp.get().getInboundAgent();
         }
         if (!stopOnIdle) {
             LOGGER.info("Terminating instance " + instanceId);
             cloud.recycleCloudResources(instanceId);
-            File f1=new File("./known_hosts");
-            if (!f1.exists()) {
-                LOGGER.info("File: known_hosts does not exist, skipping modification.");
-            } else {
-                String[] words = null;
-                Reader fr = new InputStreamReader(new FileInputStream(f1), StandardCharsets.UTF_8);
-                BufferedReader br = new BufferedReader(fr);
-                File tempFile = new File("./known_host_temp");
-                Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8);
-                String line;
-                String input = hostip;
-                while ((line = br.readLine()) != null) {
-                    words = line.split(" ");
-                    if (words[0].equals(input)) {
-                        LOGGER.log(Level.FINE, "IP Address entry to be removed from host file: " + words[0]);
-                        continue;
-                    }
-                    writer.write(line + System.getProperty("line.separator"));
-                }
-
-                boolean success = tempFile.renameTo(f1);
-                if (!success) {
-                    LOGGER.log(Level.INFO, "Cannot rename the file, hence entry not updated.");
-                }
-                br.close();
-                writer.close();
+            try {
+                KnownHostsStore.INSTANCE.remove(hostip);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to remove the known host key of " + hostip, e);
             }
         } else {
             LOGGER.info("Stopping instance " + instanceId);
@@ -257,16 +256,20 @@ public class BaremetalCloudAgent extends AbstractCloudSlave{
 
         BaremetalCloudClient client = getCloud().getClient();
         try{
-            Instance.LifecycleState currentState = client.getInstanceState(instanceId);
-            if(currentState.equals(Instance.LifecycleState.Running) ||
-                    currentState.equals(Instance.LifecycleState.Provisioning) ||
-                    currentState.equals(Instance.LifecycleState.Starting)){
-                return true;
-            }
+            return isAlive(Objects.requireNonNull(client.getInstanceState(instanceId), "lifecycleState"));
         } catch(Exception e) {
             throw new IOException(e);
         }
-        return false;
+    }
+
+    /**
+     * @param state the instance lifecycle state
+     * @return true if an instance in the given state can host this agent
+     */
+    static boolean isAlive(Instance.LifecycleState state) {
+        return state == Instance.LifecycleState.Running ||
+                state == Instance.LifecycleState.Provisioning ||
+                state == Instance.LifecycleState.Starting;
     }
 
     @Override
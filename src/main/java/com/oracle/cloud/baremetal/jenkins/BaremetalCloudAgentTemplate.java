@@ -6,6 +6,7 @@ import com.cloudbees.plugins.credentials.domains.DomainRequirement;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import com.cloudbees.jenkins.plugins.sshcredentials.SSHAuthenticator;
@@ -19,7 +20,6 @@ import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
 
 import com.oracle.bmc.core.model.Image;
-import com.oracle.bmc.core.model.Shape;
 import com.oracle.bmc.core.model.Subnet;
 import com.oracle.bmc.core.model.Vcn;
 import com.oracle.bmc.core.responses.GetSubnetResponse;
@@ -27,7 +27,9 @@ import com.oracle.bmc.identity.model.AvailabilityDomain;
 import com.oracle.bmc.identity.model.Compartment;
 import com.oracle.cloud.baremetal.jenkins.client.BaremetalCloudClient;
 import com.oracle.cloud.baremetal.jenkins.client.BaremetalCloudClientFactory;
+import com.oracle.cloud.baremetal.jenkins.client.MetadataCache;
 import com.oracle.cloud.baremetal.jenkins.client.SDKBaremetalCloudClientFactory;
+import com.oracle.cloud.baremetal.jenkins.client.ShapeCatalog;
 
 import hudson.Extension;
 import hudson.RelativePath;
@@ -52,6 +54,11 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
     private static final Logger LOGGER = Logger.getLogger(BaremetalCloud.class.getName());
     static final int FAILURE_COUNT_LIMIT = 3;
     static final int DISABLE_FAILURE_COUNT_LIMIT = 20;
+    /**
+     * Incremented whenever a template is disabled, re-enabled, put to sleep
+     * or woken up, so that cached template lookups can tell they are stale.
+     */
+    private static final AtomicLong AVAILABILITY_VERSION = new AtomicLong();
     private transient boolean templateSleep = false;
 
     public final String compartmentId;
@@ -93,6 +100,8 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
     public final String memoryInGBs;
     public final Boolean doNotDisable;
     public final String retryTimeoutMins;
+    private String minWarmSpares;
+    private Boolean inboundAgent;
 
     private transient int failureCount=0;
     private transient String disableCause;
@@ -383,6 +392,32 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
         return stopOnIdle == null ? Boolean.FALSE : stopOnIdle;
     }
 
+    public String getMinWarmSpares() {
+        return minWarmSpares;
+    }
+
+    @DataBoundSetter
+    public void setMinWarmSpares(String minWarmSpares) {
+        this.minWarmSpares = minWarmSpares;
+    }
+
+    private static FormValidationValue<Integer> checkMinWarmSpares(String value) {
+        return FormValidationValue.validateNonNegativeInteger(value, 0);
+    }
+
+    public int getMinWarmSparesValue() {
+        return checkMinWarmSpares(minWarmSpares).getValue();
+    }
+
+    public Boolean getInboundAgent() {
+        return inboundAgent == null ? Boolean.FALSE : inboundAgent;
+    }
+
+    @DataBoundSetter
+    public void setInboundAgent(Boolean inboundAgent) {
+        this.inboundAgent = inboundAgent;
+    }
+
     public List<BaremetalCloudTagsTemplate> getTags() {
         return tags;
     }
@@ -401,7 +436,16 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
         return JenkinsUtil.getDescriptorOrDie(getClass());
     }
 
+    /**
+     * @return the version of the availability of all templates
+     * @see TemplateResolver
+     */
+    static long getAvailabilityVersion() {
+        return AVAILABILITY_VERSION.get();
+    }
+
     public synchronized void increaseFailureCount(String cause) {
+        String previousCause = disableCause;
         ++failureCount;
         if(doNotDisable==null) {
             if (failureCount >= FAILURE_COUNT_LIMIT) {
@@ -418,6 +462,9 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
         } else{
             LOGGER.info("Agent template "+getDisplayName()+ " encountered " + failureCount +" failures till now.");
         }
+        if (previousCause == null && disableCause != null) {
+            AVAILABILITY_VERSION.incrementAndGet();
+        }
     }
 
     public synchronized void resetFailureCount() {
@@ -427,6 +474,7 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
         }
         if (disableCause != null) {
             disableCause = null;
+            AVAILABILITY_VERSION.incrementAndGet();
             LOGGER.info("Agent template " + getDisplayName() + " is re-enabled");
         }
     }
@@ -454,7 +502,11 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
 
     @DataBoundSetter
     public synchronized void setTemplateSleep(Boolean sleepvar){
+        boolean changed = templateSleep != sleepvar;
         this.templateSleep=sleepvar;
+        if (changed) {
+            AVAILABILITY_VERSION.incrementAndGet();
+        }
     }
 
     public synchronized boolean isTemplateSleep() {
@@ -504,6 +556,13 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
             return checkNumExecutors(value).getFormValidation();
         }
 
+        public FormValidation doCheckMinWarmSpares(@QueryParameter String value) {
+            if (value == null || value.trim().isEmpty()) {
+                return FormValidation.ok();
+            }
+            return checkMinWarmSpares(value).getFormValidation();
+        }
+
         public FormValidation doCheckSshConnectTimeoutSeconds(@QueryParameter String value) {
             return checkSshConnectTimeoutSeconds(value).getFormValidation();
         }
@@ -548,6 +607,15 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
             return FormValidation.ok();
         }
 
+        public FormValidation doCheckInboundAgent(
+                @QueryParameter Boolean stopOnIdle,
+                @QueryParameter Boolean inboundAgent) {
+            if (stopOnIdle != null && inboundAgent != null && stopOnIdle && inboundAgent) {
+                return FormValidation.error(Messages.BaremetalCloudAgentTemplate_inboundAgent_stopOnIdle());
+            }
+            return FormValidation.ok();
+        }
+
         public FormValidation doCheckInstanceNamePrefix(@QueryParameter String instanceNamePrefix) {
             if(instanceNamePrefix.contains(" ")) {
                 return FormValidation.error(Messages.BaremetalCloudAgentTemplate_prefix_contains_spaces());
@@ -573,6 +641,15 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
             return factory.createClient(credentialsId, Integer.parseInt(maxAsyncThreads));
         }
 
+        /**
+         * The shape, OCPU and memory dropdowns of a template share one shape listing.
+         */
+        private static ShapeCatalog getShapeCatalog(BaremetalCloudClient client, String credentialsId,
+                String compartmentId, String availableDomain, String imageId) throws Exception {
+            return MetadataCache.INSTANCE.get(credentialsId, "shapes",
+                    () -> client.getShapeCatalog(compartmentId, availableDomain, imageId), compartmentId, availableDomain, imageId);
+        }
+
         public ListBoxModel doFillCompartmentIdItems(
                 @QueryParameter @RelativePath("..") String credentialsId,
                 @QueryParameter @RelativePath("..") String maxAsyncThreads)
@@ -586,9 +663,9 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
 
             try{
                 BaremetalCloudClient client = getClient(credentialsId, maxAsyncThreads);
-                Tenancy tenant = client.getTenant();
+                Tenancy tenant = MetadataCache.INSTANCE.get(credentialsId, "tenant", client::getTenant);
                 model.add(tenant.getName(), tenant.getId());
-                for (Compartment compartmentId : client.getCompartmentsList()) {
+                for (Compartment compartmentId : MetadataCache.INSTANCE.get(credentialsId, "compartments", client::getCompartmentsList)) {
                     model.add(compartmentId.getName(), compartmentId.getId());
                 }
             }catch (Exception e) {
@@ -611,7 +688,8 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
             try {
                 BaremetalCloudClient client = getClient(credentialsId, maxAsyncThreads);
                 List<String>  lstDomain = new ArrayList<String>();
-                for (AvailabilityDomain domain : client.getAvailabilityDomainsList(compartmentId)) {
+                for (AvailabilityDomain domain : MetadataCache.INSTANCE.get(credentialsId, "availabilityDomains",
+                        () -> client.getAvailabilityDomainsList(compartmentId), compartmentId)) {
                     if (!lstDomain.contains(domain.getName())) {
                         model.add(domain.getName(), domain.getName());
                         lstDomain.add(domain.getName());
@@ -637,9 +715,9 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
 
             try{
                 BaremetalCloudClient client = getClient(credentialsId, maxAsyncThreads);
-                Tenancy tenant = client.getTenant();
+                Tenancy tenant = MetadataCache.INSTANCE.get(credentialsId, "tenant", client::getTenant);
                 model.add(tenant.getName(), tenant.getId());
-                for (Compartment compartment : client.getCompartmentsList()) {
+                for (Compartment compartment : MetadataCache.INSTANCE.get(credentialsId, "compartments", client::getCompartmentsList)) {
                     model.add(compartment.getName(), compartment.getId());
                 }
             }catch (Exception e) {
@@ -665,9 +743,11 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
 
             try {
                 BaremetalCloudClient client = getClient(credentialsId, maxAsyncThreads);
+                String imagesCompartmentId = imageCompartmentId;
                 List<String>  lstImage = new ArrayList<String>();
 
-                for (Image imageId : client.getImagesList(imageCompartmentId)) {
+                for (Image imageId : MetadataCache.INSTANCE.get(credentialsId, "images",
+                        () -> client.getImagesList(imagesCompartmentId), imagesCompartmentId)) {
                     if (!lstImage.contains(imageId.getId())) {
                         model.add(imageId.getDisplayName(), imageId.getId());
                         lstImage.add(imageId.getId());
@@ -695,13 +775,8 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
 
             try {
                 BaremetalCloudClient client = getClient(credentialsId, maxAsyncThreads);
-                List<String>  lstShape = new ArrayList<String>();
-
-                for (Shape shape : client.getShapesList(compartmentId, availableDomain, imageId)) {
-                    if (!lstShape.contains(shape.getShape())) {
-                        model.add(shape.getShape(), shape.getShape());
-                        lstShape.add(shape.getShape());
-                    }
+                for (ShapeCatalog.Entry shape : getShapeCatalog(client, credentialsId, compartmentId, availableDomain, imageId).getShapes()) {
+                    model.add(shape.getName(), shape.getName());
                 }
 
             } catch (Exception e) {
@@ -735,7 +810,11 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
             try {
                 model.clear();
                 BaremetalCloudClient client = getClient(credentialsId, maxAsyncThreads);
-                Integer[] ocpuOptions = client.getMinMaxOcpus(compartmentId, availableDomain, imageId, shape);
+                ShapeCatalog.Entry entry = getShapeCatalog(client, credentialsId, compartmentId, availableDomain, imageId).get(shape);
+                if (entry == null) {
+                    throw new IllegalArgumentException("Shape " + shape + " is not available");
+                }
+                Integer[] ocpuOptions = entry.getOcpuRange();
                 IntStream.range(ocpuOptions[0], ocpuOptions[1]+1).forEach(n -> model.add(Integer.toString(n)));
             } catch (Exception e) {
                 LOGGER.log(Level.WARNING, "Failed to get ocpus options list", e);
@@ -768,7 +847,11 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
             try {
                 model.clear();
                 BaremetalCloudClient client = getClient(credentialsId, maxAsyncThreads);
-                Integer[] memoryOptions = client.getMinMaxMemory(compartmentId, availableDomain, imageId, shape);
+                ShapeCatalog.Entry entry = getShapeCatalog(client, credentialsId, compartmentId, availableDomain, imageId).get(shape);
+                if (entry == null) {
+                    throw new IllegalArgumentException("Shape " + shape + " is not available");
+                }
+                Integer[] memoryOptions = entry.getMemoryRange();
                 IntStream.range(memoryOptions[0], memoryOptions[1]+1).forEach(n -> model.add(Integer.toString(n)));
             } catch (Exception e) {
                 LOGGER.log(Level.WARNING, "Failed to get memory options list", e);
@@ -789,9 +872,9 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
 
             try{
                 BaremetalCloudClient client = getClient(credentialsId, maxAsyncThreads);
-                Tenancy tenant = client.getTenant();
+                Tenancy tenant = MetadataCache.INSTANCE.get(credentialsId, "tenant", client::getTenant);
                 model.add(tenant.getName(), tenant.getId());
-                for (Compartment compartment : client.getCompartmentsList()) {
+                for (Compartment compartment : MetadataCache.INSTANCE.get(credentialsId, "compartments", client::getCompartmentsList)) {
                     model.add(compartment.getName(), compartment.getId());
                 }
             }catch (Exception e) {
@@ -819,7 +902,9 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
 
             try {
                 BaremetalCloudClient client = getClient(credentialsId, maxAsyncThreads);
-                for (Vcn vcnId : client.getVcnList(vcnCompartmentId)) {
+                String vcnsCompartmentId = vcnCompartmentId;
+                for (Vcn vcnId : MetadataCache.INSTANCE.get(credentialsId, "vcns",
+                        () -> client.getVcnList(vcnsCompartmentId), vcnsCompartmentId)) {
                     model.add(vcnId.getDisplayName(), vcnId.getId());
                 }
             } catch (Exception e) {
@@ -841,9 +926,9 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
 
             try{
                 BaremetalCloudClient client = getClient(credentialsId, maxAsyncThreads);
-                Tenancy tenant = client.getTenant();
+                Tenancy tenant = MetadataCache.INSTANCE.get(credentialsId, "tenant", client::getTenant);
                 model.add(tenant.getName(), tenant.getId());
-                for (Compartment compartment : client.getCompartmentsList()) {
+                for (Compartment compartment : MetadataCache.INSTANCE.get(credentialsId, "compartments", client::getCompartmentsList)) {
                     model.add(compartment.getName(), compartment.getId());
                 }
             }catch (Exception e) {
@@ -874,7 +959,9 @@ public class BaremetalCloudAgentTemplate implements Describable<BaremetalCloudAg
 
             try {
                 BaremetalCloudClient client = getClient(credentialsId, maxAsyncThreads);
-                for (Subnet subnet : client.getSubNetList(subnetCompartmentId, vcnId)) {
+                String subnetsCompartmentId = subnetCompartmentId;
+                for (Subnet subnet : MetadataCache.INSTANCE.get(credentialsId, "subnets",
+                        () -> client.getSubNetList(subnetsCompartmentId, vcnId), subnetsCompartmentId, vcnId)) {
                     if (null == subnet.getAvailabilityDomain() || subnet.getAvailabilityDomain().equals(availableDomain)) {
                         model.add(subnet.getDisplayName(), subnet.getId());
                     }
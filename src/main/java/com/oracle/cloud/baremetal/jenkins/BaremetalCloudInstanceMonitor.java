@@ -2,10 +2,19 @@ package com.oracle.cloud.baremetal.jenkins;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.oracle.bmc.core.model.Instance;
+
 import hudson.Extension;
 import hudson.model.AsyncPeriodicWork;
 import hudson.model.Node;
@@ -18,6 +27,12 @@ public class BaremetalCloudInstanceMonitor extends AsyncPeriodicWork {
 
 	private static final Long recurrencePeriod = TimeUnit.MINUTES.toMillis(10);
 
+	/** Maximum time a run waits for the terminations it started, leaving room before the next run. */
+	private static final long TERMINATION_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(8);
+
+	/** Terminations started by this monitor and not yet reconciled, by instance id. */
+	private final Map<String, PendingTermination> pendingTerminations = new ConcurrentHashMap<>();
+
 	public BaremetalCloudInstanceMonitor(){
 		super("Oracle Oracle Cloud Infrastructure Compute instances monitor");
 		LOGGER.log(Level.FINE, "Oracle Cloud Infrastructure Compute check alive period is {0}ms", recurrencePeriod);
@@ -37,26 +52,45 @@ public class BaremetalCloudInstanceMonitor extends AsyncPeriodicWork {
 	@Override
 	protected void execute(TaskListener listener) {
 
+		List<BaremetalCloudAgent> agents = new ArrayList<>();
 		for(Node node : getNodes()){
 			if(node instanceof BaremetalCloudAgent){
-				final BaremetalCloudAgent agent = (BaremetalCloudAgent)node;
-				try{
-					if(! agent.isAlive()){
-						LOGGER.info("Cloud Infrastructure instance is offline: " + agent.getDisplayName());
-						agent._terminate(listener);
-						LOGGER.info("Cloud Infrastructure instance is terminated: " + agent.getDisplayName());
-						removeNode(agent);
-					}else{
-						LOGGER.info("Cloud Infrastructure instance is online: " + agent.getDisplayName());
-					}
-				} catch (IOException | InterruptedException | RuntimeException e){
-					LOGGER.info("Failed to terminate node : " + agent.getDisplayName());
-                                        LOGGER.info("ERROR : " + e.getMessage());
+				agents.add((BaremetalCloudAgent)node);
+			}
+		}
+
+		// Collect terminations left running by the previous run.
+		reconcileTerminations(0);
+
+		Map<String, Instance.LifecycleState> states = getInstanceStates(agents);
+		for(BaremetalCloudAgent agent : agents){
+			if (pendingTerminations.containsKey(agent.getInstanceId())) {
+				LOGGER.log(Level.FINE, "Cloud Infrastructure instance is still terminating: {0}", agent.getDisplayName());
+				continue;
+			}
+			try{
+				// Agents missing from the snapshot are checked one by one.
+				Instance.LifecycleState state = states.get(agent.getInstanceId());
+				boolean alive = state != null ? BaremetalCloudAgent.isAlive(state) : agent.isAlive();
+				if(! alive){
+					LOGGER.info("Cloud Infrastructure instance is offline: " + agent.getDisplayName());
+					terminate(agent, listener);
+				}else{
+					LOGGER.info("Cloud Infrastructure instance is online: " + agent.getDisplayName());
 				}
+			} catch (IOException | InterruptedException | RuntimeException e){
+				LOGGER.info("Failed to terminate node : " + agent.getDisplayName());
+				LOGGER.info("ERROR : " + e.getMessage());
 			}
 		}
 
+		reconcileTerminations(TERMINATION_WAIT_MILLIS);
+		if (!pendingTerminations.isEmpty()) {
+			LOGGER.log(Level.INFO, "{0} Cloud Infrastructure instances are still terminating", pendingTerminations.size());
+		}
+
 		LOGGER.log(Level.FINE,"Monitoring the compute plugin online instances");
+		NodeCountIndex.INSTANCE.rebuild(getNodes());
 		for (Cloud c : getClouds()) {
 			if (c instanceof BaremetalCloud) {
 				BaremetalCloud cloud = (BaremetalCloud) c;
@@ -67,6 +101,114 @@ public class BaremetalCloudInstanceMonitor extends AsyncPeriodicWork {
 		}
 	}
 
+	/**
+	 * Lists the instances of every compartment used by the agents' templates,
+	 * once per cloud and compartment, instead of getting each instance.
+	 *
+	 * @param agents the agents to check
+	 * @return lifecycle state by instance id; instances that could not be
+	 *         listed are absent
+	 */
+	Map<String, Instance.LifecycleState> getInstanceStates(List<BaremetalCloudAgent> agents) {
+		Map<BaremetalCloud, Set<String>> compartments = new LinkedHashMap<>();
+		for (BaremetalCloudAgent agent : agents) {
+			BaremetalCloud cloud = agent.getCloud();
+			if (cloud == null) {
+				continue;
+			}
+			BaremetalCloudAgentTemplate template = cloud.getTemplateById(agent.templateId);
+			if (template == null || template.getCompartmentId() == null || template.getCompartmentId().isEmpty()) {
+				continue;
+			}
+			compartments.computeIfAbsent(cloud, c -> new LinkedHashSet<>()).add(template.getCompartmentId());
+		}
+
+		Map<String, Instance.LifecycleState> states = new HashMap<>();
+		for (Map.Entry<BaremetalCloud, Set<String>> entry : compartments.entrySet()) {
+			for (String compartmentId : entry.getValue()) {
+				try {
+					for (Instance instance : entry.getKey().getClient().getInstancesList(compartmentId)) {
+						if (instance.getLifecycleState() != null) {
+							states.put(instance.getId(), instance.getLifecycleState());
+						}
+					}
+				} catch (Exception e) {
+					LOGGER.log(Level.WARNING, "Failed to list instances in compartment " + compartmentId
+							+ ", checking its agents one by one", e);
+				}
+			}
+		}
+		LOGGER.log(Level.FINE, "Listed {0} instances for {1} agents", new Object[] { states.size(), agents.size() });
+		return states;
+	}
+
+	/**
+	 * Starts terminating an agent on the termination executor of its cloud, so
+	 * that agents of the same cloud are terminated in parallel up to the
+	 * cloud's limit.
+	 */
+	void terminate(BaremetalCloudAgent agent, TaskListener listener) {
+		Callable<Void> task = () -> {
+			agent._terminate(listener);
+			LOGGER.info("Cloud Infrastructure instance is terminated: " + agent.getDisplayName());
+			removeNode(agent);
+			return null;
+		};
+
+		BaremetalCloud cloud = agent.getCloud();
+		Future<Void> future;
+		if (cloud == null) {
+			// _terminate only logs the missing cloud, nothing worth a thread.
+			FutureTask<Void> inline = new FutureTask<>(task);
+			inline.run();
+			future = inline;
+		} else {
+			future = cloud.getTerminationExecutor().submit(task);
+		}
+		pendingTerminations.put(agent.getInstanceId(), new PendingTermination(agent, future));
+	}
+
+	/**
+	 * Waits for pending terminations and logs their outcome. Terminations that
+	 * are not done by the deadline stay pending until a later run.
+	 *
+	 * @param timeoutMillis total time to wait for all pending terminations
+	 */
+	void reconcileTerminations(long timeoutMillis) {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		for (Iterator<PendingTermination> it = pendingTerminations.values().iterator(); it.hasNext();) {
+			PendingTermination pending = it.next();
+			try {
+				pending.future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				it.remove();
+			} catch (TimeoutException e) {
+				LOGGER.log(Level.FINE, "Cloud Infrastructure instance is still terminating: {0}", pending.agent.getDisplayName());
+			} catch (ExecutionException | CancellationException e) {
+				it.remove();
+				Throwable cause = e.getCause() == null ? e : e.getCause();
+				LOGGER.info("Failed to terminate node : " + pending.agent.getDisplayName());
+				LOGGER.info("ERROR : " + cause.getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	int getPendingTerminationCount() {
+		return pendingTerminations.size();
+	}
+
+	private static final class PendingTermination {
+		final BaremetalCloudAgent agent;
+		final Future<Void> future;
+
+		PendingTermination(BaremetalCloudAgent agent, Future<Void> future) {
+			this.agent = agent;
+			this.future = future;
+		}
+	}
+
 	void removeNode(BaremetalCloudAgent agent){
 		try{
 		    JenkinsUtil.getJenkinsInstance().removeNode(agent);
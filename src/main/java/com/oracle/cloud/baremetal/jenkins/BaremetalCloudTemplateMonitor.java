@@ -1,15 +1,14 @@
 package com.oracle.cloud.baremetal.jenkins;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.oracle.bmc.core.model.Image;
 import com.oracle.cloud.baremetal.jenkins.client.BaremetalCloudClient;
-import com.oracle.cloud.baremetal.jenkins.client.BaremetalCloudClientFactory;
-import com.oracle.cloud.baremetal.jenkins.client.SDKBaremetalCloudClientFactory;
 
 import hudson.Extension;
 import hudson.model.AsyncPeriodicWork;
@@ -29,10 +28,13 @@ public class BaremetalCloudTemplateMonitor extends AsyncPeriodicWork{
 
     @Override
     protected void execute(TaskListener taskListener) throws IOException {
+        // Templates sharing credentials and an image compartment share its listing for this cycle.
+        Map<String, ImageCatalog> catalogs = new HashMap<>();
 
         for (Cloud c : JenkinsUtil.getJenkinsInstance().clouds) {
             if (c instanceof BaremetalCloud) {
                 BaremetalCloud cloud = (BaremetalCloud) c;
+                BaremetalCloudClient client = null;
 
                 for (BaremetalCloudAgentTemplate template: cloud.getTemplates()) {
 
@@ -59,29 +61,17 @@ public class BaremetalCloudTemplateMonitor extends AsyncPeriodicWork{
 
                     if (template.getAutoImageUpdate()) {
                         String imageId = template.getImageId();
-
-                        BaremetalCloudClientFactory factory = SDKBaremetalCloudClientFactory.INSTANCE;
-                        BaremetalCloudClient client = factory.createClient(cloud.getCredentialsId(), Integer.parseInt(cloud.getMaxAsyncThreads()));
-
                         try {
-                            List<Image> images = client.getImagesList(template.getImageCompartmentId());
-
-                            for (Image image : images) {
-                                if (image.getId().equals(imageId)) {
-                                    String imageName = image.getDisplayName();
-
-                                    for (Image image2 : images) {
-                                        if (image2.getDisplayName().equals(imageName)
-                                                && !image2.getId().equals(imageId)
-                                                && image2.getTimeCreated().compareTo(image.getTimeCreated()) > 0) {
-                                            LOGGER.log(Level.INFO, "A new version of the image {0} was found. It is used in the template.", imageName);
-                                            template.setImageId(image2.getId());
-                                        }
-                                    }
-
-                                }
+                            if (client == null) {
+                                client = cloud.getClient();
+                            }
+                            ImageCatalog catalog = getImageCatalog(catalogs, client,
+                                    cloud.getCredentialsId(), template.getImageCompartmentId());
+                            Image newer = catalog.getNewerImage(imageId);
+                            if (newer != null) {
+                                LOGGER.log(Level.INFO, "A new version of the image {0} was found. It is used in the template.", newer.getDisplayName());
+                                template.setImageId(newer.getId());
                             }
-
                         } catch (Exception e) {
                             LOGGER.log(Level.WARNING, "Failed to get images list", e);
                         }
@@ -91,6 +81,17 @@ public class BaremetalCloudTemplateMonitor extends AsyncPeriodicWork{
         }
     }
 
+    static ImageCatalog getImageCatalog(Map<String, ImageCatalog> catalogs, BaremetalCloudClient client,
+            String credentialsId, String compartmentId) throws Exception {
+        String key = credentialsId + "|" + compartmentId;
+        ImageCatalog catalog = catalogs.get(key);
+        if (catalog == null) {
+            catalog = new ImageCatalog(client.getImagesList(compartmentId));
+            catalogs.put(key, catalog);
+        }
+        return catalog;
+    }
+
     @Override
     public long getRecurrencePeriod() {
         return recurrencePeriod;
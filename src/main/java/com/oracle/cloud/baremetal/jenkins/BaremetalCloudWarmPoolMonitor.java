@@ -0,0 +1,49 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.slaves.Cloud;
+
+/**
+ * Refills the {@link WarmPool} of every template with warm spares.
+ */
+@Extension
+public class BaremetalCloudWarmPoolMonitor extends AsyncPeriodicWork {
+    private static final Logger LOGGER = Logger.getLogger(BaremetalCloudWarmPoolMonitor.class.getName());
+    private static final Long recurrencePeriod = TimeUnit.MINUTES.toMillis(1);
+
+    public BaremetalCloudWarmPoolMonitor() {
+        super("Oracle Cloud Infrastructure Compute warm pool monitor");
+        LOGGER.log(Level.FINE, "Oracle Cloud Infrastructure Compute warm pool check period is {0}ms", recurrencePeriod);
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return recurrencePeriod;
+    }
+
+    List<Node> getNodes() {
+        return JenkinsUtil.getJenkinsInstance().getNodes();
+    }
+
+    List<Cloud> getClouds() {
+        return JenkinsUtil.getJenkinsInstance().clouds.toList();
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        List<Node> nodes = getNodes();
+        for (Cloud c : getClouds()) {
+            if (c instanceof BaremetalCloud) {
+                WarmPool.INSTANCE.maintain((BaremetalCloud) c, nodes);
+            }
+        }
+    }
+}
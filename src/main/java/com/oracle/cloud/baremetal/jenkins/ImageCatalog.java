@@ -0,0 +1,50 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.oracle.bmc.core.model.Image;
+
+/**
+ * The images of a compartment, indexed by id and by display name to the
+ * newest image of that name, so that templates sharing the compartment can
+ * check for image updates without listing the images again.
+ */
+final class ImageCatalog {
+    private final Map<String, Image> imagesById = new HashMap<>();
+    private final Map<String, Image> newestByName = new HashMap<>();
+
+    ImageCatalog(List<Image> images) {
+        for (Image image : images) {
+            imagesById.put(image.getId(), image);
+            String name = image.getDisplayName();
+            if (name != null) {
+                newestByName.merge(name, image, (a, b) -> isNewer(b, a) ? b : a);
+            }
+        }
+    }
+
+    private static boolean isNewer(Image image, Image than) {
+        return image.getTimeCreated() != null
+                && (than.getTimeCreated() == null || image.getTimeCreated().compareTo(than.getTimeCreated()) > 0);
+    }
+
+    /**
+     * @param imageId the image id
+     * @return the newest image with the same display name, if it is newer
+     *         than the image, or null
+     */
+    Image getNewerImage(String imageId) {
+        Image image = imagesById.get(imageId);
+        if (image == null || image.getDisplayName() == null) {
+            return null;
+        }
+        Image newest = newestByName.get(image.getDisplayName());
+        return newest != image && isNewer(newest, image) ? newest : null;
+    }
+
+    int size() {
+        return imagesById.size();
+    }
+}
@@ -0,0 +1,71 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.util.UUID;
+
+/**
+ * Builds the cloud-init script of templates launching agents inbound: on
+ * first boot the script runs the init script, downloads the agent jar from
+ * Jenkins and starts the agent, which connects back over WebSocket.
+ */
+final class InboundAgentUserData {
+    /** Attempts to download the agent jar, five seconds apart. */
+    private static final int DOWNLOAD_ATTEMPTS = 60;
+
+    private InboundAgentUserData() {}
+
+    /**
+     * @param jenkinsUrl the Jenkins root URL, ending with a slash
+     * @param agentName the agent name
+     * @param secret the agent secret
+     * @param user the user running the agent
+     * @param remoteFS the agent working directory, or empty for the home directory of the user
+     * @param javaPath the directory of the java command, ending with a slash, or empty
+     * @param jvmOpts the JVM options, or empty
+     * @param initScript the init script, or null
+     * @return the script
+     */
+    static String build(String jenkinsUrl, String agentName, String secret, String user, String remoteFS,
+            String javaPath, String jvmOpts, String initScript) {
+        StringBuilder script = new StringBuilder();
+        script.append("#!/bin/bash\n");
+        script.append("user=").append(quote(user)).append('\n');
+        if (remoteFS == null || remoteFS.trim().isEmpty()) {
+            script.append("dir=$(getent passwd \"$user\" | cut -d: -f6)\n");
+        } else {
+            script.append("dir=").append(quote(remoteFS)).append('\n');
+        }
+        script.append("mkdir -p \"$dir\" && chown \"$user\" \"$dir\" || exit 1\n");
+
+        if (initScript != null && !initScript.trim().isEmpty()) {
+            String delimiter = "OCI_INIT_" + UUID.randomUUID().toString().replace("-", "");
+            script.append("cat > \"$dir/init.sh\" <<'").append(delimiter).append("'\n");
+            script.append(initScript).append('\n');
+            script.append(delimiter).append('\n');
+            script.append("chown \"$user\" \"$dir/init.sh\"\n");
+            script.append("sudo -u \"$user\" -H /bin/bash \"$dir/init.sh\" < /dev/null || exit 1\n");
+        }
+
+        script.append("for i in $(seq ").append(DOWNLOAD_ATTEMPTS).append("); do\n");
+        script.append(" curl -fsS -o \"$dir/agent.jar\" ").append(quote(jenkinsUrl + "jnlpJars/agent.jar")).append(" && break\n");
+        script.append(" sleep 5\n");
+        script.append("done\n");
+        script.append("[ -s \"$dir/agent.jar\" ] || exit 1\n");
+        script.append("chown \"$user\" \"$dir/agent.jar\"\n");
+
+        String java = (javaPath == null ? "" : javaPath) + "java";
+        String opts = jvmOpts == null || jvmOpts.trim().isEmpty() ? "" : " " + jvmOpts.trim();
+        script.append("cd \"$dir\"\n");
+        script.append("nohup sudo -u \"$user\" -H ").append(java).append(opts)
+                .append(" -jar \"$dir/agent.jar\"")
+                .append(" -url ").append(quote(jenkinsUrl))
+                .append(" -name ").append(quote(agentName))
+                .append(" -secret ").append(quote(secret))
+                .append(" -webSocket -workDir \"$dir\"")
+                .append(" > \"$dir/agent.log\" 2>&1 &\n");
+        return script.toString();
+    }
+
+    static String quote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+}
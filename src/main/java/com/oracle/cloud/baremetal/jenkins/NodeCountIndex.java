@@ -0,0 +1,192 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import hudson.Extension;
+import hudson.model.Node;
+import jenkins.model.NodeListener;
+
+/**
+ * Counts provisioned and provisioning agents per cloud and template, so that
+ * instance cap checks do not scan every node and the pending launches of
+ * every label.
+ * <p>
+ * Provisioning agents are added when their planned node is created and
+ * removed when provisioning ends. Provisioned agents are tracked through
+ * {@link NodeListener} events. The index is built from the Jenkins nodes on
+ * first use and rebuilt by {@link BaremetalCloudInstanceMonitor} to correct
+ * any drift.
+ */
+final class NodeCountIndex {
+    static final NodeCountIndex INSTANCE = new NodeCountIndex(Clock.INSTANCE);
+
+    /**
+     * Agents are counted as provisioned before Jenkins adds them. A rebuild
+     * keeps such agents for this long even though Jenkins does not have them yet.
+     */
+    private static final long REBUILD_GRACE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final class Counts {
+        /** Provisioned node names and the time they were counted. */
+        final ConcurrentMap<String, Long> provisioned = new ConcurrentHashMap<>();
+        /** Display names of planned nodes still provisioning. */
+        final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+        int size() {
+            return provisioned.size() + pending.size();
+        }
+    }
+
+    private final Clock clock;
+    private final ConcurrentMap<String, ConcurrentMap<Integer, Counts>> clouds = new ConcurrentHashMap<>();
+    private volatile boolean initialized;
+
+    NodeCountIndex(Clock clock) {
+        this.clock = clock;
+    }
+
+    private Counts counts(String cloudName, int templateId) {
+        return clouds.computeIfAbsent(cloudName, c -> new ConcurrentHashMap<>())
+                .computeIfAbsent(templateId, t -> new Counts());
+    }
+
+    private Counts find(String cloudName, int templateId) {
+        Map<Integer, Counts> templates = cloudName == null ? null : clouds.get(cloudName);
+        return templates == null ? null : templates.get(templateId);
+    }
+
+    void nodeAdded(BaremetalCloudAgent agent) {
+        if (agent.cloudName != null && agent.getNodeName() != null) {
+            counts(agent.cloudName, agent.templateId).provisioned.put(agent.getNodeName(), clock.nanoTime());
+        }
+    }
+
+    void nodeRemoved(BaremetalCloudAgent agent) {
+        Counts counts = find(agent.cloudName, agent.templateId);
+        if (counts != null && agent.getNodeName() != null) {
+            counts.provisioned.remove(agent.getNodeName());
+        }
+    }
+
+    void pendingAdded(String cloudName, int templateId, String displayName) {
+        counts(cloudName, templateId).pending.add(displayName);
+    }
+
+    void pendingRemoved(String cloudName, int templateId, String displayName) {
+        Counts counts = find(cloudName, templateId);
+        if (counts != null) {
+            counts.pending.remove(displayName);
+        }
+    }
+
+    /**
+     * @param cloudName the cloud name, including its prefix
+     * @return the number of provisioned and provisioning agents of the cloud
+     */
+    int count(String cloudName) {
+        Map<Integer, Counts> templates = clouds.get(cloudName);
+        if (templates == null) {
+            return 0;
+        }
+        int count = 0;
+        for (Counts counts : templates.values()) {
+            count += counts.size();
+        }
+        return count;
+    }
+
+    /**
+     * @param cloudName the cloud name, including its prefix
+     * @param templateId the template id
+     * @return the number of provisioned and provisioning agents of the template
+     */
+    int count(String cloudName, int templateId) {
+        Counts counts = find(cloudName, templateId);
+        return counts == null ? 0 : counts.size();
+    }
+
+    /**
+     * Builds the index from the Jenkins nodes unless it was built before.
+     *
+     * @param nodes supplies the Jenkins nodes
+     */
+    void ensureInitialized(Supplier<? extends Collection<? extends Node>> nodes) {
+        if (!initialized) {
+            synchronized (this) {
+                if (!initialized) {
+                    rebuild(nodes.get());
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the provisioned agents with the given Jenkins nodes. Agents
+     * counted in the last minute are kept, since Jenkins may not have added
+     * them yet. Provisioning agents are not changed.
+     *
+     * @param nodes the Jenkins nodes
+     */
+    synchronized void rebuild(Collection<? extends Node> nodes) {
+        Map<String, Map<Integer, Set<String>>> actual = new HashMap<>();
+        for (Node node : nodes) {
+            if (node instanceof BaremetalCloudAgent) {
+                BaremetalCloudAgent agent = (BaremetalCloudAgent) node;
+                if (agent.cloudName != null && agent.getNodeName() != null) {
+                    actual.computeIfAbsent(agent.cloudName, c -> new HashMap<>())
+                            .computeIfAbsent(agent.templateId, t -> new HashSet<>())
+                            .add(agent.getNodeName());
+                }
+            }
+        }
+
+        long now = clock.nanoTime();
+        actual.forEach((cloudName, templates) -> templates.forEach((templateId, names) -> {
+            Counts counts = counts(cloudName, templateId);
+            for (String name : names) {
+                counts.provisioned.putIfAbsent(name, now);
+            }
+        }));
+        clouds.forEach((cloudName, templates) -> templates.forEach((templateId, counts) -> {
+            Set<String> names = actual.getOrDefault(cloudName, Map.of()).getOrDefault(templateId, Set.of());
+            counts.provisioned.entrySet().removeIf(e ->
+                    !names.contains(e.getKey()) && now - e.getValue() >= REBUILD_GRACE_NANOS);
+        }));
+        initialized = true;
+    }
+
+    @Extension
+    public static class Listener extends NodeListener {
+        @Override
+        protected void onCreated(Node node) {
+            if (node instanceof BaremetalCloudAgent) {
+                INSTANCE.nodeAdded((BaremetalCloudAgent) node);
+            }
+        }
+
+        @Override
+        protected void onUpdated(Node oldOne, Node newOne) {
+            if (oldOne instanceof BaremetalCloudAgent) {
+                INSTANCE.nodeRemoved((BaremetalCloudAgent) oldOne);
+            }
+            if (newOne instanceof BaremetalCloudAgent) {
+                INSTANCE.nodeAdded((BaremetalCloudAgent) newOne);
+            }
+        }
+
+        @Override
+        protected void onDeleted(Node node) {
+            if (node instanceof BaremetalCloudAgent) {
+                INSTANCE.nodeRemoved((BaremetalCloudAgent) node);
+            }
+        }
+    }
+}
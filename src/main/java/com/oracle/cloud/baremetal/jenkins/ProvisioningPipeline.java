@@ -0,0 +1,178 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+
+/**
+ * Runs the stages of provisioning an instance on bounded executors, one per
+ * stage, so that a burst of provisions does not hold one sleeping thread per
+ * node.
+ * <p>
+ * Waits between polling attempts are scheduled on the Jenkins timer instead
+ * of sleeping; a stage thread is only held while an OCI call or an SSH
+ * connection attempt is running. The number of threads of each stage is set
+ * with the system property
+ * {@code com.oracle.cloud.baremetal.jenkins.ProvisioningPipeline.<stage>Concurrency}.
+ * Stages run on virtual threads when {@link VirtualThreads} are enabled.
+ */
+class ProvisioningPipeline {
+
+    enum Stage {
+        /** Launching or starting instances. */
+        LAUNCH("launch", 10),
+        /** Short OCI calls: instance state and IP lookups. */
+        API("api", 20),
+        /** SSH connection attempts to new instances. */
+        SSH("ssh", 50);
+
+        final String id;
+        final int defaultConcurrency;
+
+        Stage(String id, int defaultConcurrency) {
+            this.id = id;
+            this.defaultConcurrency = defaultConcurrency;
+        }
+
+        int getConcurrency() {
+            int value = SystemProperties.getInteger(ProvisioningPipeline.class.getName() + "." + id + "Concurrency", defaultConcurrency);
+            return value > 0 ? value : defaultConcurrency;
+        }
+    }
+
+    static final ProvisioningPipeline INSTANCE = new ProvisioningPipeline(ProvisioningPipeline::newStageExecutor, null, Clock.INSTANCE);
+
+    private final Map<Stage, ExecutorService> executors = new EnumMap<>(Stage.class);
+    private final ScheduledExecutorService scheduler;
+    private final Clock clock;
+
+    /**
+     * @param executors creates the executor of each stage
+     * @param scheduler schedules polling attempts, or null to use the Jenkins timer
+     * @param clock clock used for polling timeouts
+     */
+    ProvisioningPipeline(Function<Stage, ExecutorService> executors, ScheduledExecutorService scheduler, Clock clock) {
+        for (Stage stage : Stage.values()) {
+            this.executors.put(stage, executors.apply(stage));
+        }
+        this.scheduler = scheduler;
+        this.clock = clock;
+    }
+
+    /**
+     * Creates the executor of a stage. With {@link VirtualThreads} enabled,
+     * each task gets its own virtual thread and the stage is not limited.
+     *
+     * @param stage the stage
+     * @return the executor
+     */
+    static ExecutorService newStageExecutor(Stage stage) {
+        String name = "OCI provisioning " + stage.id;
+        return VirtualThreads.newExecutor(name, () -> {
+            int threads = stage.getConcurrency();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    new NamingThreadFactory(new DaemonThreadFactory(), name));
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        });
+    }
+
+    private ScheduledExecutorService getScheduler() {
+        return scheduler != null ? scheduler : Timer.get();
+    }
+
+    /**
+     * Runs a task on the executor of a stage.
+     *
+     * @param stage the stage
+     * @param task the task
+     * @param <T> the result type
+     * @return a future completed with the result of the task
+     */
+    <T> CompletableFuture<T> submit(Stage stage, Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        execute(stage, result, () -> result.complete(task.call()));
+        return result;
+    }
+
+    /**
+     * Runs an attempt on the executor of a stage until it returns a non-null
+     * result, waiting {@code intervalMillis} between attempts without holding
+     * a thread.
+     *
+     * @param stage the stage
+     * @param attempt returns the result, or null to try again
+     * @param timeoutNanos time after which polling fails, or 0 to poll forever
+     * @param intervalMillis time between attempts
+     * @param timeoutMessage message of the {@link IOException} thrown on timeout
+     * @param <T> the result type
+     * @return a future completed with the first non-null result
+     */
+    <T> CompletableFuture<T> poll(Stage stage, Callable<T> attempt, long timeoutNanos, long intervalMillis, String timeoutMessage) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        poll(stage, attempt, clock.nanoTime(), timeoutNanos, intervalMillis, timeoutMessage, result);
+        return result;
+    }
+
+    private <T> void poll(Stage stage, Callable<T> attempt, long beginNanos, long timeoutNanos, long intervalMillis,
+            String timeoutMessage, CompletableFuture<T> result) {
+        execute(stage, result, () -> {
+            if (result.isDone()) {
+                // Cancelled by the caller.
+                return;
+            }
+            T value = attempt.call();
+            if (value != null) {
+                result.complete(value);
+            } else if (timeoutNanos != 0 && clock.nanoTime() - beginNanos >= timeoutNanos) {
+                result.completeExceptionally(new IOException(timeoutMessage));
+            } else {
+                getScheduler().schedule(
+                        () -> poll(stage, attempt, beginNanos, timeoutNanos, intervalMillis, timeoutMessage, result),
+                        intervalMillis, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    private interface Step {
+        void run() throws Exception;
+    }
+
+    private void execute(Stage stage, CompletableFuture<?> result, Step step) {
+        try {
+            executors.get(stage).execute(() -> {
+                try {
+                    step.run();
+                } catch (Exception | Error e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * @param t a throwable thrown by a stage
+     * @return the cause of a {@link CompletionException}, or the throwable itself
+     */
+    static Throwable unwrap(Throwable t) {
+        return t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+    }
+}
@@ -0,0 +1,144 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import com.oracle.bmc.core.model.Instance;
+import com.oracle.cloud.baremetal.jenkins.client.BaremetalCloudClient;
+
+/**
+ * Indexes the stopped instances of a cloud which can be resumed for
+ * stop-on-idle templates, by fingerprint: compartment, availability domain,
+ * shape, image and display name prefix, which includes the controller.
+ * <p>
+ * The stopped instances of a compartment and availability domain are listed
+ * at most every {@link #REFRESH_NANOS}. An instance is claimed atomically
+ * before it is started, so concurrent provisions never resume the same
+ * instance, and stays claimed until it is stopped again or the claim expires.
+ */
+final class StoppedInstanceIndex {
+    static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /** Time after which a claimed instance may be listed as stopped again. */
+    static final long CLAIM_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private static final Pattern UUID_SUFFIX = Pattern.compile(".*[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$");
+    private static final int UUID_LENGTH = 36;
+
+    private final Clock clock;
+    /** Stopped instances by fingerprint. */
+    private final ConcurrentMap<String, Deque<Instance>> available = new ConcurrentHashMap<>();
+    /** Claimed instance ids and the time they were claimed. */
+    private final ConcurrentMap<String, Long> claimed = new ConcurrentHashMap<>();
+    /** Last refresh time of each compartment and availability domain. */
+    private final ConcurrentMap<String, Long> refreshed = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Object> refreshLocks = new ConcurrentHashMap<>();
+
+    StoppedInstanceIndex(Clock clock) {
+        this.clock = clock;
+    }
+
+    private static String scope(String compartmentId, String availabilityDomain) {
+        return compartmentId + "|" + availabilityDomain;
+    }
+
+    static String fingerprint(String compartmentId, String availabilityDomain, String shape, String imageId, String namePrefix) {
+        return scope(compartmentId, availabilityDomain) + "|" + shape + "|" + imageId + "|" + namePrefix;
+    }
+
+    /**
+     * @param displayName the display name of an instance
+     * @return the display name without its trailing UUID, or null if it has none
+     */
+    static String getNamePrefix(String displayName) {
+        if (displayName == null || !UUID_SUFFIX.matcher(displayName).matches()) {
+            return null;
+        }
+        return displayName.substring(0, displayName.length() - UUID_LENGTH);
+    }
+
+    /**
+     * Claims a stopped instance matching the fingerprint.
+     *
+     * @param client the client used to list stopped instances
+     * @param compartmentId the compartment id
+     * @param availabilityDomain the availability domain
+     * @param shape the shape
+     * @param imageId the image id
+     * @param namePrefix the display name prefix, up to the UUID
+     * @return the claimed instance, or null if there is none
+     * @throws Exception if the stopped instances cannot be listed
+     */
+    Instance claim(BaremetalCloudClient client, String compartmentId, String availabilityDomain,
+            String shape, String imageId, String namePrefix) throws Exception {
+        refreshIfStale(client, compartmentId, availabilityDomain);
+        Deque<Instance> instances = available.get(fingerprint(compartmentId, availabilityDomain, shape, imageId, namePrefix));
+        if (instances == null) {
+            return null;
+        }
+        long now = clock.nanoTime();
+        Instance instance;
+        while ((instance = instances.pollFirst()) != null) {
+            if (claimed.putIfAbsent(instance.getId(), now) == null) {
+                return instance;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Makes an instance available again, after it failed to start or was
+     * stopped again. The next claim lists the stopped instances again.
+     *
+     * @param instanceId the instance id
+     */
+    void release(String instanceId) {
+        if (claimed.remove(instanceId) != null) {
+            refreshed.clear();
+        }
+    }
+
+    private void refreshIfStale(BaremetalCloudClient client, String compartmentId, String availabilityDomain) throws Exception {
+        String scope = scope(compartmentId, availabilityDomain);
+        if (!isStale(scope)) {
+            return;
+        }
+        synchronized (refreshLocks.computeIfAbsent(scope, s -> new Object())) {
+            if (isStale(scope)) {
+                refresh(client.getStoppedInstances(compartmentId, availabilityDomain), scope);
+            }
+        }
+    }
+
+    private boolean isStale(String scope) {
+        Long last = refreshed.get(scope);
+        return last == null || clock.nanoTime() - last >= REFRESH_NANOS;
+    }
+
+    private void refresh(List<Instance> instances, String scope) {
+        long now = clock.nanoTime();
+        claimed.values().removeIf(time -> now - time >= CLAIM_NANOS);
+
+        Map<String, Deque<Instance>> instancesByFingerprint = new HashMap<>();
+        for (Instance instance : instances) {
+            String namePrefix = getNamePrefix(instance.getDisplayName());
+            if (namePrefix == null || claimed.containsKey(instance.getId())) {
+                continue;
+            }
+            String fingerprint = scope + "|" + instance.getShape() + "|" + instance.getImageId() + "|" + namePrefix;
+            instancesByFingerprint.computeIfAbsent(fingerprint, f -> new ConcurrentLinkedDeque<>()).add(instance);
+        }
+
+        String scopePrefix = scope + "|";
+        available.keySet().removeIf(f -> f.startsWith(scopePrefix) && !instancesByFingerprint.containsKey(f));
+        available.putAll(instancesByFingerprint);
+        refreshed.put(scope, now);
+    }
+}
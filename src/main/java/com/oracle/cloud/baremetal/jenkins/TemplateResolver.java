@@ -0,0 +1,74 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import hudson.model.Label;
+
+/**
+ * Caches which template of a cloud provisions a label, since
+ * {@code NodeProvisioner} asks {@code canProvision} and {@code provision} for
+ * every label on each of its frequent passes.
+ * <p>
+ * Each resolution remembers the availability version of the templates it was
+ * made at, and is made again once a template is disabled, re-enabled, put to
+ * sleep or woken up. Labels and modes of templates only change with the
+ * configuration, which replaces the cloud and so its resolver. A cache hit
+ * neither locks nor allocates.
+ */
+final class TemplateResolver {
+    /** The cache is cleared rather than grown past this many labels. */
+    static final int MAX_LABELS = 1024;
+
+    private static final class Resolution {
+        final long version;
+        /** The template, or null if no template provisions the label. */
+        final BaremetalCloudAgentTemplate template;
+
+        Resolution(long version, BaremetalCloudAgentTemplate template) {
+            this.version = version;
+            this.template = template;
+        }
+    }
+
+    private final Function<Label, BaremetalCloudAgentTemplate> resolver;
+    private final LongSupplier version;
+    private final ConcurrentMap<Label, Resolution> resolutions = new ConcurrentHashMap<>();
+    /** The resolution of jobs without a label, which maps cannot key. */
+    private volatile Resolution unlabeled;
+
+    /**
+     * @param resolver finds the template for a label, or null if there is none
+     * @param version the availability version of the templates
+     */
+    TemplateResolver(Function<Label, BaremetalCloudAgentTemplate> resolver, LongSupplier version) {
+        this.resolver = resolver;
+        this.version = version;
+    }
+
+    /**
+     * @param label the label, or null for jobs without one
+     * @return the template to provision the label with, or null if none can
+     */
+    BaremetalCloudAgentTemplate resolve(Label label) {
+        // Read before resolving, so a transition during the resolution leaves it stale.
+        long current = version.getAsLong();
+        Resolution resolution = label == null ? unlabeled : resolutions.get(label);
+        if (resolution != null && resolution.version == current) {
+            return resolution.template;
+        }
+
+        resolution = new Resolution(current, resolver.apply(label));
+        if (label == null) {
+            unlabeled = resolution;
+        } else {
+            if (resolutions.size() >= MAX_LABELS) {
+                resolutions.clear();
+            }
+            resolutions.put(label, resolution);
+        }
+        return resolution.template;
+    }
+}
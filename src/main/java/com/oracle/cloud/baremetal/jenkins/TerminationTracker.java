@@ -0,0 +1,130 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tracks terminate and stop requests which are in progress, by instance id.
+ * <p>
+ * A request is sent to OCI once; a second request for an instance which is
+ * already being terminated or stopped joins the first one instead. A stop
+ * joins a terminate in progress, but a terminate does not join a stop: it
+ * replaces the stop, which still completes on its own. Requests are
+ * forgotten as soon as they complete or fail.
+ */
+class TerminationTracker {
+
+    enum Action {
+        TERMINATE,
+        STOP
+    }
+
+    enum State {
+        /** The terminate or stop request is being sent. */
+        REQUESTED,
+        /** The request was accepted, waiting for the instance to reach its final state. */
+        WAITING,
+        DONE,
+        FAILED
+    }
+
+    static final class Request {
+        final String instanceId;
+        final Action action;
+        final Clock clock;
+        final long startNanos;
+        final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private volatile State state = State.REQUESTED;
+
+        Request(String instanceId, Action action, Clock clock) {
+            this.instanceId = instanceId;
+            this.action = action;
+            this.clock = clock;
+            this.startNanos = clock.nanoTime();
+        }
+
+        State getState() {
+            return state;
+        }
+
+        long getElapsedNanos() {
+            return clock.nanoTime() - startNanos;
+        }
+
+        @Override
+        public String toString() {
+            return action + " " + instanceId + " " + state;
+        }
+    }
+
+    /**
+     * The outcome of {@link TerminationTracker#begin}.
+     */
+    static final class Started {
+        final Request request;
+        /**
+         * True if the caller created the request and must drive it, false if
+         * it joined a request already in progress.
+         */
+        final boolean created;
+
+        Started(Request request, boolean created) {
+            this.request = request;
+            this.created = created;
+        }
+    }
+
+    private final ConcurrentMap<String, Request> requests = new ConcurrentHashMap<>();
+
+    /**
+     * Starts a request, or joins the request in progress for the instance.
+     *
+     * @param instanceId the instance id
+     * @param action terminate or stop
+     * @param clock clock used to time the request
+     * @return the request, and whether the caller created it
+     */
+    Started begin(String instanceId, Action action, Clock clock) {
+        Request request = new Request(instanceId, action, clock);
+        for (;;) {
+            Request existing = requests.putIfAbsent(instanceId, request);
+            if (existing == null) {
+                return new Started(request, true);
+            }
+            if (existing.action == action || existing.action == Action.TERMINATE) {
+                return new Started(existing, false);
+            }
+            // A stop is in progress; the instance must still be terminated.
+            if (requests.replace(instanceId, existing, request)) {
+                return new Started(request, true);
+            }
+        }
+    }
+
+    void waiting(Request request) {
+        request.state = State.WAITING;
+    }
+
+    void complete(Request request) {
+        request.state = State.DONE;
+        requests.remove(request.instanceId, request);
+        request.completion.complete(null);
+    }
+
+    void fail(Request request, Throwable cause) {
+        request.state = State.FAILED;
+        requests.remove(request.instanceId, request);
+        request.completion.completeExceptionally(cause);
+    }
+
+    Request get(String instanceId) {
+        return requests.get(instanceId);
+    }
+
+    List<Request> getInProgress() {
+        return new ArrayList<>(requests.values());
+    }
+}
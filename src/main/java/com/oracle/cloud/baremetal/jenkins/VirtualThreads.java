@@ -0,0 +1,109 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.util.SystemProperties;
+
+/**
+ * Creates executors running blocking provisioning work on virtual threads
+ * when enabled with the system property
+ * {@code com.oracle.cloud.baremetal.jenkins.VirtualThreads.enabled=true} and
+ * supported by the runtime (Java 21 or later). Otherwise the given platform
+ * thread executor is used.
+ * <p>
+ * The plugin is compiled for Java 17, so virtual threads are created through
+ * reflection.
+ */
+public final class VirtualThreads {
+    private static final Logger LOGGER = Logger.getLogger(VirtualThreads.class.getName());
+
+    static final boolean ENABLED = SystemProperties.getBoolean(VirtualThreads.class.getName() + ".enabled");
+
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            builderName = builder.getMethod("name", String.class, long.class);
+            builderFactory = builder.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+        if (ENABLED && OF_VIRTUAL == null) {
+            LOGGER.warning("Virtual threads were requested but are not supported by this Java runtime, using platform threads");
+        }
+    }
+
+    private VirtualThreads() {}
+
+    /**
+     * @return true if the runtime supports virtual threads
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * @return true if virtual threads are enabled and supported
+     */
+    public static boolean isEnabled() {
+        return ENABLED && isSupported();
+    }
+
+    /**
+     * Returns an executor starting a new virtual thread for each task when
+     * virtual threads are enabled, or the fallback executor otherwise.
+     *
+     * @param name prefix of the thread names
+     * @param fallback creates the platform thread executor
+     * @return the executor
+     */
+    public static ExecutorService newExecutor(String name, Supplier<ExecutorService> fallback) {
+        if (isEnabled()) {
+            ExecutorService executor = newVirtualExecutor(name);
+            if (executor != null) {
+                return executor;
+            }
+        }
+        return fallback.get();
+    }
+
+    /**
+     * @param name prefix of the thread names
+     * @return an executor starting a new virtual thread for each task, or
+     *         null if virtual threads are not supported
+     */
+    static ExecutorService newVirtualExecutor(String name) {
+        if (!isSupported()) {
+            return null;
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = BUILDER_NAME.invoke(builder, name + " ", 0L);
+            ThreadFactory factory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to create virtual thread executor, using platform threads", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.oracle.bmc.core.model.Instance;
+import com.oracle.cloud.baremetal.jenkins.client.BaremetalCloudClient;
+import com.oracle.cloud.baremetal.jenkins.ssh.SshConnectionHandoff;
+
+import hudson.model.Node;
+
+/**
+ * Keeps instances running and reachable over SSH for templates with
+ * {@link BaremetalCloudAgentTemplate#getMinWarmSpares() minimum warm spares},
+ * so that a provision request can be served without waiting for an instance
+ * to boot.
+ * <p>
+ * Spares are launched through the same pipeline as regular agents and are
+ * counted against the instance caps while they wait. A claimed spare becomes
+ * an ordinary agent and the pool is refilled by
+ * {@link BaremetalCloudWarmPoolMonitor}. Spare display names start with
+ * {@link BaremetalCloud#getSpareInstanceNamePrefix}, so spares left by a
+ * previous Jenkins run are adopted again.
+ */
+final class WarmPool {
+    private static final Logger LOGGER = Logger.getLogger(WarmPool.class.getName());
+
+    static final WarmPool INSTANCE = new WarmPool();
+
+    /** Prefix of the names under which spares are counted in the {@link NodeCountIndex}. */
+    private static final String PENDING_PREFIX = "spare:";
+
+    static final class Spare {
+        final String name;
+        final String instanceName;
+        final String instanceId;
+        final String host;
+
+        Spare(String name, String instanceName, String instanceId, String host) {
+            this.name = name;
+            this.instanceName = instanceName;
+            this.instanceId = instanceId;
+            this.host = host;
+        }
+
+        String getPendingName() {
+            return PENDING_PREFIX + instanceName;
+        }
+    }
+
+    private static final class Pool {
+        final String cloudName;
+        final int templateId;
+        final Deque<Spare> ready = new ConcurrentLinkedDeque<>();
+        final AtomicInteger launching = new AtomicInteger();
+        volatile boolean adopted;
+
+        Pool(String cloudName, int templateId) {
+            this.cloudName = cloudName;
+            this.templateId = templateId;
+        }
+    }
+
+    private final ConcurrentMap<String, Pool> pools = new ConcurrentHashMap<>();
+
+    private static String key(String cloudName, int templateId) {
+        return cloudName + "#" + templateId;
+    }
+
+    /**
+     * Takes a ready spare of the template and turns it into an agent.
+     *
+     * @param cloud the cloud
+     * @param template the template
+     * @return the agent, or null if the template has no ready spare
+     */
+    BaremetalCloudAgent claim(BaremetalCloud cloud, BaremetalCloudAgentTemplate template) {
+        Pool pool = pools.get(key(cloud.name, template.getTemplateId()));
+        if (pool == null) {
+            return null;
+        }
+        NodeCountIndex index = cloud.getNodeCountIndex();
+        Spare spare;
+        while ((spare = pool.ready.pollFirst()) != null) {
+            try {
+                BaremetalCloudAgent agent = cloud.newBaremetalCloudAgent(spare.name, template, cloud.name, spare.instanceId, spare.host);
+                // Count the agent before the spare is released, so the caps are never exceeded.
+                index.nodeAdded(agent);
+                index.pendingRemoved(pool.cloudName, pool.templateId, spare.getPendingName());
+                return agent;
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Failed to create agent from warm spare " + spare.instanceName, e);
+                retire(cloud, pool, spare);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param cloudName the cloud name, including its prefix
+     * @param templateId the template id
+     * @return the number of ready spares of the template
+     */
+    int getReadyCount(String cloudName, int templateId) {
+        Pool pool = pools.get(key(cloudName, templateId));
+        return pool == null ? 0 : pool.ready.size();
+    }
+
+    /**
+     * Brings the pools of every template of the cloud to their minimum:
+     * drops spares which are no longer running, retires surplus spares and
+     * launches missing ones within the instance caps.
+     *
+     * @param cloud the cloud
+     * @param nodes the Jenkins nodes, whose instances are never adopted as spares
+     */
+    void maintain(BaremetalCloud cloud, Collection<? extends Node> nodes) {
+        Set<String> keys = new HashSet<>();
+        for (BaremetalCloudAgentTemplate template : cloud.getTemplates()) {
+            String key = key(cloud.name, template.getTemplateId());
+            keys.add(key);
+            int min = template.getMinWarmSparesValue();
+            Pool pool = min > 0
+                    ? pools.computeIfAbsent(key, k -> new Pool(cloud.name, template.getTemplateId()))
+                    : pools.get(key);
+            if (pool == null) {
+                continue;
+            }
+            try {
+                maintain(cloud, template, pool, min, nodes);
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Failed to maintain warm spares of template " + template.getDisplayName(), e);
+            }
+        }
+
+        // Retire the spares of removed templates.
+        for (Iterator<Map.Entry<String, Pool>> it = pools.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<String, Pool> entry = it.next();
+            Pool pool = entry.getValue();
+            if (pool.cloudName.equals(cloud.name) && !keys.contains(entry.getKey())) {
+                it.remove();
+                Spare spare;
+                while ((spare = pool.ready.pollFirst()) != null) {
+                    retire(cloud, pool, spare);
+                }
+            }
+        }
+    }
+
+    private void maintain(BaremetalCloud cloud, BaremetalCloudAgentTemplate template, Pool pool, int min,
+            Collection<? extends Node> nodes) throws Exception {
+        BaremetalCloudClient client = cloud.getClient();
+        if (!pool.adopted) {
+            adopt(cloud, template, pool, client, nodes);
+            pool.adopted = true;
+        }
+
+        for (Spare spare : pool.ready) {
+            Instance.LifecycleState state = client.getInstanceState(spare.instanceId);
+            if (state != Instance.LifecycleState.Running && pool.ready.remove(spare)) {
+                LOGGER.log(Level.INFO, "Warm spare {0} is {1}, replacing it", new Object[] {spare.instanceName, state});
+                if (BaremetalCloudAgent.isAlive(state) || state == Instance.LifecycleState.Stopped) {
+                    retire(cloud, pool, spare);
+                } else {
+                    cloud.getNodeCountIndex().pendingRemoved(pool.cloudName, pool.templateId, spare.getPendingName());
+                }
+            }
+        }
+
+        while (pool.ready.size() > min) {
+            Spare spare = pool.ready.pollLast();
+            if (spare != null) {
+                retire(cloud, pool, spare);
+            }
+        }
+
+        if (template.getDisableCause() != null || template.isTemplateSleep() || template.getStopOnIdle()
+                || template.getInboundAgent()) {
+            // Spares of stop-on-idle templates would be stopped rather than reused,
+            // and inbound agents connect as soon as they boot.
+            return;
+        }
+        int deficit = min - pool.ready.size() - pool.launching.get();
+        for (int i = 0; i < deficit && cloud.hasCapacity(template); i++) {
+            launch(cloud, template, pool);
+        }
+    }
+
+    /**
+     * Adopts the running spares of a previous Jenkins run and terminates
+     * those which did not finish starting.
+     */
+    private void adopt(BaremetalCloud cloud, BaremetalCloudAgentTemplate template, Pool pool,
+            BaremetalCloudClient client, Collection<? extends Node> nodes) throws Exception {
+        String prefix = cloud.getSpareInstanceNamePrefix(template);
+        Set<String> agentInstanceIds = new HashSet<>();
+        for (Node node : nodes) {
+            if (node instanceof BaremetalCloudAgent) {
+                agentInstanceIds.add(((BaremetalCloudAgent) node).getInstanceId());
+            }
+        }
+
+        for (Instance instance : client.getInstancesList(template.getCompartmentId())) {
+            String displayName = instance.getDisplayName();
+            if (displayName == null || !displayName.startsWith(prefix)
+                    || agentInstanceIds.contains(instance.getId())
+                    || BaremetalCloud.TERMINATIONS.get(instance.getId()) != null) {
+                continue;
+            }
+            Instance.LifecycleState state = instance.getLifecycleState();
+            Spare spare = new Spare(BaremetalCloud.NAME_PREFIX + displayName.substring(prefix.length()),
+                    displayName, instance.getId(), null);
+            if (state == Instance.LifecycleState.Running) {
+                String host = client.getInstanceIp(template, instance.getId());
+                spare = new Spare(spare.name, spare.instanceName, spare.instanceId, host);
+                cloud.getNodeCountIndex().pendingAdded(pool.cloudName, pool.templateId, spare.getPendingName());
+                pool.ready.add(spare);
+                LOGGER.log(Level.INFO, "Adopted warm spare {0}", displayName);
+            } else if (BaremetalCloudAgent.isAlive(state) || state == Instance.LifecycleState.Stopped) {
+                LOGGER.log(Level.INFO, "Terminating warm spare {0} left {1} by a previous run", new Object[] {displayName, state});
+                retire(cloud, pool, spare);
+            }
+        }
+    }
+
+    private void launch(BaremetalCloud cloud, BaremetalCloudAgentTemplate template, Pool pool) {
+        UUID uuid = UUID.randomUUID();
+        String name = BaremetalCloud.NAME_PREFIX + uuid;
+        String instanceName = cloud.getSpareInstanceNamePrefix(template) + uuid;
+        String pendingName = PENDING_PREFIX + instanceName;
+        NodeCountIndex index = cloud.getNodeCountIndex();
+
+        LOGGER.log(Level.INFO, "Launching warm spare {0}", instanceName);
+        index.pendingAdded(pool.cloudName, pool.templateId, pendingName);
+        pool.launching.incrementAndGet();
+        cloud.provisionAsync(name, template, instanceName).whenComplete((agent, e) -> {
+            pool.launching.decrementAndGet();
+            if (e != null) {
+                LOGGER.log(Level.WARNING, "Failed to launch warm spare " + instanceName, e);
+                index.pendingRemoved(pool.cloudName, pool.templateId, pendingName);
+                return;
+            }
+            // Spares may wait for a long time, so they do not hold their SSH connection.
+            SshConnectionHandoff.INSTANCE.discard(agent.getInstanceId());
+            Spare spare = new Spare(name, instanceName, agent.getInstanceId(), agent.getHost());
+            if (pools.get(key(pool.cloudName, pool.templateId)) == pool) {
+                pool.ready.add(spare);
+            } else {
+                // The template was removed while the spare was launching.
+                retire(cloud, pool, spare);
+            }
+        });
+    }
+
+    private void retire(BaremetalCloud cloud, Pool pool, Spare spare) {
+        cloud.getNodeCountIndex().pendingRemoved(pool.cloudName, pool.templateId, spare.getPendingName());
+        cloud.requestTerminationAsync(spare.instanceId, TerminationTracker.Action.TERMINATE).whenComplete((r, e) -> {
+            if (e != null) {
+                LOGGER.log(Level.WARNING, "Failed to terminate warm spare " + spare.instanceName, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,203 @@
+package com.oracle.cloud.baremetal.jenkins.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+
+import com.oracle.bmc.model.BmcException;
+
+import jenkins.util.SystemProperties;
+
+/**
+ * Throttles the OCI API calls of all clients of a tenancy and region, with
+ * separate {@link TokenBucket token buckets} for reads and for control plane
+ * writes such as launching, stopping and terminating instances.
+ * <p>
+ * Buckets halve their rate when OCI answers 429 TooManyRequests and honor its
+ * Retry-After header, then recover gradually. The rates are set with the
+ * {@code readsPerSecond} and {@code writesPerSecond} system properties of this
+ * class; zero disables the limiter.
+ */
+public class ApiRateLimiter {
+    private static final Logger LOGGER = Logger.getLogger(ApiRateLimiter.class.getName());
+
+    static final double READS_PER_SECOND = Double.parseDouble(SystemProperties.getString(
+            ApiRateLimiter.class.getName() + ".readsPerSecond", "20"));
+
+    static final double WRITES_PER_SECOND = Double.parseDouble(SystemProperties.getString(
+            ApiRateLimiter.class.getName() + ".writesPerSecond", "5"));
+
+    /** Pause applied on a 429 without a usable Retry-After header. */
+    static final long DEFAULT_RETRY_AFTER_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    static final int TOO_MANY_REQUESTS = 429;
+
+    public static final ApiRateLimiter INSTANCE = new ApiRateLimiter(READS_PER_SECOND, WRITES_PER_SECOND);
+
+    private final double readsPerSecond;
+    private final double writesPerSecond;
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    ApiRateLimiter(double readsPerSecond, double writesPerSecond) {
+        this.readsPerSecond = readsPerSecond;
+        this.writesPerSecond = writesPerSecond;
+    }
+
+    static boolean isWrite(String method) {
+        return !("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method));
+    }
+
+    private static String key(String tenantId, String regionId, boolean write) {
+        return tenantId + "|" + regionId + "|" + (write ? "write" : "read");
+    }
+
+    /**
+     * @return the bucket, or null if the budget is unlimited
+     */
+    TokenBucket getBucket(String tenantId, String regionId, boolean write) {
+        double rate = write ? writesPerSecond : readsPerSecond;
+        if (rate <= 0) {
+            return null;
+        }
+        // A burst of one second of calls
+        return buckets.computeIfAbsent(key(tenantId, regionId, write), k -> newBucket(rate, Math.max(1, rate)));
+    }
+
+    TokenBucket newBucket(double rate, double capacity) {
+        return new TokenBucket(rate, capacity);
+    }
+
+    /**
+     * Waits until a call may be sent.
+     *
+     * @param tenantId the tenancy id
+     * @param regionId the region id
+     * @param write whether the call changes resources
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire(String tenantId, String regionId, boolean write) throws InterruptedException {
+        TokenBucket bucket = getBucket(tenantId, regionId, write);
+        if (bucket == null) {
+            return;
+        }
+        long wait = bucket.reserve();
+        if (wait > 0) {
+            LOGGER.log(Level.FINEST, "Throttling OCI call for {0}ms", TimeUnit.NANOSECONDS.toMillis(wait));
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Adapts the rate to the response of a call.
+     *
+     * @param tenantId the tenancy id
+     * @param regionId the region id
+     * @param write whether the call changes resources
+     * @param status the HTTP status
+     * @param retryAfter the Retry-After header, or null
+     */
+    public void onResponse(String tenantId, String regionId, boolean write, int status, String retryAfter) {
+        TokenBucket bucket = getBucket(tenantId, regionId, write);
+        if (bucket == null) {
+            return;
+        }
+        if (status == TOO_MANY_REQUESTS) {
+            long delay = parseRetryAfter(retryAfter);
+            LOGGER.log(Level.INFO, "OCI throttled a {0} call in {1}, backing off for {2}ms",
+                    new Object[] {write ? "write" : "read", regionId, TimeUnit.NANOSECONDS.toMillis(delay)});
+            bucket.onThrottled(delay);
+        } else if (status < 400) {
+            bucket.onSuccess();
+        }
+    }
+
+    /**
+     * @param retryAfter delay in seconds or an HTTP date, or null
+     * @return the delay in nanoseconds
+     */
+    static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return DEFAULT_RETRY_AFTER_NANOS;
+        }
+        String value = retryAfter.trim();
+        try {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            // Not a number of seconds; try an HTTP date
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toNanos());
+        } catch (DateTimeParseException e) {
+            return DEFAULT_RETRY_AFTER_NANOS;
+        }
+    }
+
+    /**
+     * @param e a failure
+     * @return true if the failure, or one of its causes, is a 429 from OCI
+     */
+    public static boolean isThrottled(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof BmcException && ((BmcException) t).getStatusCode() == TOO_MANY_REQUESTS) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return a snapshot of every bucket, by tenancy, region and budget
+     */
+    public Map<String, TokenBucket.Stats> getStats() {
+        Map<String, TokenBucket.Stats> stats = new TreeMap<>();
+        buckets.forEach((key, bucket) -> stats.put(key, bucket.getStats()));
+        return stats;
+    }
+
+    /**
+     * Throttles the calls of one SDK client.
+     */
+    static final class Filter implements ClientRequestFilter, ClientResponseFilter {
+        private final ApiRateLimiter limiter;
+        private final String tenantId;
+        private final String regionId;
+
+        Filter(ApiRateLimiter limiter, String tenantId, String regionId) {
+            this.limiter = limiter;
+            this.tenantId = tenantId;
+            this.regionId = regionId;
+        }
+
+        @Override
+        public void filter(ClientRequestContext request) throws IOException {
+            try {
+                limiter.acquire(tenantId, regionId, isWrite(request.getMethod()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttling OCI call");
+            }
+        }
+
+        @Override
+        public void filter(ClientRequestContext request, ClientResponseContext response) throws IOException {
+            limiter.onResponse(tenantId, regionId, isWrite(request.getMethod()),
+                    response.getStatus(), response.getHeaderString("Retry-After"));
+        }
+    }
+}
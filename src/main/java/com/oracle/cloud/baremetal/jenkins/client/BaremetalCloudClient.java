@@ -29,6 +29,17 @@ public interface BaremetalCloudClient extends AutoCloseable {
      */
     Instance createInstance(String name, BaremetalCloudAgentTemplate template) throws Exception;
 
+    /**
+     * Creates an instance with the specified template and a cloud-init script
+     *
+     * @param template the instance configuration
+     * @param name instance name
+     * @param userData the cloud-init script run on first boot, or null
+     * @return Instance
+     * @throws Exception if an error occurs
+     */
+    Instance createInstance(String name, BaremetalCloudAgentTemplate template, String userData) throws Exception;
+
     /**
      * Creates an instance with the specified instance id
      *
@@ -91,6 +102,17 @@ public interface BaremetalCloudClient extends AutoCloseable {
      */
     List<Shape> getShapesList(String compartmentId, String availableDomain, String imageId) throws Exception;
 
+    /**
+     * Get the shapes with their OCPU and memory ranges, from one shape listing
+     *
+     * @param compartmentId the compartment id
+     * @param availableDomain available domain
+     * @param imageId image id
+     * @return shape catalog
+     * @throws Exception if an error occurs
+     */
+    ShapeCatalog getShapeCatalog(String compartmentId, String availableDomain, String imageId) throws Exception;
+
     /**
      * Get the OCPUs options
      *
@@ -178,6 +200,15 @@ public interface BaremetalCloudClient extends AutoCloseable {
      */
     Instance.LifecycleState getInstanceState(String instanceId) throws Exception;
 
+    /**
+     * Get all instances in a compartment, following every result page
+     *
+     * @param compartmentId the compartment id
+     * @return instance list
+     * @throws Exception if an error occurs
+     */
+    List<Instance> getInstancesList(String compartmentId) throws Exception;
+
     /**
      * Get a list of stopped instances on OCI
      *
@@ -1,6 +1,7 @@
 package com.oracle.cloud.baremetal.jenkins.client;
 
 import java.net.HttpURLConnection;
+import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 
 import org.glassfish.jersey.client.HttpUrlConnectorProvider.ConnectionFactory;
@@ -12,6 +13,28 @@ import com.oracle.bmc.http.DefaultConfigurator;
 import hudson.ProxyConfiguration;
 
 public class HTTPProxyConfigurator extends DefaultConfigurator {
+    private final ApiRateLimiter.Filter rateLimitFilter;
+
+    public HTTPProxyConfigurator() {
+        this.rateLimitFilter = null;
+    }
+
+    /**
+     * @param tenantId the tenancy whose calls are throttled by {@link ApiRateLimiter}
+     * @param regionId the region of the client
+     */
+    public HTTPProxyConfigurator(String tenantId, String regionId) {
+        this.rateLimitFilter = new ApiRateLimiter.Filter(ApiRateLimiter.INSTANCE, tenantId, regionId);
+    }
+
+    @Override
+    public void customizeClient(Client client) {
+        super.customizeClient(client);
+        if (rateLimitFilter != null) {
+            client.register(rateLimitFilter);
+        }
+    }
+
     @Override
     public void setConnectorProvider(ClientBuilder builder) {
         ClientConfig clientConfig = new ClientConfig();
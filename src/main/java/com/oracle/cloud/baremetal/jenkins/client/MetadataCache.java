@@ -0,0 +1,92 @@
+package com.oracle.cloud.baremetal.jenkins.client;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import jenkins.util.SystemProperties;
+
+/**
+ * Caches the OCI metadata listed by the configuration forms: compartments,
+ * availability domains, images, shapes, VCNs and subnets.
+ * <p>
+ * Entries are keyed by credentials id, which determines the tenancy and
+ * region, the kind of metadata and its arguments. They expire
+ * {@link #TTL_SECONDS} seconds after they are loaded and at most
+ * {@link #MAX_SIZE} entries are kept. Concurrent requests for a missing entry
+ * wait for a single load. Failed loads are not cached.
+ */
+public final class MetadataCache {
+    private static final Logger LOGGER = Logger.getLogger(MetadataCache.class.getName());
+
+    /** Lifetime of an entry, in seconds. Zero disables the cache. */
+    static final long TTL_SECONDS = SystemProperties.getLong(MetadataCache.class.getName() + ".ttlSeconds", 300L);
+
+    static final long MAX_SIZE = SystemProperties.getLong(MetadataCache.class.getName() + ".maxSize", 1000L);
+
+    public static final MetadataCache INSTANCE = new MetadataCache(MAX_SIZE, TimeUnit.SECONDS.toNanos(TTL_SECONDS), Ticker.systemTicker());
+
+    private final Cache<String, Object> cache;
+    private final boolean enabled;
+
+    MetadataCache(long maxSize, long ttlNanos, Ticker ticker) {
+        this.enabled = ttlNanos > 0;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Math.max(ttlNanos, 0), TimeUnit.NANOSECONDS)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * @param <T> the type of metadata
+     * @param credentialsId the credentials id
+     * @param kind the kind of metadata, for example {@code "images"}
+     * @param loader lists the metadata when it is not cached; must not return null
+     * @param args the arguments of the listing, for example the compartment id
+     * @return the cached or loaded metadata
+     * @throws Exception if the metadata cannot be loaded
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String credentialsId, String kind, Callable<T> loader, String... args) throws Exception {
+        if (!enabled) {
+            return loader.call();
+        }
+        String key = credentialsId + "|" + kind + "|" + Arrays.toString(args);
+        try {
+            return (T) cache.get(key, loader);
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Drops every entry, so that the next form fill lists the metadata again.
+     */
+    public void invalidate() {
+        if (cache.size() > 0) {
+            LOGGER.log(Level.FINE, "Dropping {0} cached OCI metadata entries", cache.size());
+            cache.invalidateAll();
+        }
+    }
+
+    long size() {
+        return cache.size();
+    }
+}
@@ -2,8 +2,11 @@ package com.oracle.cloud.baremetal.jenkins.client;
 
 import com.oracle.bmc.ClientConfiguration;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -49,89 +52,165 @@ public class SDKBaremetalCloudClient implements BaremetalCloudClient {
     private InstancePrincipalsAuthenticationDetailsProvider instancePrincipalsProvider;
     private boolean instancePrincipals;
     private String tenantId;
-
+    private final String credentialsId;
+    private final int maxAsyncThreads;
+    private final SDKClientRegistry registry;
+    private String endpoint;
+
+    /**
+     * Creates a client with private, unshared SDK clients which are released
+     * by {@link #close()}. Used for credentials which are not stored yet.
+     *
+     * @param provider the authentication provider
+     * @param regionId the region id
+     * @param maxAsyncThreads max number of threads for async clients
+     */
     public SDKBaremetalCloudClient(SimpleAuthenticationDetailsProvider provider, String regionId, int maxAsyncThreads) {
+        this(null, provider, regionId, maxAsyncThreads);
+    }
+
+    /**
+     * Creates a client sharing SDK clients with every other client for the
+     * same stored credentials.
+     *
+     * @param credentialsId the stored credentials id, or null to use private SDK clients
+     * @param provider the authentication provider
+     * @param regionId the region id
+     * @param maxAsyncThreads max number of threads for async clients
+     */
+    public SDKBaremetalCloudClient(String credentialsId, SimpleAuthenticationDetailsProvider provider, String regionId, int maxAsyncThreads) {
+        this.credentialsId = credentialsId;
         this.provider = provider;
         this.regionId = regionId;
+        this.maxAsyncThreads = maxAsyncThreads;
         this.clientConfig = ClientConfiguration.builder().maxAsyncThreads(maxAsyncThreads).build();
         this.tenantId = provider.getTenantId();
+        this.registry = credentialsId == null ? new SDKClientRegistry() : SDKClientRegistry.INSTANCE;
         ClientRuntime.setClientUserAgent("Oracle-Jenkins/" + Jenkins.VERSION);
     }
 
     public SDKBaremetalCloudClient(InstancePrincipalsAuthenticationDetailsProvider instancePrincipalsProvider, String regionId, int maxAsyncThreads, String instancePrincipalsTenantId) {
+        this(null, instancePrincipalsProvider, regionId, maxAsyncThreads, instancePrincipalsTenantId);
+    }
+
+    public SDKBaremetalCloudClient(String credentialsId, InstancePrincipalsAuthenticationDetailsProvider instancePrincipalsProvider, String regionId, int maxAsyncThreads, String instancePrincipalsTenantId) {
+        this.credentialsId = credentialsId;
         this.instancePrincipalsProvider = instancePrincipalsProvider;
         this.regionId = regionId;
+        this.maxAsyncThreads = maxAsyncThreads;
         this.instancePrincipals = true;
         this.tenantId = instancePrincipalsTenantId;
         this.clientConfig = ClientConfiguration.builder().maxAsyncThreads(maxAsyncThreads).build();
+        this.registry = credentialsId == null ? new SDKClientRegistry() : SDKClientRegistry.INSTANCE;
         ClientRuntime.setClientUserAgent("Oracle-Jenkins/" + Jenkins.VERSION);
     }
 
+    private <T extends AutoCloseable> T getSharedClient(Class<T> type, int asyncThreads, Supplier<T> creator) {
+        return registry.get(new SDKClientRegistry.Key(credentialsId, regionId, asyncThreads, type), creator);
+    }
 
-    private IdentityClient getIdentityClient() {
-        IdentityClient identityClient;
-        if (!instancePrincipals) {
-            identityClient = new IdentityClient(provider, null, new HTTPProxyConfigurator());
-        } else {
-            identityClient = new IdentityClient(instancePrincipalsProvider, null, new HTTPProxyConfigurator());
+    /**
+     * Sends the calls of the SDK clients created from now on to one endpoint
+     * instead of the OCI services of the region, as for a local fake server.
+     *
+     * @param endpoint the base URL, or null for the region endpoints
+     */
+    void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    private void overrideEndpoint(Consumer<String> setEndpoint) {
+        if (endpoint != null) {
+            setEndpoint.accept(endpoint);
         }
-        identityClient.setRegion(regionId);
-        return identityClient;
+    }
+
+    private HTTPProxyConfigurator newConfigurator() {
+        return new HTTPProxyConfigurator(tenantId, regionId);
+    }
+
+    private IdentityClient getIdentityClient() {
+        return getSharedClient(IdentityClient.class, 0, () -> {
+            IdentityClient identityClient;
+            if (!instancePrincipals) {
+                identityClient = new IdentityClient(provider, null, newConfigurator());
+            } else {
+                identityClient = new IdentityClient(instancePrincipalsProvider, null, newConfigurator());
+            }
+            identityClient.setRegion(regionId);
+            overrideEndpoint(identityClient::setEndpoint);
+            return identityClient;
+        });
     }
 
     private IdentityAsyncClient getIdentityAsyncClient() {
-        IdentityAsyncClient identityClient;
-        if (!instancePrincipals) {
-            identityClient = new IdentityAsyncClient(provider, clientConfig, new HTTPProxyConfigurator());
-        } else {
-            identityClient = new IdentityAsyncClient(instancePrincipalsProvider, clientConfig, new HTTPProxyConfigurator());
-        }
-        identityClient.setRegion(regionId);
-        return identityClient;
+        return getSharedClient(IdentityAsyncClient.class, maxAsyncThreads, () -> {
+            IdentityAsyncClient identityClient;
+            if (!instancePrincipals) {
+                identityClient = new IdentityAsyncClient(provider, clientConfig, newConfigurator());
+            } else {
+                identityClient = new IdentityAsyncClient(instancePrincipalsProvider, clientConfig, newConfigurator());
+            }
+            identityClient.setRegion(regionId);
+            overrideEndpoint(identityClient::setEndpoint);
+            return identityClient;
+        });
     }
 
     private ComputeClient getComputeClient() {
-        ComputeClient computeClient;
-        if (!instancePrincipals) {
-            computeClient = new ComputeClient(provider, null, new HTTPProxyConfigurator());
-        } else {
-            computeClient = new ComputeClient(instancePrincipalsProvider, null, new HTTPProxyConfigurator());
-        }
-        computeClient.setRegion(regionId);
-        return computeClient;
+        return getSharedClient(ComputeClient.class, 0, () -> {
+            ComputeClient computeClient;
+            if (!instancePrincipals) {
+                computeClient = new ComputeClient(provider, null, newConfigurator());
+            } else {
+                computeClient = new ComputeClient(instancePrincipalsProvider, null, newConfigurator());
+            }
+            computeClient.setRegion(regionId);
+            overrideEndpoint(computeClient::setEndpoint);
+            return computeClient;
+        });
     }
 
     private ComputeAsyncClient getComputeAsyncClient() {
-        ComputeAsyncClient computeClient;
-        if (!instancePrincipals) {
-            computeClient = new ComputeAsyncClient(provider, clientConfig, new HTTPProxyConfigurator());
-        } else {
-            computeClient = new ComputeAsyncClient(instancePrincipalsProvider, null, new HTTPProxyConfigurator());
-        }
-        computeClient.setRegion(regionId);
-        return computeClient;
+        return getSharedClient(ComputeAsyncClient.class, maxAsyncThreads, () -> {
+            ComputeAsyncClient computeClient;
+            if (!instancePrincipals) {
+                computeClient = new ComputeAsyncClient(provider, clientConfig, newConfigurator());
+            } else {
+                computeClient = new ComputeAsyncClient(instancePrincipalsProvider, null, newConfigurator());
+            }
+            computeClient.setRegion(regionId);
+            overrideEndpoint(computeClient::setEndpoint);
+            return computeClient;
+        });
     }
 
     private VirtualNetworkClient getVirtualNetworkClient() {
-        VirtualNetworkClient networkClient;
-        if (!instancePrincipals) {
-            networkClient = new VirtualNetworkClient(provider, null, new HTTPProxyConfigurator());
-        } else {
-            networkClient = new VirtualNetworkClient(instancePrincipalsProvider, null, new HTTPProxyConfigurator());
-        }
-        networkClient.setRegion(regionId);
-        return networkClient;
+        return getSharedClient(VirtualNetworkClient.class, 0, () -> {
+            VirtualNetworkClient networkClient;
+            if (!instancePrincipals) {
+                networkClient = new VirtualNetworkClient(provider, null, newConfigurator());
+            } else {
+                networkClient = new VirtualNetworkClient(instancePrincipalsProvider, null, newConfigurator());
+            }
+            networkClient.setRegion(regionId);
+            overrideEndpoint(networkClient::setEndpoint);
+            return networkClient;
+        });
     }
 
     private VirtualNetworkAsyncClient getVirtualNetworkAsyncClient() {
-        VirtualNetworkAsyncClient networkClient;
-        if (!instancePrincipals) {
-            networkClient = new VirtualNetworkAsyncClient(provider, clientConfig, new HTTPProxyConfigurator());
-        } else {
-            networkClient = new VirtualNetworkAsyncClient(instancePrincipalsProvider, null, new HTTPProxyConfigurator());
-        }
-        networkClient.setRegion(regionId);
-        return networkClient;
+        return getSharedClient(VirtualNetworkAsyncClient.class, maxAsyncThreads, () -> {
+            VirtualNetworkAsyncClient networkClient;
+            if (!instancePrincipals) {
+                networkClient = new VirtualNetworkAsyncClient(provider, clientConfig, newConfigurator());
+            } else {
+                networkClient = new VirtualNetworkAsyncClient(instancePrincipalsProvider, null, newConfigurator());
+            }
+            networkClient.setRegion(regionId);
+            overrideEndpoint(networkClient::setEndpoint);
+            return networkClient;
+        });
     }
 
     @Override
@@ -147,102 +226,28 @@ public class SDKBaremetalCloudClient implements BaremetalCloudClient {
         }catch(BmcException e){
             LOGGER.log(Level.FINE, "Failed to connect to Oracle Cloud Infrastructure. Please verify all credential information.", e);
             throw e;
-        }finally{
-            try {
-                identityClient.close();
-            } catch (Exception e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
         }
     }
 
     @Override
     public Instance createInstance(String name, BaremetalCloudAgentTemplate template) throws Exception {
+        return createInstance(name, template, null);
+    }
+
+    @Override
+    public Instance createInstance(String name, BaremetalCloudAgentTemplate template, String userData) throws Exception {
         Instance instance = null;
-        try (ComputeClient computeClient = getComputeClient()) {
+        ComputeClient computeClient = getComputeClient();
+        try {
 
-            String ad = template.getAvailableDomain();
-            String compartmentIdStr = template.getCompartmentId();
-            String subnetIdStr = template.getSubnet();
-            String imageIdStr = template.getImageId();
-            String shape = template.getShape();
             String sshPublicKey = template.getPublicKey();
-
-            boolean assignPublicIP = true;
-            if(template.getAssignPublicIP() != null) {
-                assignPublicIP = template.getAssignPublicIP();
-            }
-
-            Map<String, String> metadata = new HashMap<>();
-            metadata.put("ssh_authorized_keys", sshPublicKey);
-
-            GetSubnetResponse subnetResponse = getSubNet(subnetIdStr);
-            if(subnetResponse.getSubnet().getProhibitPublicIpOnVnic()) {
-                assignPublicIP=false;
-            }
-
-            LaunchInstanceShapeConfigDetails shapeConfig = null;
-            if (!template.getNumberOfOcpus().isEmpty() && !template.getMemoryInGBs().isEmpty()) {
-                shapeConfig = LaunchInstanceShapeConfigDetails.builder()
-                        .ocpus(Float.parseFloat(template.getNumberOfOcpus()))
-                        .memoryInGBs(Float.parseFloat(template.getMemoryInGBs()))
-                        .build();
-            }
-
-            List<String> nsgIds = new ArrayList<>();
-            if (template.getNsgIds() != null && !template.getNsgIds().isEmpty()) {
-                nsgIds = template.getNsgIds().stream()
-                        .map(BaremetalCloudNsgTemplate::getNsgId)
-                        .collect(Collectors.toList());
-            }
-
-            LaunchInstanceDetails.Builder instanceDetailsBuilder = LaunchInstanceDetails
-                    .builder()
-                    .availabilityDomain(ad)
-                    .compartmentId(compartmentIdStr)
-                    .createVnicDetails(
-                            CreateVnicDetails.builder()
-                                    .assignPublicIp(assignPublicIP)
-                                    .subnetId(subnetIdStr)
-                                    .nsgIds(nsgIds)
-                                    .build())
-                    .displayName(name)
-                    .imageId(imageIdStr)
-                    .metadata(metadata)
-                    .shape(shape)
-                    .shapeConfig(shapeConfig)
-                    .subnetId(subnetIdStr);
-
-            if(template.getTags() != null) {
-                Map<String,String> freeFormTags = new HashMap<>();
-                Map<String,Map<String,Object>> definedTags = new HashMap<>();
-                for (BaremetalCloudTagsTemplate tag : template.getTags()) {
-                    if (tag.getNamespace().equals("None")) {
-                        freeFormTags.put(tag.getKey(),tag.getValue());
-                    } else {
-                        Map<String,Object> definedTag = new HashMap<>();
-                        if (definedTags.containsKey(tag.getNamespace())) {
-                            definedTag = definedTags.get(tag.getNamespace());
-                        }
-                        definedTag.put(tag.getKey(),tag.getValue());
-                        definedTags.put(tag.getNamespace(), definedTag);
-                    }
-                }
-                if (!freeFormTags.isEmpty()) {
-                    instanceDetailsBuilder.freeformTags(freeFormTags);
-                }
-
-                if (!definedTags.isEmpty()) {
-                    instanceDetailsBuilder.definedTags(definedTags);
-                }
-            }
+            GetSubnetResponse subnetResponse = getSubNet(template.getSubnet());
+            LaunchInstanceDetails instanceDetails = newLaunchInstanceDetails(name, template, sshPublicKey, userData,
+                    subnetResponse.getSubnet().getProhibitPublicIpOnVnic());
 
             LaunchInstanceResponse response = computeClient.launchInstance(LaunchInstanceRequest
                     .builder()
-                    .launchInstanceDetails(
-                            instanceDetailsBuilder
-                                    .build())
+                    .launchInstanceDetails(instanceDetails)
                     .build());
 
             instance = response.getInstance();
@@ -262,26 +267,119 @@ public class SDKBaremetalCloudClient implements BaremetalCloudClient {
         }
     }
 
+    /**
+     * Assembles the launch request of an instance, without calling OCI.
+     *
+     * @param name the instance display name
+     * @param template the template
+     * @param sshPublicKey the public key authorized for SSH
+     * @param userData the cloud-init user data, or null
+     * @param prohibitPublicIp whether the subnet prohibits public IPs
+     * @return the launch details
+     */
+    static LaunchInstanceDetails newLaunchInstanceDetails(String name, BaremetalCloudAgentTemplate template,
+            String sshPublicKey, String userData, boolean prohibitPublicIp) {
+        String ad = template.getAvailableDomain();
+        String compartmentIdStr = template.getCompartmentId();
+        String subnetIdStr = template.getSubnet();
+        String imageIdStr = template.getImageId();
+        String shape = template.getShape();
+
+        boolean assignPublicIP = true;
+        if(template.getAssignPublicIP() != null) {
+            assignPublicIP = template.getAssignPublicIP();
+        }
+
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("ssh_authorized_keys", sshPublicKey);
+        if (userData != null) {
+            metadata.put("user_data", Base64.getEncoder().encodeToString(userData.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        if (prohibitPublicIp) {
+            assignPublicIP = false;
+        }
+
+        LaunchInstanceShapeConfigDetails shapeConfig = null;
+        if (!template.getNumberOfOcpus().isEmpty() && !template.getMemoryInGBs().isEmpty()) {
+            shapeConfig = LaunchInstanceShapeConfigDetails.builder()
+                    .ocpus(Float.parseFloat(template.getNumberOfOcpus()))
+                    .memoryInGBs(Float.parseFloat(template.getMemoryInGBs()))
+                    .build();
+        }
+
+        List<String> nsgIds = new ArrayList<>();
+        if (template.getNsgIds() != null && !template.getNsgIds().isEmpty()) {
+            nsgIds = template.getNsgIds().stream()
+                    .map(BaremetalCloudNsgTemplate::getNsgId)
+                    .collect(Collectors.toList());
+        }
+
+        LaunchInstanceDetails.Builder instanceDetailsBuilder = LaunchInstanceDetails
+                .builder()
+                .availabilityDomain(ad)
+                .compartmentId(compartmentIdStr)
+                .createVnicDetails(
+                        CreateVnicDetails.builder()
+                                .assignPublicIp(assignPublicIP)
+                                .subnetId(subnetIdStr)
+                                .nsgIds(nsgIds)
+                                .build())
+                .displayName(name)
+                .imageId(imageIdStr)
+                .metadata(metadata)
+                .shape(shape)
+                .shapeConfig(shapeConfig)
+                .subnetId(subnetIdStr);
+
+        if(template.getTags() != null) {
+            Map<String,String> freeFormTags = new HashMap<>();
+            Map<String,Map<String,Object>> definedTags = new HashMap<>();
+            for (BaremetalCloudTagsTemplate tag : template.getTags()) {
+                if (tag.getNamespace().equals("None")) {
+                    freeFormTags.put(tag.getKey(),tag.getValue());
+                } else {
+                    Map<String,Object> definedTag = new HashMap<>();
+                    if (definedTags.containsKey(tag.getNamespace())) {
+                        definedTag = definedTags.get(tag.getNamespace());
+                    }
+                    definedTag.put(tag.getKey(),tag.getValue());
+                    definedTags.put(tag.getNamespace(), definedTag);
+                }
+            }
+            if (!freeFormTags.isEmpty()) {
+                instanceDetailsBuilder.freeformTags(freeFormTags);
+            }
+
+            if (!definedTags.isEmpty()) {
+                instanceDetailsBuilder.definedTags(definedTags);
+            }
+        }
+
+        return instanceDetailsBuilder.build();
+    }
+
     @Override
     public void close() throws Exception {
-        // TODO Auto-generated method stub
-
+        // Shared SDK clients stay open for the next caller; only private ones are released.
+        if (registry != SDKClientRegistry.INSTANCE) {
+            registry.closeAll();
+        }
     }
 
 
     @Override
     public Instance waitForInstanceProvisioningToComplete(String instanceId) throws Exception {
-        try (ComputeClient computeClient = getComputeClient()) {
-            ComputeWaiters waiter = computeClient.getWaiters();
-            GetInstanceResponse response = waiter.forInstance(
-                            GetInstanceRequest
-                                    .builder()
-                                    .instanceId(instanceId)
-                                    .build(),
-                            Instance.LifecycleState.Running)
-                    .execute();
-            return response.getInstance();
-        }
+        ComputeClient computeClient = getComputeClient();
+        ComputeWaiters waiter = computeClient.getWaiters();
+        GetInstanceResponse response = waiter.forInstance(
+                        GetInstanceRequest
+                                .builder()
+                                .instanceId(instanceId)
+                                .build(),
+                        Instance.LifecycleState.Running)
+                .execute();
+        return response.getInstance();
     }
 
 
@@ -289,44 +387,42 @@ public class SDKBaremetalCloudClient implements BaremetalCloudClient {
     public String getInstanceIp(BaremetalCloudAgentTemplate template, String instanceId) throws Exception {
         String Ip = "";
 
-        try (ComputeClient computeClient = getComputeClient();
-             VirtualNetworkClient vcnClient = getVirtualNetworkClient()) {
-
-            String compartmentId = template.getCompartmentId();
-
-            // for the instance, list its vnic attachments
-            ListVnicAttachmentsResponse listVnicResponse =
-                    computeClient.listVnicAttachments(
-                            ListVnicAttachmentsRequest.builder()
-                                    .compartmentId(compartmentId)
-                                    .instanceId(instanceId)
-                                    .build());
-            // for each vnic attachment, get the vnic details from the virtualNetwork API
-            List<VnicAttachment> vnics = listVnicResponse.getItems();
-            for (VnicAttachment vnic : vnics) {
-
-                String vnicId = vnic.getVnicId();
-
-                GetVnicResponse getVnicResponse =
-                        vcnClient.getVnic(GetVnicRequest.builder().vnicId(vnicId).build());
-
-                // then check the vnic for a public IP or private IP
-                String publicIpLocal = getVnicResponse.getVnic().getPublicIp();
-                boolean usePublicIP = true;
-                if (template.getUsePublicIP() != null) {
-                    usePublicIP = template.getUsePublicIP();
+        ComputeClient computeClient = getComputeClient();
+        VirtualNetworkClient vcnClient = getVirtualNetworkClient();
+        String compartmentId = template.getCompartmentId();
+
+        // for the instance, list its vnic attachments
+        ListVnicAttachmentsResponse listVnicResponse =
+                computeClient.listVnicAttachments(
+                        ListVnicAttachmentsRequest.builder()
+                                .compartmentId(compartmentId)
+                                .instanceId(instanceId)
+                                .build());
+        // for each vnic attachment, get the vnic details from the virtualNetwork API
+        List<VnicAttachment> vnics = listVnicResponse.getItems();
+        for (VnicAttachment vnic : vnics) {
+
+            String vnicId = vnic.getVnicId();
+
+            GetVnicResponse getVnicResponse =
+                    vcnClient.getVnic(GetVnicRequest.builder().vnicId(vnicId).build());
+
+            // then check the vnic for a public IP or private IP
+            String publicIpLocal = getVnicResponse.getVnic().getPublicIp();
+            boolean usePublicIP = true;
+            if (template.getUsePublicIP() != null) {
+                usePublicIP = template.getUsePublicIP();
+            }
+            if (usePublicIP && publicIpLocal != null) {
+                LOGGER.info("Get public ip for instance " + instanceId + ": " + publicIpLocal);
+                Ip = publicIpLocal;
+            } else {
+                String privateIpLocal = getVnicResponse.getVnic().getPrivateIp();
+                if (privateIpLocal != null) {
+                    LOGGER.info("Get private ip for instance " + instanceId + ": " + privateIpLocal);
+                    Ip = privateIpLocal;
                 }
-                if (usePublicIP && publicIpLocal != null) {
-                    LOGGER.info("Get public ip for instance " + instanceId + ": " + publicIpLocal);
-                    Ip = publicIpLocal;
-                } else {
-                    String privateIpLocal = getVnicResponse.getVnic().getPrivateIp();
-                    if (privateIpLocal != null) {
-                        LOGGER.info("Get private ip for instance " + instanceId + ": " + privateIpLocal);
-                        Ip = privateIpLocal;
-                    }
 
-                }
             }
         }
         return Ip;
@@ -335,7 +431,8 @@ public class SDKBaremetalCloudClient implements BaremetalCloudClient {
     @Override
     public Tenancy getTenant() throws Exception {
 
-        try (IdentityClient identityClient = getIdentityClient()) {
+        IdentityClient identityClient = getIdentityClient();
+        try {
             GetTenancyResponse response =  identityClient.getTenancy(GetTenancyRequest.builder().tenancyId(tenantId).build());
             return response.getTenancy();
         } catch (Exception e) {
@@ -348,7 +445,8 @@ public class SDKBaremetalCloudClient implements BaremetalCloudClient {
     public List<Compartment> getCompartmentsList() throws Exception {
         List<Compartment> compartmentIds = new ArrayList<>();
         ListCompartmentsRequest.Builder builder;
-        try (IdentityAsyncClient identityAsyncClient = getIdentityAsyncClient()) {
+        IdentityAsyncClient identityAsyncClient = getIdentityAsyncClient();
+        try {
             builder = ListCompartmentsRequest.builder().compartmentId(tenantId).compartmentIdInSubtree(Boolean.TRUE);
             String nextPageToken = null;
             do {
@@ -369,7 +467,8 @@ public class SDKBaremetalCloudClient implements BaremetalCloudClient {
     public List<AvailabilityDomain> getAvailabilityDomainsList(String compartmentId) throws Exception {
         List<AvailabilityDomain> availabilityDomainsList = new ArrayList<>();
 
-        try (IdentityAsyncClient identityAsyncClient = getIdentityAsyncClient()) {
+        IdentityAsyncClient identityAsyncClient = getIdentityAsyncClient();
+        try {
             ListAvailabilityDomainsRequest request = ListAvailabilityDomainsRequest.builder()
                     .compartmentId(compartmentId)
                     .build();
@@ -386,7 +485,8 @@ public class SDKBaremetalCloudClient implements BaremetalCloudClient {
     public List<Image> getImagesList(String compartmentId) throws Exception {
         List<Image> imageList = new ArrayList<>();
 
-        try (ComputeAsyncClient computeAsyncClient = getComputeAsyncClient()) {
+        ComputeAsyncClient computeAsyncClient = getComputeAsyncClient();
+        try {
             ListImagesRequest.Builder builder = ListImagesRequest.builder().compartmentId(compartmentId);
             String nextPageToken = null;
             do {
@@ -406,7 +506,8 @@ public class SDKBaremetalCloudClient implements BaremetalCloudClient {
     public List<Shape> getShapesList(String compartmentId, String availableDomain, String imageId) throws Exception {
         List<Shape> shapeList = new ArrayList<>();
 
-        try (ComputeAsyncClient computeAsyncClient = getComputeAsyncClient()) {
+        ComputeAsyncClient computeAsyncClient = getComputeAsyncClient();
+        try {
             ListShapesRequest.Builder  builder = ListShapesRequest.builder()
                     .compartmentId(compartmentId)
                     .availabilityDomain(availableDomain)
@@ -425,39 +526,29 @@ public class SDKBaremetalCloudClient implements BaremetalCloudClient {
         return shapeList;
     }
 
-    public Integer[] getMinMaxOcpus(String compartmentId, String availableDomain, String imageId, String shape) throws Exception {
-        Integer[] ocpuOptions = new Integer[2];
-
-        getShapesList(compartmentId, availableDomain, imageId).stream()
-                .parallel()
-                .filter(n -> n.getShape().equals(shape))
-                .forEach(n -> {
-                    ocpuOptions[0] = n.getOcpuOptions().getMin().intValue();
-                    ocpuOptions[1] = n.getOcpuOptions().getMax().intValue();
-                });
+    @Override
+    public ShapeCatalog getShapeCatalog(String compartmentId, String availableDomain, String imageId) throws Exception {
+        return new ShapeCatalog(getShapesList(compartmentId, availableDomain, imageId));
+    }
 
-        return ocpuOptions;
+    @Override
+    public Integer[] getMinMaxOcpus(String compartmentId, String availableDomain, String imageId, String shape) throws Exception {
+        ShapeCatalog.Entry entry = getShapeCatalog(compartmentId, availableDomain, imageId).get(shape);
+        return entry == null ? new Integer[2] : entry.getOcpuRange();
     }
 
+    @Override
     public Integer[] getMinMaxMemory(String compartmentId, String availableDomain, String imageId, String shape) throws Exception {
-        Integer[] memoryOptions = new Integer[2];
-
-        getShapesList(compartmentId, availableDomain, imageId).stream()
-                .parallel()
-                .filter(n -> n.getShape().equals(shape))
-                .forEach(n -> {
-                    memoryOptions[0] = n.getMemoryOptions().getMinInGBs().intValue();
-                    memoryOptions[1] = n.getMemoryOptions().getMaxInGBs().intValue();
-                });
-
-        return memoryOptions;
+        ShapeCatalog.Entry entry = getShapeCatalog(compartmentId, availableDomain, imageId).get(shape);
+        return entry == null ? new Integer[2] : entry.getMemoryRange();
     }
 
     @Override
     public List<Vcn> getVcnList(String compartmentId) throws Exception {
         List<Vcn> vcnList = new ArrayList<>();
 
-        try (VirtualNetworkAsyncClient vnc = getVirtualNetworkAsyncClient()) {
+        VirtualNetworkAsyncClient vnc = getVirtualNetworkAsyncClient();
+        try {
             ListVcnsRequest.Builder builder = ListVcnsRequest.builder().compartmentId(compartmentId);
             String nextPageToken = null;
             do {
@@ -477,7 +568,8 @@ public class SDKBaremetalCloudClient implements BaremetalCloudClient {
     public List<Subnet> getSubNetList(String compartmentId,String vcnId) throws Exception {
         List<Subnet> subnetList = new ArrayList<>();
 
-        try (VirtualNetworkAsyncClient vnc = getVirtualNetworkAsyncClient()) {
+        VirtualNetworkAsyncClient vnc = getVirtualNetworkAsyncClient();
+        try {
             ListSubnetsRequest.Builder builder = ListSubnetsRequest.builder()
                     .compartmentId(compartmentId)
                     .vcnId(vcnId);
@@ -497,7 +589,8 @@ public class SDKBaremetalCloudClient implements BaremetalCloudClient {
 
     public List<NetworkSecurityGroup> getNsgIdsList(String compartmentId) throws Exception {
         List<NetworkSecurityGroup> nsgList = new ArrayList<>();
-        try (VirtualNetworkAsyncClient vnc = getVirtualNetworkAsyncClient()) {
+        VirtualNetworkAsyncClient vnc = getVirtualNetworkAsyncClient();
+        try {
             ListNetworkSecurityGroupsRequest request = ListNetworkSecurityGroupsRequest.builder()
                     .compartmentId(compartmentId)
                     .build();
@@ -512,7 +605,8 @@ public class SDKBaremetalCloudClient implements BaremetalCloudClient {
     @Override
     public GetSubnetResponse getSubNet(String subnetId) throws Exception {
         GetSubnetResponse subnetResponse;
-        try (VirtualNetworkClient vnc = getVirtualNetworkClient()) {
+        VirtualNetworkClient vnc = getVirtualNetworkClient();
+        try {
             subnetResponse = vnc.getSubnet(GetSubnetRequest.builder().subnetId(subnetId).build());
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, "Failed to get subnet list", e);
@@ -523,47 +617,73 @@ public class SDKBaremetalCloudClient implements BaremetalCloudClient {
 
     @Override
     public String terminateInstance(String instanceId) throws Exception {
-        try (ComputeClient computeClient = getComputeClient()) {
-            TerminateInstanceResponse response = computeClient
-                    .terminateInstance(TerminateInstanceRequest.builder().instanceId(instanceId).build());
-            return response.getOpcRequestId();
-        }
+        ComputeClient computeClient = getComputeClient();
+        TerminateInstanceResponse response = computeClient
+                .terminateInstance(TerminateInstanceRequest.builder().instanceId(instanceId).build());
+        return response.getOpcRequestId();
     }
 
     @Override
     public Instance waitForInstanceTerminationToComplete(String instanceId) throws Exception {
-        try (ComputeClient computeClient = getComputeClient()) {
-            ComputeWaiters waiter = computeClient.getWaiters();
-            GetInstanceResponse response = waiter.forInstance(
-                    GetInstanceRequest.builder()
-                            .instanceId(instanceId)
-                            .build(),
-                    Instance.LifecycleState.Stopping,
-                    Instance.LifecycleState.Stopped,
-                    Instance.LifecycleState.Terminating,
-                    Instance.LifecycleState.Terminated).execute();
-            return response.getInstance();
-        }
+        ComputeClient computeClient = getComputeClient();
+        ComputeWaiters waiter = computeClient.getWaiters();
+        GetInstanceResponse response = waiter.forInstance(
+                GetInstanceRequest.builder()
+                        .instanceId(instanceId)
+                        .build(),
+                Instance.LifecycleState.Stopping,
+                Instance.LifecycleState.Stopped,
+                Instance.LifecycleState.Terminating,
+                Instance.LifecycleState.Terminated).execute();
+        return response.getInstance();
     }
 
     @Override
     public Instance.LifecycleState getInstanceState(String instanceId) throws Exception {
-        try (ComputeClient computeClient = getComputeClient()) {
-            GetInstanceResponse response = computeClient.getInstance(GetInstanceRequest.builder().instanceId(instanceId).build());
-            return response.getInstance().getLifecycleState();
+        ComputeClient computeClient = getComputeClient();
+        GetInstanceResponse response = computeClient.getInstance(GetInstanceRequest.builder().instanceId(instanceId).build());
+        return response.getInstance().getLifecycleState();
+    }
+
+    @Override
+    public List<Instance> getInstancesList(String compartmentId) throws Exception {
+        List<Instance> instances = new ArrayList<>();
+        ComputeClient computeClient = getComputeClient();
+        try {
+            ListInstancesRequest.Builder builder = ListInstancesRequest.builder()
+                    .compartmentId(compartmentId)
+                    .limit(1000);
+            String nextPageToken = null;
+            do {
+                builder.page(nextPageToken);
+                ListInstancesResponse response = computeClient.listInstances(builder.build());
+                instances.addAll(response.getItems());
+                nextPageToken = response.getOpcNextPage();
+            } while (nextPageToken != null);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to get Instance list", e);
+            throw e;
         }
+        return instances;
     }
 
     @Override
     public List<Instance> getStoppedInstances(String compartmentId, String availableDomain) throws Exception {
         List<Instance> instances = new ArrayList<>();
-        try (ComputeClient computeClient = getComputeClient()) {
-            ListInstancesResponse response = computeClient.listInstances(ListInstancesRequest.builder()
+        ComputeClient computeClient = getComputeClient();
+        try {
+            ListInstancesRequest.Builder builder = ListInstancesRequest.builder()
                     .compartmentId(compartmentId)
                     .availabilityDomain(availableDomain)
                     .lifecycleState(Instance.LifecycleState.Stopped)
-                    .build());
-            instances.addAll(response.getItems());
+                    .limit(1000);
+            String nextPageToken = null;
+            do {
+                builder.page(nextPageToken);
+                ListInstancesResponse response = computeClient.listInstances(builder.build());
+                instances.addAll(response.getItems());
+                nextPageToken = response.getOpcNextPage();
+            } while (nextPageToken != null);
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, "Failed to get Stopped list", e);
             throw e;
@@ -573,7 +693,8 @@ public class SDKBaremetalCloudClient implements BaremetalCloudClient {
 
     @Override
     public String stopInstance(String instanceId) throws Exception {
-        try (ComputeClient computeClient = getComputeClient()) {
+        ComputeClient computeClient = getComputeClient();
+        try {
             InstanceActionRequest.Builder builder = InstanceActionRequest.builder()
                     .action("STOP")
                     .instanceId(instanceId);
@@ -587,7 +708,8 @@ public class SDKBaremetalCloudClient implements BaremetalCloudClient {
 
     @Override
     public Instance startInstance(String instanceId) throws Exception {
-        try (ComputeClient computeClient = getComputeClient()) {
+        ComputeClient computeClient = getComputeClient();
+        try {
             InstanceActionRequest.Builder builder = InstanceActionRequest.builder()
                     .action("START")
                     .instanceId(instanceId);
@@ -601,7 +723,8 @@ public class SDKBaremetalCloudClient implements BaremetalCloudClient {
     @Override
     public List<TagNamespaceSummary> getTagNamespaces(String compartmentId) throws Exception {
         List<TagNamespaceSummary> tagNamespaces = new ArrayList<>();
-        try (IdentityAsyncClient identityAsyncClient = getIdentityAsyncClient()) {
+        IdentityAsyncClient identityAsyncClient = getIdentityAsyncClient();
+        try {
             ListTagNamespacesRequest.Builder builder = ListTagNamespacesRequest.builder()
                     .compartmentId(compartmentId)
                     .includeSubcompartments(Boolean.TRUE);
@@ -3,21 +3,117 @@ package com.oracle.cloud.baremetal.jenkins.client;
 import com.oracle.bmc.auth.InstancePrincipalsAuthenticationDetailsProvider;
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
 import com.oracle.bmc.auth.SimpleAuthenticationDetailsProvider;
 import com.oracle.cloud.baremetal.jenkins.BaremetalCloud;
 import com.oracle.cloud.baremetal.jenkins.credentials.BaremetalCloudCredentials;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import jenkins.util.SystemProperties;
+
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Creates {@link SDKBaremetalCloudClient} instances for stored credentials.
+ * <p>
+ * Clients are cached per credentials id and async thread count so that the
+ * credentials lookup, secret decryption, key parsing and instance principals
+ * token bootstrap are not repeated on every call. Cached clients expire after
+ * {@link #CACHE_TTL_MINUTES} minutes and are dropped as soon as the credentials
+ * store is saved.
+ * <p>
+ * Cache hits do not lock. On a miss, the first caller creates the client
+ * outside of any map lock and concurrent callers for the same key wait for it.
+ */
 public class SDKBaremetalCloudClientFactory implements BaremetalCloudClientFactory {
-    public static final BaremetalCloudClientFactory INSTANCE = new SDKBaremetalCloudClientFactory();
+    public static final SDKBaremetalCloudClientFactory INSTANCE = new SDKBaremetalCloudClientFactory();
     private static final Logger LOGGER = Logger.getLogger(SDKBaremetalCloudClient.class.getName());
 
-    private SDKBaremetalCloudClientFactory() {}
+    /** Lifetime of a cached client, in minutes. Zero disables the cache. */
+    static final long CACHE_TTL_MINUTES = SystemProperties.getLong(
+            SDKBaremetalCloudClientFactory.class.getName() + ".cacheTtlMinutes", 30L);
+
+    private final ConcurrentMap<String, CachedClient> clients = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+
+    private SDKBaremetalCloudClientFactory() {
+        this(TimeUnit.MINUTES.toNanos(CACHE_TTL_MINUTES));
+    }
+
+    SDKBaremetalCloudClientFactory(long ttlNanos) {
+        this.ttlNanos = ttlNanos;
+    }
 
     @Override
     public BaremetalCloudClient createClient (String credentialsId, int maxAsyncThreads) {
+        if (ttlNanos <= 0) {
+            return newClient(credentialsId, maxAsyncThreads);
+        }
+        String key = credentialsId + ":" + maxAsyncThreads;
+        while (true) {
+            long now = nanoTime();
+            CachedClient cached = clients.get(key);
+            if (cached != null && now - cached.createdNanos < ttlNanos) {
+                return cached.join();
+            }
+            // Only the caller which installs the entry creates the client.
+            CachedClient created = new CachedClient(now);
+            boolean installed = cached == null
+                    ? clients.putIfAbsent(key, created) == null
+                    : clients.replace(key, cached, created);
+            if (installed) {
+                return create(key, created, credentialsId, maxAsyncThreads);
+            }
+        }
+    }
+
+    private BaremetalCloudClient create(String key, CachedClient created, String credentialsId, int maxAsyncThreads) {
+        BaremetalCloudClient client;
+        try {
+            client = newClient(credentialsId, maxAsyncThreads);
+        } catch (RuntimeException e) {
+            clients.remove(key, created);
+            created.future.completeExceptionally(e);
+            throw e;
+        }
+        if (client == null) {
+            // Unresolvable credentials are not cached.
+            clients.remove(key, created);
+        }
+        created.future.complete(client);
+        return client;
+    }
+
+    /**
+     * Drops every cached client. The next call to {@link #createClient} resolves
+     * the credentials again.
+     */
+    public void invalidate() {
+        if (!clients.isEmpty()) {
+            LOGGER.log(Level.FINE, "Dropping {0} cached OCI clients", clients.size());
+            clients.clear();
+        }
+    }
+
+    int size() {
+        return clients.size();
+    }
+
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    BaremetalCloudClient newClient(String credentialsId, int maxAsyncThreads) {
         BaremetalCloudCredentials credentials = (BaremetalCloudCredentials) BaremetalCloud.matchCredentials(BaremetalCloudCredentials.class,credentialsId);
         if (credentials != null) {
             if (!credentials.isInstancePrincipals()) {
@@ -28,17 +124,53 @@ public class SDKBaremetalCloudClientFactory implements BaremetalCloudClientFacto
                     .tenantId(credentials.getTenantId())
                     .userId(credentials.getUserId())
                     .build();
-                return new SDKBaremetalCloudClient(provider, credentials.getRegionId(), maxAsyncThreads);
+                return new SDKBaremetalCloudClient(credentialsId, provider, credentials.getRegionId(), maxAsyncThreads);
             } else {
                 try {
-                    InstancePrincipalsAuthenticationDetailsProvider provider = InstancePrincipalsAuthenticationDetailsProvider.builder().build(); 
-                    return new SDKBaremetalCloudClient(provider, credentials.getRegionId(), maxAsyncThreads, credentials.getTenantId());
+                    InstancePrincipalsAuthenticationDetailsProvider provider = InstancePrincipalsAuthenticationDetailsProvider.builder().build();
+                    return new SDKBaremetalCloudClient(credentialsId, provider, credentials.getRegionId(), maxAsyncThreads, credentials.getTenantId());
                 } catch (Exception e){
                     LOGGER.log(Level.INFO,"Failed to use Calling Services from an Instance");
-                } 
+                }
             }
         }
         LOGGER.log(Level.INFO,"Failed to create client!");
         return null;
     }
+
+    private static final class CachedClient {
+        final CompletableFuture<BaremetalCloudClient> future = new CompletableFuture<>();
+        final long createdNanos;
+
+        CachedClient(long createdNanos) {
+            this.createdNanos = createdNanos;
+        }
+
+        /**
+         * @return the client, once its creator has made it
+         */
+        BaremetalCloudClient join() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+    }
+
+    /**
+     * Drops cached clients, cached metadata and shared SDK clients when the global credentials
+     * store is saved, so that edited or removed credentials take effect at once.
+     */
+    @Extension
+    public static class CredentialsListener extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof SystemCredentialsProvider) {
+                INSTANCE.invalidate();
+                MetadataCache.INSTANCE.invalidate();
+                SDKClientRegistry.INSTANCE.invalidateAll();
+            }
+        }
+    }
 }
@@ -0,0 +1,177 @@
+package com.oracle.cloud.baremetal.jenkins.client;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.Extension;
+import hudson.ProxyConfiguration;
+import hudson.XmlFile;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import jenkins.util.Timer;
+
+/**
+ * Registry of long-lived OCI SDK clients shared by all {@link SDKBaremetalCloudClient}
+ * instances using the same credentials and region.
+ * <p>
+ * SDK clients are thread-safe and each one owns a Jersey client with its own
+ * connection pool, so reusing them keeps keep-alive connections and TLS sessions
+ * instead of paying a new handshake for every API call.
+ * <p>
+ * Clients are dropped when the credentials store or the Jenkins proxy
+ * configuration is saved, which is the only way either changes, so lookups
+ * do not check for changes. Dropped clients are closed after a grace period
+ * so that calls already in flight are not interrupted.
+ */
+public class SDKClientRegistry {
+    private static final Logger LOGGER = Logger.getLogger(SDKClientRegistry.class.getName());
+
+    public static final SDKClientRegistry INSTANCE = new SDKClientRegistry();
+
+    /** Time given to in-flight calls before a dropped client is closed. */
+    private static final long RETIRE_DELAY_SECONDS = TimeUnit.MINUTES.toSeconds(5);
+
+    private final ConcurrentMap<Key, AutoCloseable> clients = new ConcurrentHashMap<>();
+
+    SDKClientRegistry() {}
+
+    /**
+     * Returns the shared client for the key, creating it on first use.
+     *
+     * @param key the client key
+     * @param creator creates a new client if none is registered for the key
+     * @param <T> the SDK client type
+     * @return the shared client
+     */
+    <T extends AutoCloseable> T get(Key key, Supplier<T> creator) {
+        AutoCloseable client = clients.get(key);
+        if (client != null) {
+            return key.type.cast(client);
+        }
+        return key.type.cast(clients.computeIfAbsent(key, k -> {
+            LOGGER.log(Level.FINE, "Creating shared OCI client {0}", k);
+            return creator.get();
+        }));
+    }
+
+    /**
+     * Drops every client created for the given credentials.
+     *
+     * @param credentialsId the credentials id
+     */
+    public void invalidate(String credentialsId) {
+        retire(e -> Objects.equals(e.credentialsId, credentialsId));
+    }
+
+    /**
+     * Drops every registered client.
+     */
+    public void invalidateAll() {
+        retire(e -> true);
+    }
+
+    /**
+     * Closes every registered client immediately. Used by clients which own
+     * a private registry.
+     */
+    void closeAll() {
+        List<AutoCloseable> closing = new ArrayList<>(clients.values());
+        clients.clear();
+        close(closing);
+    }
+
+    int size() {
+        return clients.size();
+    }
+
+    private void retire(Predicate<Key> filter) {
+        List<AutoCloseable> retired = new ArrayList<>();
+        for (Iterator<Map.Entry<Key, AutoCloseable>> it = clients.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Key, AutoCloseable> entry = it.next();
+            if (filter.test(entry.getKey())) {
+                it.remove();
+                retired.add(entry.getValue());
+            }
+        }
+        if (!retired.isEmpty()) {
+            LOGGER.log(Level.FINE, "Retiring {0} shared OCI clients", retired.size());
+            Timer.get().schedule(() -> close(retired), RETIRE_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void close(List<AutoCloseable> closing) {
+        for (AutoCloseable client : closing) {
+            try {
+                client.close();
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Failed to close OCI client", e);
+            }
+        }
+    }
+
+    /**
+     * Identifies a shared SDK client.
+     */
+    static final class Key {
+        final String credentialsId;
+        final String regionId;
+        final int maxAsyncThreads;
+        final Class<? extends AutoCloseable> type;
+
+        Key(String credentialsId, String regionId, int maxAsyncThreads, Class<? extends AutoCloseable> type) {
+            this.credentialsId = credentialsId;
+            this.regionId = regionId;
+            this.maxAsyncThreads = maxAsyncThreads;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return maxAsyncThreads == other.maxAsyncThreads
+                    && Objects.equals(credentialsId, other.credentialsId)
+                    && Objects.equals(regionId, other.regionId)
+                    && Objects.equals(type, other.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(credentialsId, regionId, maxAsyncThreads, type);
+        }
+
+        @Override
+        public String toString() {
+            return type.getSimpleName() + "[" + credentialsId + ", " + regionId + "]";
+        }
+    }
+
+    /**
+     * Drops shared clients when the proxy configuration changes. Credentials
+     * changes are handled by {@link SDKBaremetalCloudClientFactory.CredentialsListener}.
+     */
+    @Extension
+    public static class ConfigurationListener extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof ProxyConfiguration) {
+                INSTANCE.invalidateAll();
+            }
+        }
+    }
+}
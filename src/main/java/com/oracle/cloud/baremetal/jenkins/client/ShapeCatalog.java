@@ -0,0 +1,101 @@
+package com.oracle.cloud.baremetal.jenkins.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.oracle.bmc.core.model.Shape;
+import com.oracle.bmc.core.model.ShapeMemoryOptions;
+import com.oracle.bmc.core.model.ShapeOcpuOptions;
+
+/**
+ * The shapes available for an image in an availability domain, with their
+ * OCPU and memory ranges, built from one shape listing.
+ */
+public final class ShapeCatalog {
+    /**
+     * An immutable shape descriptor. The ranges are null for shapes which
+     * are not flexible.
+     */
+    public static final class Entry {
+        private final String name;
+        private final Integer minOcpus;
+        private final Integer maxOcpus;
+        private final Integer minMemoryInGBs;
+        private final Integer maxMemoryInGBs;
+
+        Entry(String name, Integer minOcpus, Integer maxOcpus, Integer minMemoryInGBs, Integer maxMemoryInGBs) {
+            this.name = name;
+            this.minOcpus = minOcpus;
+            this.maxOcpus = maxOcpus;
+            this.minMemoryInGBs = minMemoryInGBs;
+            this.maxMemoryInGBs = maxMemoryInGBs;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return an array with min (array[0]) and max (array[1]) OCPUs
+         */
+        public Integer[] getOcpuRange() {
+            return new Integer[] { minOcpus, maxOcpus };
+        }
+
+        /**
+         * @return an array with min (array[0]) and max (array[1]) memory in GBs
+         */
+        public Integer[] getMemoryRange() {
+            return new Integer[] { minMemoryInGBs, maxMemoryInGBs };
+        }
+    }
+
+    private final Map<String, Entry> entries;
+    private final List<Entry> shapes;
+
+    /**
+     * @param shapes the listed shapes; the first shape of each name is kept
+     */
+    public ShapeCatalog(List<Shape> shapes) {
+        Map<String, Entry> map = new LinkedHashMap<>();
+        for (Shape shape : shapes) {
+            if (shape.getShape() != null && !map.containsKey(shape.getShape())) {
+                map.put(shape.getShape(), toEntry(shape));
+            }
+        }
+        this.entries = Collections.unmodifiableMap(map);
+        this.shapes = Collections.unmodifiableList(new ArrayList<>(map.values()));
+    }
+
+    private static Entry toEntry(Shape shape) {
+        ShapeOcpuOptions ocpus = shape.getOcpuOptions();
+        ShapeMemoryOptions memory = shape.getMemoryOptions();
+        return new Entry(shape.getShape(),
+                ocpus == null ? null : toInteger(ocpus.getMin()),
+                ocpus == null ? null : toInteger(ocpus.getMax()),
+                memory == null ? null : toInteger(memory.getMinInGBs()),
+                memory == null ? null : toInteger(memory.getMaxInGBs()));
+    }
+
+    private static Integer toInteger(Float value) {
+        return value == null ? null : value.intValue();
+    }
+
+    /**
+     * @return the shapes, in listing order
+     */
+    public List<Entry> getShapes() {
+        return shapes;
+    }
+
+    /**
+     * @param name the shape name
+     * @return the shape, or null if it is not available
+     */
+    public Entry get(String name) {
+        return entries.get(name);
+    }
+}
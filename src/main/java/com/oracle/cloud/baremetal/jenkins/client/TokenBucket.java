@@ -0,0 +1,146 @@
+package com.oracle.cloud.baremetal.jenkins.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket whose rate adapts to throttling: the rate is halved, down to
+ * a floor, whenever OCI answers 429 and grows back by a small step after each
+ * successful call. A Retry-After delay pauses the bucket entirely.
+ * <p>
+ * Callers reserve a token and wait for the returned delay outside the lock,
+ * so waiting callers queue up in reservation order.
+ */
+public class TokenBucket {
+    /** Lowest rate the bucket shrinks to, as a fraction of its configured rate. */
+    static final double MIN_RATE_FRACTION = 0.1;
+
+    /** Rate regained after each successful call, as a fraction of the configured rate. */
+    static final double RECOVERY_FRACTION = 0.02;
+
+    private final double maxRate;
+    private final double capacity;
+
+    private double rate;
+    private double tokens;
+    private long refilledNanos;
+    private long pausedUntilNanos;
+
+    private long acquired;
+    private long waits;
+    private long waitNanos;
+    private long maxWaitNanos;
+    private long throttled;
+
+    /**
+     * @param permitsPerSecond the configured rate
+     * @param capacity the burst size
+     */
+    TokenBucket(double permitsPerSecond, double capacity) {
+        this.maxRate = permitsPerSecond;
+        this.capacity = capacity;
+        this.rate = permitsPerSecond;
+        this.tokens = capacity;
+        this.refilledNanos = nanoTime();
+    }
+
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Takes a token, possibly ahead of time.
+     *
+     * @return the time to wait before the call may be sent, in nanoseconds
+     */
+    synchronized long reserve() {
+        long now = nanoTime();
+        refill(now);
+        tokens -= 1;
+        long wait = 0;
+        if (tokens < 0) {
+            wait = (long) Math.ceil(-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+        }
+        wait = Math.max(wait, pausedUntilNanos - now);
+        acquired++;
+        if (wait > 0) {
+            waits++;
+            waitNanos += wait;
+            maxWaitNanos = Math.max(maxWaitNanos, wait);
+        }
+        return Math.max(wait, 0);
+    }
+
+    private void refill(long now) {
+        long elapsed = now - refilledNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + rate * elapsed / TimeUnit.SECONDS.toNanos(1));
+            refilledNanos = now;
+        }
+    }
+
+    /**
+     * Halves the rate and pauses the bucket after a 429 response.
+     *
+     * @param retryAfterNanos the delay asked by the server, or 0
+     */
+    synchronized void onThrottled(long retryAfterNanos) {
+        long now = nanoTime();
+        refill(now);
+        throttled++;
+        rate = Math.max(maxRate * MIN_RATE_FRACTION, rate / 2);
+        tokens = Math.min(tokens, 0);
+        if (retryAfterNanos > 0) {
+            pausedUntilNanos = Math.max(pausedUntilNanos, now + retryAfterNanos);
+        }
+    }
+
+    /**
+     * Grows the rate back towards the configured rate after a successful call.
+     */
+    synchronized void onSuccess() {
+        if (rate < maxRate) {
+            refill(nanoTime());
+            rate = Math.min(maxRate, rate + maxRate * RECOVERY_FRACTION);
+        }
+    }
+
+    synchronized Stats getStats() {
+        refill(nanoTime());
+        return new Stats(rate, maxRate, capacity, tokens, acquired, waits, waitNanos, maxWaitNanos, throttled);
+    }
+
+    /**
+     * A snapshot of the bucket state and counters.
+     */
+    public static final class Stats {
+        public final double rate;
+        public final double maxRate;
+        public final double capacity;
+        public final double tokens;
+        public final long acquired;
+        public final long waits;
+        public final long waitNanos;
+        public final long maxWaitNanos;
+        public final long throttled;
+
+        Stats(double rate, double maxRate, double capacity, double tokens, long acquired, long waits,
+                long waitNanos, long maxWaitNanos, long throttled) {
+            this.rate = rate;
+            this.maxRate = maxRate;
+            this.capacity = capacity;
+            this.tokens = tokens;
+            this.acquired = acquired;
+            this.waits = waits;
+            this.waitNanos = waitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.throttled = throttled;
+        }
+
+        /**
+         * @return the share of the burst in use, from 0 to 1; above 1 when callers are queued
+         */
+        public double getOccupancy() {
+            return (capacity - tokens) / capacity;
+        }
+    }
+}
@@ -103,6 +103,14 @@ public final class BaremetalCloudCredentialsImpl extends BaseStandardCredentials
     @Extension
     public static class DescriptorImpl extends BaseStandardCredentials.BaseStandardCredentialsDescriptor {
 
+        private static void closeClient(BaremetalCloudClient client) {
+            try {
+                client.close();
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Failed to close test connection client", e);
+            }
+        }
+
         @Override
         public String getDisplayName() {
             return "Oracle Cloud Infrastructure Credentials";
@@ -131,6 +139,8 @@ public final class BaremetalCloudCredentialsImpl extends BaseStandardCredentials
                 }catch(BmcException e){
                     LOGGER.log(Level.INFO, "Failed to connect to Oracle Cloud Infrastructure. Please verify all the credential information entered.", e);
                     return FormValidation.error(com.oracle.cloud.baremetal.jenkins.Messages.BaremetalCloud_testConnection_unauthorized());
+                }finally{
+                    closeClient(client);
                 }
             } else {
                 InstancePrincipalsAuthenticationDetailsProvider provider = InstancePrincipalsAuthenticationDetailsProvider.builder().build(); 
@@ -156,6 +166,8 @@ public final class BaremetalCloudCredentialsImpl extends BaseStandardCredentials
                 }catch(BmcException e){
                     LOGGER.log(Level.INFO, "Failed to connect to Oracle Cloud Infrastructure using Instance Principals. Please verify all the credential information entered.", e);
                     return FormValidation.error(com.oracle.cloud.baremetal.jenkins.Messages.BaremetalCloud_testConnection_unauthorized());
+                }finally{
+                    closeClient(client);
                 }
             }
         }
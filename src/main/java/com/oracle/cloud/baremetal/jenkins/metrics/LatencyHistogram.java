@@ -0,0 +1,137 @@
+package com.oracle.cloud.baremetal.jenkins.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies with exponential buckets: bucket
+ * {@code i} counts the values up to {@code 2^i} milliseconds, and the last
+ * bucket counts everything longer.
+ * <p>
+ * Recording only increments {@link LongAdder}s, so concurrent provisioning
+ * threads never contend on a lock. A snapshot taken while values are being
+ * recorded may be off by the values in flight.
+ */
+public final class LatencyHistogram {
+    /** Bucket bounds from 1ms to 2^21ms, about 35 minutes. */
+    static final int BOUNDED_BUCKETS = 22;
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDED_BUCKETS + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param millis a latency in milliseconds
+     * @return the index of the bucket counting the latency
+     */
+    static int getBucket(long millis) {
+        if (millis <= 1) {
+            return 0;
+        }
+        return Math.min(BOUNDED_BUCKETS, 64 - Long.numberOfLeadingZeros(millis - 1));
+    }
+
+    /**
+     * @param bucket a bucket index
+     * @return the largest latency counted by the bucket in milliseconds, or
+     *         {@link Long#MAX_VALUE} for the last bucket
+     */
+    static long getUpperBoundMillis(int bucket) {
+        return bucket >= BOUNDED_BUCKETS ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    /**
+     * @param nanos a latency in nanoseconds; negative values count as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets[getBucket(TimeUnit.NANOSECONDS.toMillis(value))].increment();
+        count.increment();
+        sumNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    public Snapshot getSnapshot() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return new Snapshot(counts, count.sum(), sumNanos.sum(), maxNanos.get());
+    }
+
+    /**
+     * The counts of a histogram at one point in time.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        public final long count;
+        public final long sumNanos;
+        public final long maxNanos;
+
+        Snapshot(long[] counts, long count, long sumNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.sumNanos = sumNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public int getBucketCount() {
+            return counts.length;
+        }
+
+        /**
+         * @param bucket a bucket index
+         * @return the largest latency counted by the bucket in milliseconds,
+         *         or {@link Long#MAX_VALUE} for the last bucket
+         */
+        public long getUpperBoundMillis(int bucket) {
+            return LatencyHistogram.getUpperBoundMillis(bucket);
+        }
+
+        /**
+         * @param bucket a bucket index
+         * @return the number of latencies up to the bound of the bucket, as
+         *         Prometheus expects
+         */
+        public long getCumulativeCount(int bucket) {
+            long total = 0;
+            for (int i = 0; i <= bucket; i++) {
+                total += counts[i];
+            }
+            return total;
+        }
+
+        /**
+         * @param quantile a quantile between 0 and 1
+         * @return the upper bound in milliseconds of the bucket containing the
+         *         quantile, capped by the maximum, or 0 if nothing was recorded
+         */
+        public long getQuantileMillis(double quantile) {
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            long maxMillis = TimeUnit.NANOSECONDS.toMillis(maxNanos);
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(getUpperBoundMillis(i), maxMillis);
+                }
+            }
+            return maxMillis;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.oracle.cloud.baremetal.jenkins.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Per-template, per-stage provisioning latencies and success, failure and
+ * retry counters. Stages are timed with a {@link Timer}; every measurement
+ * is also passed to the {@link ProvisioningMetricsListener} extensions.
+ */
+public class ProvisioningMetrics {
+    private static final Logger LOGGER = Logger.getLogger(ProvisioningMetrics.class.getName());
+
+    public static final ProvisioningMetrics INSTANCE = new ProvisioningMetrics(ProvisioningMetrics::getListeners);
+
+    public enum Outcome {
+        SUCCESS, FAILURE, RETRY
+    }
+
+    private final ConcurrentMap<String, ConcurrentMap<String, StageMetrics>> templates = new ConcurrentHashMap<>();
+    private final Supplier<Iterable<ProvisioningMetricsListener>> listeners;
+
+    ProvisioningMetrics(Supplier<Iterable<ProvisioningMetricsListener>> listeners) {
+        this.listeners = listeners;
+    }
+
+    private static Iterable<ProvisioningMetricsListener> getListeners() {
+        // Not running in Jenkins, as in unit tests.
+        if (Jenkins.getInstanceOrNull() == null) {
+            return Collections.emptyList();
+        }
+        return ProvisioningMetricsListener.all();
+    }
+
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * @param cloudName the cloud name
+     * @param templateId the template id
+     * @return the name under which the metrics of the template are recorded
+     */
+    public static String getTemplateName(String cloudName, int templateId) {
+        return getCloudPrefix(cloudName) + templateId;
+    }
+
+    /**
+     * @param cloudName the cloud name
+     * @return the prefix of the names of the templates of the cloud
+     */
+    public static String getCloudPrefix(String cloudName) {
+        return cloudName + "/";
+    }
+
+    private StageMetrics getStage(String template, String stage) {
+        return templates.computeIfAbsent(template, t -> new ConcurrentHashMap<>())
+                .computeIfAbsent(stage, s -> new StageMetrics());
+    }
+
+    /**
+     * Starts timing a stage.
+     *
+     * @param template the template name
+     * @param stage the stage name
+     * @return the timer, to be stopped once
+     */
+    public Timer start(String template, String stage) {
+        return new Timer(template, stage, nanoTime());
+    }
+
+    /**
+     * Records a stage which was timed elsewhere.
+     *
+     * @param template the template name
+     * @param stage the stage name
+     * @param success whether the stage succeeded
+     * @param nanos the duration of the stage
+     */
+    public void record(String template, String stage, boolean success, long nanos) {
+        StageMetrics metrics = getStage(template, stage);
+        metrics.latency.record(nanos);
+        Outcome outcome = success ? Outcome.SUCCESS : Outcome.FAILURE;
+        (success ? metrics.successes : metrics.failures).increment();
+        notify(template, stage, outcome, nanos);
+    }
+
+    /**
+     * @param template the template name
+     * @param stage the stage name
+     * @param retries the number of retries within the stage
+     */
+    public void recordRetries(String template, String stage, int retries) {
+        if (retries <= 0) {
+            return;
+        }
+        getStage(template, stage).retries.add(retries);
+        for (int i = 0; i < retries; i++) {
+            notify(template, stage, Outcome.RETRY, 0);
+        }
+    }
+
+    private void notify(String template, String stage, Outcome outcome, long nanos) {
+        for (ProvisioningMetricsListener listener : listeners.get()) {
+            try {
+                listener.onRecord(template, stage, outcome, nanos);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Provisioning metrics listener " + listener + " failed", e);
+            }
+        }
+    }
+
+    /**
+     * @param prefix the prefix of the template names, or "" for all
+     * @return the metrics of every stage by template and stage name, sorted
+     */
+    public Map<String, Map<String, StageSnapshot>> getSnapshot(String prefix) {
+        Map<String, Map<String, StageSnapshot>> result = new TreeMap<>();
+        templates.forEach((template, stages) -> {
+            if (template.startsWith(prefix)) {
+                Map<String, StageSnapshot> snapshots = new TreeMap<>();
+                stages.forEach((stage, metrics) -> snapshots.put(stage, metrics.getSnapshot()));
+                result.put(template, snapshots);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @param prefix the prefix of the template names, or "" for all
+     * @return the metrics as JSON, with cumulative latency buckets in
+     *         milliseconds as Prometheus expects
+     */
+    public JSONObject toJson(String prefix) {
+        JSONObject json = new JSONObject();
+        getSnapshot(prefix).forEach((template, stages) -> {
+            JSONObject templateJson = new JSONObject();
+            stages.forEach((stage, snapshot) -> templateJson.put(stage, snapshot.toJson()));
+            json.put(template, templateJson);
+        });
+        return json;
+    }
+
+    private static final class StageMetrics {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder successes = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder retries = new LongAdder();
+
+        StageSnapshot getSnapshot() {
+            return new StageSnapshot(successes.sum(), failures.sum(), retries.sum(), latency.getSnapshot());
+        }
+    }
+
+    /**
+     * The counters and latencies of a stage at one point in time.
+     */
+    public static final class StageSnapshot {
+        public final long successes;
+        public final long failures;
+        public final long retries;
+        public final LatencyHistogram.Snapshot latency;
+
+        StageSnapshot(long successes, long failures, long retries, LatencyHistogram.Snapshot latency) {
+            this.successes = successes;
+            this.failures = failures;
+            this.retries = retries;
+            this.latency = latency;
+        }
+
+        JSONObject toJson() {
+            JSONArray buckets = new JSONArray();
+            for (int i = 0; i < latency.getBucketCount(); i++) {
+                long bound = latency.getUpperBoundMillis(i);
+                JSONObject bucket = new JSONObject();
+                bucket.put("le", bound == Long.MAX_VALUE ? "+Inf" : String.valueOf(bound));
+                bucket.put("count", latency.getCumulativeCount(i));
+                buckets.add(bucket);
+            }
+            JSONObject json = new JSONObject();
+            json.put("successes", successes);
+            json.put("failures", failures);
+            json.put("retries", retries);
+            json.put("count", latency.count);
+            json.put("sumMillis", TimeUnit.NANOSECONDS.toMillis(latency.sumNanos));
+            json.put("maxMillis", TimeUnit.NANOSECONDS.toMillis(latency.maxNanos));
+            json.put("p50Millis", latency.getQuantileMillis(0.5));
+            json.put("p95Millis", latency.getQuantileMillis(0.95));
+            json.put("p99Millis", latency.getQuantileMillis(0.99));
+            json.put("buckets", buckets);
+            return json;
+        }
+    }
+
+    /**
+     * Times one run of a stage. Only the first stop is recorded.
+     */
+    public final class Timer {
+        private final String template;
+        private final String stage;
+        private final long startNanos;
+        private final LongAdder attempts = new LongAdder();
+        private final AtomicBoolean stopped = new AtomicBoolean();
+
+        private Timer(String template, String stage, long startNanos) {
+            this.template = template;
+            this.stage = stage;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Counts an attempt; every attempt after the first is a retry.
+         */
+        public void attempt() {
+            attempts.increment();
+        }
+
+        /**
+         * Stops the timer with the outcome of a future, for use with
+         * {@code whenComplete}.
+         *
+         * @param result the result, ignored
+         * @param failure the failure, or null on success
+         */
+        public void stop(Object result, Throwable failure) {
+            stop(failure == null);
+        }
+
+        public void stop(boolean success) {
+            if (!stopped.compareAndSet(false, true)) {
+                return;
+            }
+            recordRetries(template, stage, (int) attempts.sum() - 1);
+            record(template, stage, success, nanoTime() - startNanos);
+        }
+    }
+}
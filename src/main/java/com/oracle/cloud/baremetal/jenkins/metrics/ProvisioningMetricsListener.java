@@ -0,0 +1,23 @@
+package com.oracle.cloud.baremetal.jenkins.metrics;
+
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
+
+/**
+ * Receives every provisioning measurement, for example to export it to the
+ * Metrics or Prometheus plugins. Implementations must be fast and must not
+ * block: they are called on the provisioning threads.
+ */
+public abstract class ProvisioningMetricsListener implements ExtensionPoint {
+    /**
+     * @param template the template, as {@code cloudName/templateId}
+     * @param stage the stage, such as {@code launch} or {@code launcher.connect}
+     * @param outcome the outcome of the stage
+     * @param nanos the duration of the stage, or 0 for a retry
+     */
+    public abstract void onRecord(String template, String stage, ProvisioningMetrics.Outcome outcome, long nanos);
+
+    public static ExtensionList<ProvisioningMetricsListener> all() {
+        return ExtensionList.lookup(ProvisioningMetricsListener.class);
+    }
+}
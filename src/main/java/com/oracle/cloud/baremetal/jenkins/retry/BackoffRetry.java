@@ -0,0 +1,321 @@
+package com.oracle.cloud.baremetal.jenkins.retry;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.oracle.cloud.baremetal.jenkins.VirtualThreads;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Retries a task with exponential backoff and jitter without blocking
+ * between attempts: attempts run on a shared executor and the next attempt
+ * is scheduled on a shared scheduler, so no thread is held while waiting.
+ * <p>
+ * Each attempt may be bounded by a timeout, after which it is interrupted
+ * and counted as failed. Failures rejected by the retry predicate end the
+ * retry at once. Cancelling the future returned by {@link #runAsync()}
+ * interrupts the running attempt and prevents further attempts.
+ */
+public class BackoffRetry<T> implements Retry<T> {
+    private static final Logger LOGGER = Logger.getLogger(BackoffRetry.class.getName());
+
+    static final int DEFAULT_MAX_ATTEMPTS = 3;
+    static final Duration DEFAULT_INITIAL_DELAY = Duration.ofSeconds(5);
+    static final Duration DEFAULT_MAX_DELAY = Duration.ofSeconds(60);
+    static final double DEFAULT_MULTIPLIER = 2;
+    static final double DEFAULT_JITTER = 0.5;
+
+    /** Runs the attempts of all retries. */
+    private static final ExecutorService EXECUTOR = VirtualThreads.newExecutor("OCI retry",
+            () -> Executors.newCachedThreadPool(new NamingThreadFactory(new DaemonThreadFactory(), "OCI retry")));
+
+    /** Schedules delayed attempts and attempt timeouts; never runs an attempt itself. */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new NamingThreadFactory(new DaemonThreadFactory(), "OCI retry scheduler"));
+
+    private final Callable<T> task;
+    private final int maxAttempts;
+    private final Duration initialDelay;
+    private final Duration maxDelay;
+    private final double multiplier;
+    private final double jitter;
+    private final Duration attemptTimeout;
+    private final Predicate<? super Throwable> retryOn;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private BackoffRetry(Builder<T> builder) {
+        this.task = builder.task;
+        this.maxAttempts = builder.maxAttempts;
+        this.initialDelay = builder.initialDelay;
+        this.maxDelay = builder.maxDelay;
+        this.multiplier = builder.multiplier;
+        this.jitter = builder.jitter;
+        this.attemptTimeout = builder.attemptTimeout;
+        this.retryOn = builder.retryOn;
+        this.executor = builder.executor;
+        this.scheduler = builder.scheduler;
+    }
+
+    /**
+     * @param task the task, which throws an exception on failure
+     * @param <T> the task result type
+     * @return a builder with default settings
+     */
+    public static <T> Builder<T> builder(Callable<T> task) {
+        return new Builder<>(task);
+    }
+
+    /**
+     * @see com.oracle.cloud.baremetal.jenkins.retry.Retry#canRetry()
+     */
+    @Override
+    public boolean canRetry() {
+        return attempts.get() < maxAttempts;
+    }
+
+    /**
+     * @return the number of attempts started so far
+     */
+    public int getAttempts() {
+        return attempts.get();
+    }
+
+    /**
+     * Runs the retry and waits for its result.
+     *
+     * @see com.oracle.cloud.baremetal.jenkins.retry.Retry#run()
+     */
+    @Override
+    public T run() throws Exception {
+        CompletableFuture<T> future = runAsync();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @see com.oracle.cloud.baremetal.jenkins.retry.Retry#runAsync()
+     */
+    @Override
+    public CompletableFuture<T> runAsync() {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<Future<?>> running = new AtomicReference<>();
+        result.whenComplete((r, e) -> {
+            if (e instanceof CancellationException) {
+                Future<?> attempt = running.get();
+                if (attempt != null) {
+                    attempt.cancel(true);
+                }
+            }
+        });
+        startAttempt(result, running);
+        return result;
+    }
+
+    private void startAttempt(CompletableFuture<T> result, AtomicReference<Future<?>> running) {
+        if (result.isDone()) {
+            return;
+        }
+        int attempt = attempts.incrementAndGet();
+        LOGGER.log(Level.FINE, "Attempt {0} of {1} for task: {2}", new Object[] {attempt, maxAttempts, task});
+        // Settled once, by the attempt or by its timeout, whichever comes first.
+        AtomicBoolean settled = new AtomicBoolean();
+        AtomicReference<Future<?>> timeout = new AtomicReference<>();
+        Future<?> future;
+        try {
+            future = executor.submit(() -> {
+                T value;
+                try {
+                    value = task.call();
+                } catch (Throwable e) {
+                    if (settled.compareAndSet(false, true)) {
+                        onFailure(result, running, attempt, e);
+                    }
+                    return;
+                }
+                if (settled.compareAndSet(false, true)) {
+                    Future<?> pending = timeout.get();
+                    if (pending != null) {
+                        pending.cancel(false);
+                    }
+                    result.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        running.set(future);
+        if (result.isCancelled()) {
+            future.cancel(true);
+            return;
+        }
+        if (attemptTimeout != null) {
+            timeout.set(scheduler.schedule(() -> {
+                if (settled.compareAndSet(false, true)) {
+                    future.cancel(true);
+                    onFailure(result, running, attempt,
+                            new TimeoutException("Attempt " + attempt + " timed out after " + attemptTimeout.toMillis() + "ms"));
+                }
+            }, attemptTimeout.toNanos(), TimeUnit.NANOSECONDS));
+        }
+    }
+
+    private void onFailure(CompletableFuture<T> result, AtomicReference<Future<?>> running, int attempt, Throwable e) {
+        if (result.isDone()) {
+            return;
+        }
+        if (attempt >= maxAttempts || !retryOn.test(e)) {
+            if (attempt >= maxAttempts) {
+                LOGGER.info("All retry attempts for task: " + task + " failed");
+            }
+            result.completeExceptionally(e);
+            return;
+        }
+        long delay = getDelayNanos(attempt, ThreadLocalRandom.current().nextDouble());
+        LOGGER.log(Level.FINE, "Attempt " + attempt + " for task: " + task + " failed, retrying in "
+                + TimeUnit.NANOSECONDS.toMillis(delay) + "ms", e);
+        try {
+            scheduler.schedule(() -> startAttempt(result, running), delay, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e2) {
+            e.addSuppressed(e2);
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * @param attempt the failed attempt, from 1
+     * @param random a random number between 0 and 1
+     * @return the delay before the next attempt: the initial delay multiplied
+     *         for each previous failure, capped, and reduced by up to the jitter
+     */
+    long getDelayNanos(int attempt, double random) {
+        double base = initialDelay.toNanos() * Math.pow(multiplier, attempt - 1);
+        double capped = Math.min(base, maxDelay.toNanos());
+        return (long) (capped * (1 - jitter * random));
+    }
+
+    @Override
+    public String toString() {
+        return "BackoffRetry[" + task + ", attempts=" + attempts.get() + "/" + maxAttempts + "]";
+    }
+
+    public static final class Builder<T> {
+        private final Callable<T> task;
+        private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        private Duration initialDelay = DEFAULT_INITIAL_DELAY;
+        private Duration maxDelay = DEFAULT_MAX_DELAY;
+        private double multiplier = DEFAULT_MULTIPLIER;
+        private double jitter = DEFAULT_JITTER;
+        private Duration attemptTimeout;
+        private Predicate<? super Throwable> retryOn = e -> e instanceof Exception;
+        private ExecutorService executor = EXECUTOR;
+        private ScheduledExecutorService scheduler = SCHEDULER;
+
+        private Builder(Callable<T> task) {
+            this.task = task;
+        }
+
+        /**
+         * @param maxAttempts positive number of attempts, including the first one
+         * @return this builder
+         */
+        public Builder<T> maxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * @param initialDelay delay before the second attempt
+         * @param maxDelay longest delay between attempts
+         * @param multiplier growth of the delay after each failed attempt
+         * @return this builder
+         */
+        public Builder<T> backoff(Duration initialDelay, Duration maxDelay, double multiplier) {
+            this.initialDelay = initialDelay;
+            this.maxDelay = maxDelay;
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * @param jitter share of each delay which is randomly removed, from 0 to 1
+         * @return this builder
+         */
+        public Builder<T> jitter(double jitter) {
+            if (jitter < 0 || jitter > 1) {
+                throw new IllegalArgumentException("jitter must be between 0 and 1: " + jitter);
+            }
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * @param attemptTimeout time after which an attempt is interrupted and fails, or null for none
+         * @return this builder
+         */
+        public Builder<T> attemptTimeout(Duration attemptTimeout) {
+            this.attemptTimeout = attemptTimeout;
+            return this;
+        }
+
+        /**
+         * @param retryOn accepts the failures which are worth another attempt
+         * @return this builder
+         */
+        public Builder<T> retryOn(Predicate<? super Throwable> retryOn) {
+            this.retryOn = retryOn;
+            return this;
+        }
+
+        Builder<T> executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        Builder<T> scheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public BackoffRetry<T> build() {
+            return new BackoffRetry<>(this);
+        }
+    }
+}
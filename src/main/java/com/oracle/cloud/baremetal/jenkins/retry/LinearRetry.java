@@ -8,6 +8,18 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
+import com.oracle.cloud.baremetal.jenkins.VirtualThreads;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Retries a task with a fixed delay, sleeping in the calling thread between
+ * attempts.
+ *
+ * @deprecated use {@link BackoffRetry}, which does not block between attempts
+ */
+@Deprecated
 public class LinearRetry<T> implements Retry<T> {
     private static final Logger LOGGER = Logger.getLogger(LinearRetry.class.getName());
 
@@ -15,6 +27,13 @@ public class LinearRetry<T> implements Retry<T> {
     private static final Duration DEFAULT_RETRY_DELAY = Duration.ofSeconds(30);
     private static final Duration DEFAULT_RETRY_TIMEOUT = Duration.ofSeconds(30);
 
+    /**
+     * Runs the attempts of all retries. Attempts used to run on a new executor
+     * per retry which was never shut down.
+     */
+    private static final ExecutorService EXECUTOR = VirtualThreads.newExecutor("OCI retry",
+            () -> Executors.newCachedThreadPool(new NamingThreadFactory(new DaemonThreadFactory(), "OCI retry")));
+
     private final Callable<T> task;
     private final int maxRetries;
     private final Duration retryDelay;
@@ -57,7 +76,7 @@ public class LinearRetry<T> implements Retry<T> {
      */
     @Override
     public T run() throws Exception {
-        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ExecutorService executor = EXECUTOR;
 
         LOGGER.fine("Start retring for task: " + task.toString());
 
@@ -1,5 +1,7 @@
 package com.oracle.cloud.baremetal.jenkins.retry;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface Retry<T> {
 
     /**
@@ -18,4 +20,21 @@ public interface Retry<T> {
      */
     T run() throws Exception;
 
+    /**
+     * Start attempting to run provided task without waiting for the result.
+     * The default implementation runs {@link #run()} in the calling thread.
+     *
+     * @return a future completed with the task's return value or failure;
+     *          cancelling it stops further attempts
+     */
+    default CompletableFuture<T> runAsync() {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            future.complete(run());
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
 }
@@ -0,0 +1,126 @@
+package com.oracle.cloud.baremetal.jenkins.ssh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+
+import com.trilead.ssh2.ChannelCondition;
+import com.trilead.ssh2.Connection;
+import com.trilead.ssh2.Session;
+
+/**
+ * Deploys the remoting jar to agents by content: the SHA-256 checksum of the
+ * controller's jar is compared with the remote copy, and the jar is streamed
+ * to the agent only if they differ.
+ */
+final class AgentJar {
+    private static final long UPLOAD_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    static final class Info {
+        /** Hex SHA-256 checksum. */
+        final String checksum;
+        final long size;
+
+        Info(String checksum, long size) {
+            this.checksum = checksum;
+            this.size = size;
+        }
+    }
+
+    /** Checksums of the controller's jars by URL; a jar does not change while Jenkins runs. */
+    private static final ConcurrentMap<String, Info> INFOS = new ConcurrentHashMap<>();
+
+    private AgentJar() {}
+
+    /**
+     * @param url the URL of the jar
+     * @return the checksum and size of the jar
+     * @throws IOException if the jar cannot be read
+     */
+    static Info getInfo(URL url) throws IOException {
+        String key = url.toString();
+        Info info = INFOS.get(key);
+        if (info == null) {
+            try (InputStream in = url.openStream()) {
+                info = digest(in);
+            }
+            INFOS.put(key, info);
+        }
+        return info;
+    }
+
+    /**
+     * @param url the URL of the jar
+     * @return the hex SHA-256 checksum of the jar
+     * @throws IOException if the jar cannot be read
+     */
+    static String getChecksum(URL url) throws IOException {
+        return getInfo(url).checksum;
+    }
+
+    static Info digest(InputStream in) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        byte[] buffer = new byte[8192];
+        long size = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, n);
+            size += n;
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return new Info(hex.toString(), size);
+    }
+
+    /**
+     * @param remoteFile the path of the jar on the agent
+     * @param checksum the expected checksum
+     * @return a command exiting with 0 if the remote jar has the checksum
+     */
+    static String getCheckCommand(String remoteFile, String checksum) {
+        return "[ \"$(sha256sum \"" + remoteFile + "\" 2>/dev/null | cut -d ' ' -f 1)\" = \"" + checksum + "\" ]";
+    }
+
+    /**
+     * Streams a file to the agent through a temporary file, so that an
+     * interrupted upload never leaves a truncated jar in place.
+     *
+     * @param connection an authenticated connection
+     * @param in the content
+     * @param remoteFile the path of the file on the agent
+     * @throws IOException if the upload fails
+     * @throws InterruptedException if interrupted while waiting for the upload to complete
+     */
+    static void upload(Connection connection, InputStream in, String remoteFile) throws IOException, InterruptedException {
+        String tmpFile = remoteFile + ".tmp";
+        Session session = connection.openSession();
+        try {
+            session.execCommand("cat > \"" + tmpFile + "\" && mv -f \"" + tmpFile + "\" \"" + remoteFile + "\"");
+            try (OutputStream stdin = session.getStdin()) {
+                IOUtils.copy(in, stdin);
+            }
+            session.waitForCondition(ChannelCondition.EXIT_STATUS, UPLOAD_TIMEOUT_MILLIS);
+            Integer exitStatus = session.getExitStatus();
+            if (exitStatus == null || exitStatus != 0) {
+                throw new IOException("Failed to write " + remoteFile + ", exit status: " + exitStatus);
+            }
+        } finally {
+            session.close();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.oracle.cloud.baremetal.jenkins.ssh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Generates the script run by {@link SshComputerLauncher} in bootstrap mode.
+ * <p>
+ * The script is piped to {@code /bin/bash -s} and, in one session, creates
+ * the working directory, runs the init script once, checks Java, receives the
+ * agent jar on its standard input if the remote copy is not current, or
+ * always if asked to, and
+ * finally replaces itself with the agent. Each step reports its result on a
+ * line starting with {@link #STEP_PREFIX}.
+ * <p>
+ * The body is a function called on the last line, so that bash has read all
+ * of the script before the jar follows it on the same standard input.
+ */
+final class BootstrapScript {
+    static final String STEP_PREFIX = "@@oci-bootstrap ";
+
+    static final String MKDIR = "mkdir";
+    static final String INIT = "init";
+    static final String JAVA = "java";
+    /** Asks for the agent jar; the value is the number of bytes to send. */
+    static final String UPLOAD = "upload";
+    static final String JAR = "jar";
+    /** The agent is started; the session now carries the remoting channel. */
+    static final String LAUNCH = "launch";
+
+    static final class Step {
+        final String name;
+        final long value;
+
+        Step(String name, long value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        boolean isFailed() {
+            return !UPLOAD.equals(name) && value != 0;
+        }
+    }
+
+    private final StringBuilder script = new StringBuilder();
+
+    /**
+     * @param remoteDirectory the working directory of the agent
+     * @param initScript the init script, or null
+     * @param initScriptTimeoutSeconds the init script timeout, or 0 for none
+     * @param javaCommand the java command, including its path
+     * @param jar the agent jar
+     * @param alwaysCopyJar whether to send the jar even if the remote copy is current
+     * @param jenkinsAgentUser the user running the agent, or null for the SSH user
+     * @param launchCommand the command starting the agent, without the user switch
+     */
+    BootstrapScript(String remoteDirectory, String initScript, int initScriptTimeoutSeconds, String javaCommand,
+            AgentJar.Info jar, boolean alwaysCopyJar, String jenkinsAgentUser, String launchCommand) {
+        line("main() {");
+        // Keep stderr for the agent; everything else is reported on stdout.
+        line("exec 3>&2 2>&1");
+        line("step() { echo \"" + STEP_PREFIX + "$1 $2\"; }");
+        line("dir=\"" + remoteDirectory + "\"");
+        line("jar=\"$dir/slave.jar\"");
+
+        line("mkdir -p \"$dir\" || { step " + MKDIR + " 1; exit 1; }");
+        line("step " + MKDIR + " 0");
+
+        if (initScript == null || initScript.trim().isEmpty()) {
+            line("echo 'No init script to run on remote agent'");
+        } else {
+            String delimiter = "OCI_INIT_" + UUID.randomUUID().toString().replace("-", "");
+            line("cat > \"$dir/init.sh\" <<'" + delimiter + "'");
+            line(initScript);
+            line(delimiter);
+            line("if [ -e ~/.hudson-run-init ]; then");
+            line(" echo 'Agent already initialized ~/.hudson-run-init exists'");
+            line("else");
+            line(" echo 'Running init script on agent'");
+            String run = "/bin/bash \"$dir/init.sh\" < /dev/null";
+            if (initScriptTimeoutSeconds > 0) {
+                line(" if command -v timeout > /dev/null; then timeout " + initScriptTimeoutSeconds + " " + run + "; else " + run + "; fi");
+            } else {
+                line(" " + run);
+            }
+            line(" rc=$?");
+            line(" [ $rc -eq 0 ] || { step " + INIT + " $rc; exit 1; }");
+            line(" touch ~/.hudson-run-init");
+            line("fi");
+            line("step " + INIT + " 0");
+        }
+
+        line(javaCommand + " -fullversion || { step " + JAVA + " 1; exit 1; }");
+        line("step " + JAVA + " 0");
+
+        String indent = "";
+        if (!alwaysCopyJar) {
+            line("if [ \"$(sha256sum \"$jar\" 2>/dev/null | cut -d ' ' -f 1)\" != \"" + jar.checksum + "\" ]; then");
+            indent = " ";
+        }
+        line(indent + "sudo rm -f \"$jar\"");
+        line(indent + "step " + UPLOAD + " " + jar.size);
+        line(indent + "head -c " + jar.size + " > \"$jar.tmp\" && mv -f \"$jar.tmp\" \"$jar\" || { step " + JAR + " 1; exit 1; }");
+        if (!alwaysCopyJar) {
+            line("fi");
+        }
+        line("step " + JAR + " 0");
+
+        if (jenkinsAgentUser == null || jenkinsAgentUser.trim().isEmpty()) {
+            line("step " + LAUNCH + " 0");
+            line("exec 2>&3 3>&-");
+            line("exec " + launchCommand);
+        } else {
+            line("sudo chown " + jenkinsAgentUser + " \"$jar\" || { step " + LAUNCH + " 1; exit 1; }");
+            line("step " + LAUNCH + " 0");
+            line("exec 2>&3 3>&-");
+            line("exec sudo -i -u " + jenkinsAgentUser + " " + launchCommand);
+        }
+        line("}");
+        line("main");
+    }
+
+    private void line(String line) {
+        script.append(line).append('\n');
+    }
+
+    byte[] getBytes() {
+        return script.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return script.toString();
+    }
+
+    /**
+     * @param line an output line
+     * @return the step result reported by the line, or null for other output
+     */
+    static Step parseStep(String line) {
+        if (!line.startsWith(STEP_PREFIX)) {
+            return null;
+        }
+        String[] parts = line.substring(STEP_PREFIX.length()).trim().split(" ");
+        if (parts.length != 2) {
+            return null;
+        }
+        try {
+            return new Step(parts[0], Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads a line without reading ahead, since the rest of the stream
+     * carries the remoting channel once the agent is launched.
+     *
+     * @param in the session output
+     * @return the line without its terminator, or null at the end of the stream
+     * @throws IOException if the stream cannot be read
+     */
+    static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,217 @@
+package com.oracle.cloud.baremetal.jenkins.ssh;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.trilead.ssh2.KnownHosts;
+
+/**
+ * Keeps the host keys accepted by the strict verification strategy in
+ * memory, so that verifying a host does not read the known hosts file.
+ * <p>
+ * The keys are saved in {@code known_hosts}, in the OpenSSH format. Changes
+ * are appended to {@code known_hosts.journal} as {@code + host algorithm key}
+ * and {@code - host} lines, and the journal is folded into
+ * {@code known_hosts} once it holds {@link #COMPACT_THRESHOLD} changes.
+ */
+public class KnownHostsStore {
+    private static final Logger LOGGER = Logger.getLogger(KnownHostsStore.class.getName());
+
+    static final int COMPACT_THRESHOLD = 1000;
+
+    public static final KnownHostsStore INSTANCE = new KnownHostsStore(new File("known_hosts"));
+
+    static final class HostKey {
+        final String algorithm;
+        final byte[] key;
+
+        HostKey(String algorithm, byte[] key) {
+            this.algorithm = algorithm;
+            this.key = key;
+        }
+
+        boolean matches(String algorithm, byte[] key) {
+            return this.algorithm.equals(algorithm) && Arrays.equals(this.key, key);
+        }
+    }
+
+    private final File file;
+    private final File journal;
+    private final ConcurrentMap<String, List<HostKey>> keys = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private int journalSize;
+
+    KnownHostsStore(File file) {
+        this.file = file;
+        this.journal = new File(file.getPath() + ".journal");
+    }
+
+    /**
+     * @param host the host name or address
+     * @param algorithm the host key algorithm
+     * @param key the host key
+     * @return {@link KnownHosts#HOSTKEY_IS_OK} if the key is known,
+     *         {@link KnownHosts#HOSTKEY_HAS_CHANGED} if another key of the
+     *         same algorithm is known for the host, or
+     *         {@link KnownHosts#HOSTKEY_IS_NEW} otherwise
+     * @throws IOException if the known hosts cannot be loaded
+     */
+    public int verify(String host, String algorithm, byte[] key) throws IOException {
+        ensureLoaded();
+        List<HostKey> hostKeys = keys.getOrDefault(host, Collections.emptyList());
+        int result = KnownHosts.HOSTKEY_IS_NEW;
+        for (HostKey hostKey : hostKeys) {
+            if (hostKey.matches(algorithm, key)) {
+                return KnownHosts.HOSTKEY_IS_OK;
+            }
+            if (hostKey.algorithm.equals(algorithm)) {
+                result = KnownHosts.HOSTKEY_HAS_CHANGED;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param host the host name or address
+     * @param algorithm the host key algorithm
+     * @param key the host key
+     * @throws IOException if the key cannot be saved
+     */
+    public synchronized void add(String host, String algorithm, byte[] key) throws IOException {
+        ensureLoaded();
+        if (verify(host, algorithm, key) == KnownHosts.HOSTKEY_IS_OK) {
+            return;
+        }
+        put(host, new HostKey(algorithm, key));
+        appendJournal("+ " + host + " " + algorithm + " " + Base64.getEncoder().encodeToString(key));
+    }
+
+    /**
+     * Forgets the keys of a host, typically because its instance was terminated.
+     *
+     * @param host the host name or address
+     * @throws IOException if the change cannot be saved
+     */
+    public synchronized void remove(String host) throws IOException {
+        ensureLoaded();
+        if (keys.remove(host) != null) {
+            appendJournal("- " + host);
+        }
+    }
+
+    int size() {
+        return keys.size();
+    }
+
+    private void put(String host, HostKey hostKey) {
+        keys.compute(host, (h, list) -> {
+            List<HostKey> copy = list == null ? new ArrayList<>() : new ArrayList<>(list);
+            copy.add(hostKey);
+            return Collections.unmodifiableList(copy);
+        });
+    }
+
+    private void ensureLoaded() throws IOException {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    load();
+                    loaded = true;
+                }
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        if (file.exists()) {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    loadEntry(line);
+                }
+            }
+        }
+        if (journal.exists()) {
+            try (BufferedReader reader = Files.newBufferedReader(journal.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("+ ")) {
+                        loadEntry(line.substring(2));
+                    } else if (line.startsWith("- ")) {
+                        keys.remove(line.substring(2).trim());
+                    }
+                }
+            }
+            compact();
+        }
+    }
+
+    /**
+     * Loads a line in the OpenSSH format. Hashed host names cannot be
+     * indexed and are dropped.
+     */
+    private void loadEntry(String line) {
+        String[] words = line.trim().split(" ");
+        if (words.length < 3 || words[0].startsWith("#") || words[0].startsWith("|")) {
+            return;
+        }
+        byte[] key;
+        try {
+            key = Base64.getDecoder().decode(words[2]);
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.FINE, "Ignoring invalid known hosts entry: {0}", line);
+            return;
+        }
+        for (String host : words[0].split(",")) {
+            put(host, new HostKey(words[1], key));
+        }
+    }
+
+    private void appendJournal(String line) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(journal.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(line);
+            writer.write('\n');
+        }
+        if (++journalSize >= COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
+
+    /**
+     * Writes every key to {@code known_hosts} and empties the journal.
+     *
+     * @throws IOException if the keys cannot be written
+     */
+    synchronized void compact() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, List<HostKey>> entry : keys.entrySet()) {
+                for (HostKey hostKey : entry.getValue()) {
+                    writer.write(entry.getKey() + " " + hostKey.algorithm + " " + Base64.getEncoder().encodeToString(hostKey.key));
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(journal.toPath());
+        journalSize = 0;
+    }
+}
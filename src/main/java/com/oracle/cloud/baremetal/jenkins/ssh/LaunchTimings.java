@@ -0,0 +1,86 @@
+package com.oracle.cloud.baremetal.jenkins.ssh;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the phases of an agent launch, such as connecting or running the
+ * init script.
+ */
+class LaunchTimings {
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final Map<String, Integer> retries = new LinkedHashMap<>();
+    private String phase;
+    private long phaseStartNanos;
+
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Ends the current phase, if any, and starts a new one.
+     *
+     * @param phase the name of the new phase
+     */
+    void start(String phase) {
+        end();
+        this.phase = phase;
+        this.phaseStartNanos = nanoTime();
+    }
+
+    /**
+     * Counts retries within the current phase, if any.
+     *
+     * @param count the number of retries
+     */
+    void retried(int count) {
+        if (phase != null && count > 0) {
+            retries.merge(phase, count, Integer::sum);
+        }
+    }
+
+    /**
+     * @return the current phase, or null if it has ended
+     */
+    String getPhase() {
+        return phase;
+    }
+
+    /**
+     * Ends the current phase, if any.
+     */
+    void end() {
+        if (phase != null) {
+            phases.merge(phase, TimeUnit.NANOSECONDS.toMillis(nanoTime() - phaseStartNanos), Long::sum);
+            phase = null;
+        }
+    }
+
+    /**
+     * @return the duration of the ended phases in milliseconds, in the order they started
+     */
+    Map<String, Long> getPhaseMillis() {
+        return Collections.unmodifiableMap(phases);
+    }
+
+    /**
+     * @return the number of retries by phase
+     */
+    Map<String, Integer> getRetries() {
+        return Collections.unmodifiableMap(retries);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        phases.forEach((name, millis) -> {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(name).append('=').append(millis).append("ms");
+        });
+        return sb.toString();
+    }
+}
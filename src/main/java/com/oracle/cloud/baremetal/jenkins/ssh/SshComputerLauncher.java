@@ -2,14 +2,24 @@ package com.oracle.cloud.baremetal.jenkins.ssh;
 
 import com.cloudbees.jenkins.plugins.sshcredentials.SSHUserPrivateKey;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.oracle.cloud.baremetal.jenkins.BaremetalCloud;
+import com.oracle.cloud.baremetal.jenkins.BaremetalCloudAgent;
 import org.apache.commons.io.IOUtils;
 
 import com.oracle.cloud.baremetal.jenkins.JenkinsUtil;
-import com.oracle.cloud.baremetal.jenkins.retry.LinearRetry;
+import com.oracle.cloud.baremetal.jenkins.metrics.ProvisioningMetrics;
+import com.oracle.cloud.baremetal.jenkins.retry.BackoffRetry;
 import com.trilead.ssh2.ChannelCondition;
 import com.trilead.ssh2.Connection;
 import com.trilead.ssh2.ConnectionInfo;
@@ -22,6 +32,8 @@ import hudson.remoting.Channel;
 import hudson.remoting.Channel.Listener;
 import hudson.slaves.ComputerLauncher;
 import hudson.slaves.SlaveComputer;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
 
 public class SshComputerLauncher extends ComputerLauncher {
     private static final Logger LOGGER = Logger.getLogger(SshComputerLauncher.class.getName());
@@ -30,6 +42,31 @@ public class SshComputerLauncher extends ComputerLauncher {
     public static final int DEFAULT_SSH_PORT = 22;
     public static final String DEFAULT_SSH_PUBLIC_KEY = " ";
 
+    /** Time to wait for the remaining output of a finished session. */
+    private static final long OUTPUT_DRAIN_MILLIS = 2000;
+
+    /** Init script timeout used when none is set, so that a hung script cannot block the launch. */
+    static final int DEFAULT_INIT_SCRIPT_TIMEOUT_SECONDS = 120;
+
+    /**
+     * Time allowed in bootstrap mode on top of the init script timeout for the
+     * other steps, so that the session is closed even if {@code timeout} is
+     * not installed on the image.
+     */
+    private static final long BOOTSTRAP_MARGIN_SECONDS = 120;
+
+    /** Longest SSH connection attempt before it is retried. */
+    private static final Duration CONNECT_ATTEMPT_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Prepares and launches agents in a single SSH session. Init scripts
+     * then run without a pseudo-terminal.
+     */
+    static final boolean BOOTSTRAP = SystemProperties.getBoolean(SshComputerLauncher.class.getName() + ".bootstrap");
+
+    /** Copies the agent jar on every launch instead of only when the remote copy differs. */
+    static final boolean ALWAYS_COPY_AGENT_JAR = SystemProperties.getBoolean(SshComputerLauncher.class.getName() + ".alwaysCopyAgentJar");
+
     public final String host;
     private final int sshPort;
     private final String sshUser;
@@ -104,42 +141,89 @@ public class SshComputerLauncher extends ComputerLauncher {
     public void launch(final SlaveComputer computer, final TaskListener listener) throws IOException,
             InterruptedException {
 
+        LaunchTimings timings = new LaunchTimings();
         Connection connection = null;
         try {
-            connection = connect(listener);
-            authenticate(connection, listener);
+            timings.start("connect");
+            connection = takeHandoff(computer, listener);
+            if (connection == null) {
+                connection = connect(listener, timings);
+                authenticate(connection, listener);
+            }
 
             String workingDirectory = getRemoteWorkingDirectory(computer);
-            createRemoteDirectory(connection, workingDirectory, listener);
-            runInitScript(connection, workingDirectory, listener);
-
-            ensureJavaInstalled(connection, listener);
-            copyAgentJar(connection, workingDirectory, listener);
-            launchAgent(connection, workingDirectory, computer, listener);
+            if (BOOTSTRAP) {
+                timings.start("bootstrap");
+                bootstrap(connection, workingDirectory, computer, listener);
+            } else {
+                timings.start("mkdir");
+                createRemoteDirectory(connection, workingDirectory, listener);
+                timings.start("init");
+                runInitScript(connection, workingDirectory, listener);
+
+                timings.start("java");
+                ensureJavaInstalled(connection, listener);
+                timings.start("jar");
+                copyAgentJar(connection, workingDirectory, listener);
+                timings.start("launch");
+                launchAgent(connection, workingDirectory, computer, listener);
+            }
+            reportTimings(timings, computer, listener, true);
         } catch (IOException | InterruptedException e) {
+            reportTimings(timings, computer, listener, false);
             tearDownConnection(connection, listener);
             listener.fatalError("SSH Agent launch failed on: " + sshUser + "@" + host + ":" + sshPort);
             throw e;
         }
     }
 
-    private Connection connect(final TaskListener listener) throws IOException {
+    /**
+     * @return the authenticated connection opened while provisioning the
+     *         agent, or null if there is none or it was lost
+     */
+    private Connection takeHandoff(final SlaveComputer computer, final TaskListener listener) {
+        Slave agent = computer.getNode();
+        if (!(agent instanceof BaremetalCloudAgent)) {
+            return null;
+        }
+        Connection connection = SshConnectionHandoff.INSTANCE.take(((BaremetalCloudAgent) agent).getInstanceId(), host, sshUser);
+        if (connection == null) {
+            return null;
+        }
+        try {
+            // Fails if the connection was closed since it was offered.
+            connection.getConnectionInfo();
+            if (connection.isAuthenticationComplete()) {
+                listener.getLogger().println("Reusing ssh connection: " + sshUser + "@" + host + ":" + sshPort);
+                return connection;
+            }
+        } catch (IOException | IllegalStateException e) {
+            LOGGER.log(Level.FINE, "Provisioning SSH connection to " + host + " was lost", e);
+        }
+        connection.close();
+        return null;
+    }
+
+    private Connection connect(final TaskListener listener, final LaunchTimings timings) throws IOException {
         final String uri = sshUser + "@" + host + ":" + sshPort;
 
         listener.getLogger().println("Connecting to ssh: " + uri);
+        BackoffRetry<ConnectionInfo> retry = null;
         try {
             Connection connection = SshConnector.createConnection(host, sshPort);
-            if(!verificationStrategy) {
-                new LinearRetry<ConnectionInfo>(() ->
-                        SshConnector.connect(connection, connectTimeoutMillis, "No Verification")).run();
-            } else {
-                new LinearRetry<ConnectionInfo>(() ->
-                        SshConnector.connect(connection, connectTimeoutMillis, "Strict Verification")).run();
-            }
+            String strategy = verificationStrategy ? "Strict Verification" : "No Verification";
+            retry = BackoffRetry.<ConnectionInfo>builder(() -> SshConnector.connect(connection, connectTimeoutMillis, strategy))
+                    .attemptTimeout(CONNECT_ATTEMPT_TIMEOUT)
+                    .build();
+            retry.run();
             return connection;
         } catch (Exception e) {
             listener.fatalError("Failed to connect to ssh: " + uri);
             throw new IOException(e);
+        } finally {
+            if (retry != null) {
+                timings.retried(retry.getAttempts() - 1);
+            }
         }
     }
 
@@ -223,24 +307,15 @@ public class SshComputerLauncher extends ComputerLauncher {
 
         listener.getLogger().println("Running init script on remote agent");
         Session initSession = null;
-        Session testSession = null;
         try {
             initSession = connection.openSession();
-            testSession = connection.openSession();
-            testSession.requestDumbPTY();
-            testSession.execCommand("cat ~/initModified.sh");
             initSession.requestDumbPTY();
             //final String initIndicatorFile = "~/.hudson-run-init";
             final String initCommand =
                     "/bin/bash "+remoteDirectory + "/initModified.sh;";
             initSession.execCommand(initCommand);
 
-            IOUtils.copy(initSession.getStdout(), listener.getLogger());
-            IOUtils.copy(initSession.getStderr(), listener.getLogger());
-            initSession.getStdin().close();
-            initSession.getStderr().close();
-
-            int exitStatus = waitCompletion(initSession);
+            int exitStatus = waitCompletion(initSession, listener);
             if (exitStatus != 0) {
                 String msg = "Init script on " + this.host + " finished with non-zero exit status: " + exitStatus;
                 listener.getLogger().println(msg);
@@ -252,7 +327,6 @@ public class SshComputerLauncher extends ComputerLauncher {
         } finally {
             if (initSession != null) {
                 initSession.close();
-                testSession.close();
             }
         }
     }
@@ -261,10 +335,25 @@ public class SshComputerLauncher extends ComputerLauncher {
     private void copyAgentJar(Connection connection, String remoteDirectory, final TaskListener listener)
             throws IOException, InterruptedException {
 
+        String jarfile = remoteDirectory + "/slave.jar";
+        URL jarUrl = JenkinsUtil.getJenkinsInstance().getJnlpJars("slave.jar").getURL();
+
+        if (!ALWAYS_COPY_AGENT_JAR) {
+            try {
+                String checksum = AgentJar.getChecksum(jarUrl);
+                if (connection.exec(AgentJar.getCheckCommand(jarfile, checksum), listener.getLogger()) == 0) {
+                    listener.getLogger().println("Remote slave.jar is up to date, skipping copy");
+                    return;
+                }
+            } catch (IOException e) {
+                listener.getLogger().println("Failed to compare remote slave.jar, copying it [" + e.getMessage() + "]");
+            }
+        }
+
         // Delete slave.jar in case it already exists and is owned by a different
         // user, which could happen if Jenkins Agent User is set.
         //
-        String deleteString = "sudo rm -f " + remoteDirectory + "/slave.jar";
+        String deleteString = "sudo rm -f " + jarfile;
         listener.getLogger().println("Deleting remote slave.jar if it exists prior to copy ["
                 + deleteString + "]");
 
@@ -276,13 +365,10 @@ public class SshComputerLauncher extends ComputerLauncher {
             throw e;
         }
 
-        listener.getLogger().println("Copying slave.jar to remote agent using scp");
+        listener.getLogger().println("Copying slave.jar to remote agent");
 
-        try {
-            SCPClient scp = connection.createSCPClient();
-            scp.put(JenkinsUtil.getJenkinsInstance().getJnlpJars("slave.jar").readFully(),
-                    "slave.jar",
-                    remoteDirectory);
+        try (InputStream in = jarUrl.openStream()) {
+            AgentJar.upload(connection, in, jarfile);
         } catch (IOException e) {
             listener.fatalError("Failed to copy slave.jar");
             throw e;
@@ -297,11 +383,7 @@ public class SshComputerLauncher extends ComputerLauncher {
             InterruptedException {
 
         String jarfile = remoteDirectory + "/slave.jar";
-        String remotingOptions = "-workDir " + remoteDirectory + " -jar-cache " + remoteDirectory + "/jarCache";
-        if (customJVMOpts == null ||customJVMOpts.trim().isEmpty()) {
-            customJVMOpts = " ";
-        }
-        String launchString = customJavaPath+"java"+customJVMOpts+ "-jar " + jarfile + " " + remotingOptions;
+        String launchString = getAgentCommand(remoteDirectory);
 
         if (jenkinsAgentUser == null || jenkinsAgentUser.trim().isEmpty()) {
             listener.getLogger().println("Jenkins Agent User is empty, default opc.");
@@ -331,15 +413,148 @@ public class SshComputerLauncher extends ComputerLauncher {
     }
 
 
-    private int waitCompletion(Session session) throws InterruptedException {
-        LOGGER.info("Timeout around for init script complete is " + initScriptTimeoutSeconds);
-        for (int i = 0; i < initScriptTimeoutSeconds; i++) {
-            Integer r = session.getExitStatus();
-            if (r != null)
-                return r;
-            Thread.sleep(TimeUnit.SECONDS.toMillis(1));
+    private String getAgentCommand(String remoteDirectory) {
+        String jarfile = remoteDirectory + "/slave.jar";
+        String remotingOptions = "-workDir " + remoteDirectory + " -jar-cache " + remoteDirectory + "/jarCache";
+        if (customJVMOpts == null ||customJVMOpts.trim().isEmpty()) {
+            customJVMOpts = " ";
+        }
+        return customJavaPath+"java"+customJVMOpts+ "-jar " + jarfile + " " + remotingOptions;
+    }
+
+    /**
+     * Prepares and launches the agent in a single session running a
+     * generated {@link BootstrapScript}, instead of one round-trip per step.
+     */
+    private void bootstrap(final Connection connection,
+                           String remoteDirectory,
+                           final SlaveComputer computer,
+                           final TaskListener listener)
+            throws IOException,
+            InterruptedException {
+
+        URL jarUrl = JenkinsUtil.getJenkinsInstance().getJnlpJars("slave.jar").getURL();
+        BootstrapScript script = new BootstrapScript(remoteDirectory, initScript, getInitScriptTimeoutSeconds(),
+                customJavaPath + "java", AgentJar.getInfo(jarUrl), ALWAYS_COPY_AGENT_JAR, jenkinsAgentUser,
+                getAgentCommand(remoteDirectory));
+
+        listener.getLogger().println("Bootstrapping Agent in a single SSH session");
+        Session session = connection.openSession();
+        long deadlineSeconds = getInitScriptTimeoutSeconds() + BOOTSTRAP_MARGIN_SECONDS;
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> watchdog = Timer.get().schedule(() -> {
+            timedOut.set(true);
+            session.close();
+        }, deadlineSeconds, TimeUnit.SECONDS);
+        try {
+            session.execCommand("/bin/bash -s");
+            OutputStream stdin = session.getStdin();
+            InputStream stdout = session.getStdout();
+            stdin.write(script.getBytes());
+            stdin.flush();
+
+            String line;
+            while ((line = BootstrapScript.readLine(stdout)) != null) {
+                BootstrapScript.Step step = BootstrapScript.parseStep(line);
+                if (step == null) {
+                    listener.getLogger().println(line);
+                    continue;
+                }
+                if (step.isFailed()) {
+                    String msg = "Bootstrap step " + step.name + " failed on " + this.host + " with status " + step.value;
+                    listener.fatalError(msg);
+                    throw new IOException(msg);
+                }
+                if (BootstrapScript.UPLOAD.equals(step.name)) {
+                    listener.getLogger().println("Copying slave.jar to remote agent");
+                    try (InputStream in = jarUrl.openStream()) {
+                        IOUtils.copy(in, stdin);
+                    }
+                    stdin.flush();
+                } else if (BootstrapScript.LAUNCH.equals(step.name)) {
+                    watchdog.cancel(false);
+                    listener.getLogger().println("Launching Agent (via Trilead SSH2 Connection): " + getAgentCommand(remoteDirectory));
+                    computer.setChannel(stdout, stdin, listener.getLogger(), new Listener() {
+                        @Override
+                        public void onClosed(Channel channel, IOException cause) {
+                            tearDownSession(session, listener);
+                            tearDownConnection(connection, listener);
+                        }
+                    });
+                    return;
+                } else {
+                    listener.getLogger().println("Bootstrap step " + step.name + " done");
+                }
+            }
+            throw new IOException("Bootstrap on " + this.host + " ended before launching the agent");
+        } catch (IOException e) {
+            tearDownSession(session, listener);
+            if (timedOut.get()) {
+                String msg = "Bootstrap on " + this.host + " did not launch the agent within " + deadlineSeconds + " seconds";
+                listener.fatalError(msg);
+                throw new IOException(msg, e);
+            }
+            throw e;
+        } finally {
+            watchdog.cancel(false);
+        }
+    }
+
+    /**
+     * Copies stdout and stderr of the session to the listener at the same
+     * time and waits for the exit status until the init script timeout.
+     *
+     * @return the exit status, or -1 if the script timed out
+     */
+    private int waitCompletion(Session session, final TaskListener listener) throws IOException, InterruptedException {
+        int timeoutSeconds = getInitScriptTimeoutSeconds();
+        LOGGER.info("Timeout around for init script complete is " + timeoutSeconds);
+        StreamPump stdout = StreamPump.start(session.getStdout(), listener.getLogger(), "Init script stdout " + this.host);
+        StreamPump stderr = StreamPump.start(session.getStderr(), listener.getLogger(), "Init script stderr " + this.host);
+        session.getStdin().close();
+
+        session.waitForCondition(ChannelCondition.EXIT_STATUS, TimeUnit.SECONDS.toMillis(timeoutSeconds));
+        Integer r = session.getExitStatus();
+        if (r == null) {
+            listener.getLogger().println("Init script did not finish within " + timeoutSeconds + " seconds");
+            stdout.stop();
+            stderr.stop();
+            return -1;
+        }
+        // The streams end right after the exit status; wait briefly for the last output.
+        stdout.join(OUTPUT_DRAIN_MILLIS);
+        stderr.join(OUTPUT_DRAIN_MILLIS);
+        return r;
+    }
+
+    /**
+     * @return the init script timeout, or the default if none is set
+     */
+    int getInitScriptTimeoutSeconds() {
+        return initScriptTimeoutSeconds > 0 ? initScriptTimeoutSeconds : DEFAULT_INIT_SCRIPT_TIMEOUT_SECONDS;
+    }
+
+    private void reportTimings(LaunchTimings timings, final SlaveComputer computer, final TaskListener listener, boolean success) {
+        String failedPhase = success ? null : timings.getPhase();
+        timings.end();
+        listener.getLogger().println("Launch phases on " + this.host + ": " + timings);
+        LOGGER.fine("Launch phases on " + this.host + ": " + timings);
+
+        Slave agent = computer.getNode();
+        if (!(agent instanceof BaremetalCloudAgent)) {
+            return;
+        }
+        ProvisioningMetrics metrics = ProvisioningMetrics.INSTANCE;
+        String template = ProvisioningMetrics.getTemplateName(((BaremetalCloudAgent) agent).cloudName,
+                ((BaremetalCloudAgent) agent).templateId);
+        long totalMillis = 0;
+        for (Map.Entry<String, Long> phase : timings.getPhaseMillis().entrySet()) {
+            String stage = "launcher." + phase.getKey();
+            metrics.recordRetries(template, stage, timings.getRetries().getOrDefault(phase.getKey(), 0));
+            metrics.record(template, stage, !phase.getKey().equals(failedPhase), TimeUnit.MILLISECONDS.toNanos(phase.getValue()));
+            totalMillis += phase.getValue();
         }
-        return -1;
+        metrics.record(template, "launcher", success, TimeUnit.MILLISECONDS.toNanos(totalMillis));
     }
 
     private void tearDownSession(Session session, final TaskListener listener) {
@@ -0,0 +1,130 @@
+package com.oracle.cloud.baremetal.jenkins.ssh;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.trilead.ssh2.Connection;
+
+import jenkins.util.Timer;
+
+/**
+ * Hands the authenticated SSH connection used to check that a new instance
+ * is reachable over to {@link SshComputerLauncher}, so that the launcher
+ * does not repeat the key exchange and authentication.
+ * <p>
+ * Connections are keyed by instance id and closed if they are not taken
+ * within a few minutes.
+ */
+public class SshConnectionHandoff {
+    private static final Logger LOGGER = Logger.getLogger(SshConnectionHandoff.class.getName());
+
+    static final long DEFAULT_TTL_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    public static final SshConnectionHandoff INSTANCE = new SshConnectionHandoff(DEFAULT_TTL_NANOS);
+
+    private static final class Entry {
+        final String host;
+        final String user;
+        final Connection connection;
+        final long expiresNanos;
+
+        Entry(String host, String user, Connection connection, long expiresNanos) {
+            this.host = host;
+            this.user = user;
+            this.connection = connection;
+            this.expiresNanos = expiresNanos;
+        }
+    }
+
+    private final long ttlNanos;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    SshConnectionHandoff(long ttlNanos) {
+        this.ttlNanos = ttlNanos;
+    }
+
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    void schedule(Runnable task, long delayNanos) {
+        Timer.get().schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Keeps an authenticated connection until the launcher of the instance
+     * takes it. A connection offered before for the instance is closed.
+     *
+     * @param instanceId the instance id
+     * @param host the host the connection is connected to
+     * @param user the user the connection is authenticated as
+     * @param connection the connection
+     */
+    public void offer(String instanceId, String host, String user, Connection connection) {
+        expire();
+        Entry previous = entries.put(instanceId, new Entry(host, user, connection, nanoTime() + ttlNanos));
+        if (previous != null) {
+            close(previous);
+        }
+        schedule(this::expire, ttlNanos);
+    }
+
+    /**
+     * @param instanceId the instance id
+     * @param host the host the launcher connects to
+     * @param user the user the launcher authenticates as
+     * @return the connection offered for the instance, or null if there is
+     *         none or it does not match the host and user
+     */
+    public Connection take(String instanceId, String host, String user) {
+        expire();
+        Entry entry = entries.remove(instanceId);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.host.equals(host) || !entry.user.equals(user)) {
+            LOGGER.log(Level.FINE, "Discarding SSH connection to {0}@{1} offered for {2}",
+                    new Object[] {entry.user, entry.host, instanceId});
+            close(entry);
+            return null;
+        }
+        return entry.connection;
+    }
+
+    /**
+     * Closes the connection offered for an instance, if any.
+     *
+     * @param instanceId the instance id
+     */
+    public void discard(String instanceId) {
+        Entry entry = entries.remove(instanceId);
+        if (entry != null) {
+            close(entry);
+        }
+    }
+
+    void expire() {
+        long now = nanoTime();
+        entries.forEach((instanceId, entry) -> {
+            if (now - entry.expiresNanos >= 0 && entries.remove(instanceId, entry)) {
+                LOGGER.log(Level.FINE, "SSH connection offered for {0} was not taken", instanceId);
+                close(entry);
+            }
+        });
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static void close(Entry entry) {
+        try {
+            entry.connection.close();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "Failed to close SSH connection to " + entry.host, e);
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.oracle.cloud.baremetal.jenkins.ssh;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -28,6 +27,17 @@ public class SshConnector {
         return conn.connect(new VerifySshServerHostKeyVerifier(), timeoutMillis, timeoutMillis);
     }
 
+    /**
+     * @param conn a connected connection
+     * @param user the user
+     * @param privateKey the PEM private key
+     * @return true if the connection is authenticated
+     * @throws IOException if authentication could not be attempted
+     */
+    public static boolean authenticate(Connection conn, String user, String privateKey) throws IOException {
+        return conn.authenticateWithPublicKey(user, privateKey.toCharArray(), null);
+    }
+
     static class NoSshServerHostKeyVerifier implements ServerHostKeyVerifier {
         @Override
         public boolean verifyServerHostKey(String hostname, int port, String serverHostKeyAlgorithm, byte[] serverHostKey) {
@@ -38,30 +48,14 @@ public class SshConnector {
     static class VerifySshServerHostKeyVerifier implements ServerHostKeyVerifier {
         @Override
         public boolean verifyServerHostKey(String hostname, int port, String serverHostKeyAlgorithm, byte[] serverHostKey) throws IOException, InterruptedException {
-            KnownHosts knownHosts;
-            File knownhostsfile = new File("./known_hosts");
-            if (!knownhostsfile.exists()){
-                FileCreator fc = new FileCreator();
-                fc.createfilename="known_hosts";
-                try {
-                    fc.createFileOnMaster();
-                } catch(InterruptedException e){
-                    //log.error("Could not create known hosts file, change verification strategy.)
-                }
-                knownhostsfile = new File("./known_hosts");
-                if(!knownhostsfile.exists()){
-                    throw new RuntimeException("No known host file to verify");
-                }
-            }
-            knownHosts = new KnownHosts(knownhostsfile);
-            int fingerprintMatch = knownHosts.verifyHostkey(hostname, serverHostKeyAlgorithm, serverHostKey);
-            if (fingerprintMatch == 0 ) {
+            int fingerprintMatch = KnownHostsStore.INSTANCE.verify(hostname, serverHostKeyAlgorithm, serverHostKey);
+            if (fingerprintMatch == KnownHosts.HOSTKEY_IS_OK) {
                 return true;
-            } else if (fingerprintMatch == 1) {
-                String[] hostnames = new String[]{hostname};
-                KnownHosts.addHostkeyToFile(knownhostsfile,hostnames, serverHostKeyAlgorithm, serverHostKey);
+            } else if (fingerprintMatch == KnownHosts.HOSTKEY_IS_NEW) {
+                KnownHostsStore.INSTANCE.add(hostname, serverHostKeyAlgorithm, serverHostKey);
                 return true;
             }
+            LOGGER.log(Level.WARNING, "Host key of {0} has changed", hostname);
             return false;
         }
     }
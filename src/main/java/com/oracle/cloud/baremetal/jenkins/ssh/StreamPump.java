@@ -0,0 +1,78 @@
+package com.oracle.cloud.baremetal.jenkins.ssh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Copies a remote output stream to a local stream on its own thread, so that
+ * stdout and stderr of a session are drained at the same time and neither
+ * can fill its channel window and block the remote process.
+ */
+final class StreamPump implements Runnable {
+    private static final Logger LOGGER = Logger.getLogger(StreamPump.class.getName());
+
+    private final InputStream in;
+    private final OutputStream out;
+    private final Thread thread;
+
+    private StreamPump(InputStream in, OutputStream out, String name) {
+        this.in = in;
+        this.out = out;
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * @param in the remote stream
+     * @param out the local stream, which is flushed but not closed
+     * @param name the thread name
+     * @return the started pump
+     */
+    static StreamPump start(InputStream in, OutputStream out, String name) {
+        StreamPump pump = new StreamPump(in, out, name);
+        pump.thread.start();
+        return pump;
+    }
+
+    @Override
+    public void run() {
+        byte[] buffer = new byte[8192];
+        try {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+                out.flush();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Stopped copying " + thread.getName(), e);
+        }
+    }
+
+    /**
+     * Stops copying before the end of the remote stream, for a remote
+     * process which is abandoned.
+     */
+    void stop() {
+        thread.interrupt();
+        try {
+            in.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to close " + thread.getName(), e);
+        }
+    }
+
+    /**
+     * Waits for the end of the remote stream.
+     *
+     * @param timeoutMillis the maximum time to wait
+     * @return true if the whole stream was copied
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean join(long timeoutMillis) throws InterruptedException {
+        thread.join(timeoutMillis);
+        return !thread.isAlive();
+    }
+}
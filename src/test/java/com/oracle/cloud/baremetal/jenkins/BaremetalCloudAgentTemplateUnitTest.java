@@ -184,6 +184,14 @@ public class BaremetalCloudAgentTemplateUnitTest {
         Assert.assertEquals(FormValidation.Kind.ERROR, new BaremetalCloudAgentTemplate.DescriptorImpl().doCheckNumExecutors("-1").kind);
     }
 
+    @Test
+    public void testDoCheckInboundAgent() {
+        Assert.assertEquals(FormValidation.Kind.OK, new BaremetalCloudAgentTemplate.DescriptorImpl().doCheckInboundAgent(null, true).kind);
+        Assert.assertEquals(FormValidation.Kind.OK, new BaremetalCloudAgentTemplate.DescriptorImpl().doCheckInboundAgent(false, true).kind);
+        Assert.assertEquals(FormValidation.Kind.OK, new BaremetalCloudAgentTemplate.DescriptorImpl().doCheckInboundAgent(true, false).kind);
+        Assert.assertEquals(FormValidation.Kind.ERROR, new BaremetalCloudAgentTemplate.DescriptorImpl().doCheckInboundAgent(true, true).kind);
+    }
+
     @Test
     public void testDoCheckLabelString() {
         Assert.assertEquals(FormValidation.Kind.OK, new BaremetalCloudAgentTemplate.DescriptorImpl().doCheckLabelString(null, Node.Mode.NORMAL).kind);
@@ -3,6 +3,7 @@ package com.oracle.cloud.baremetal.jenkins;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 
 import org.jmock.Expectations;
 import org.junit.Assert;
@@ -52,6 +53,31 @@ public class BaremetalCloudAgentUnitTest {
         agent._terminate(newTerminateTaskListener());
     }
 
+    @Test
+    public void testTerminateInboundStopOnIdle() throws Exception {
+        final BaremetalCloudClient client = mockery.mock(BaremetalCloudClient.class);
+        mockery.checking(new Expectations() {{
+            oneOf(client).terminateInstance("in");
+            oneOf(client).waitForInstanceTerminationToComplete("in");
+        }});
+        BaremetalCloudAgentTemplate template = new TestBaremetalCloudAgentTemplate.Builder()
+                .templateId(1)
+                .stopOnIdle(true)
+                .build();
+        template.setInboundAgent(true);
+
+        TestBaremetalCloudAgent agent = new TestBaremetalCloudAgent.Builder()
+                .instanceId("in")
+                .templateId(1)
+                .cloud(new TestBaremetalCloud.Builder()
+                        .templates(Arrays.asList(template))
+                        .client(client)
+                        .clock(new TestClock())
+                        .build())
+                .build();
+        agent._terminate(newTerminateTaskListener());
+    }
+
     @Test(expected = IOException.class)
     public void testTerminateStopError() throws Exception {
         final BaremetalCloudClient client = mockery.mock(BaremetalCloudClient.class);
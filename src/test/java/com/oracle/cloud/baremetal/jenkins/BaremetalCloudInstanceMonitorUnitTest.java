@@ -1,6 +1,7 @@
 package com.oracle.cloud.baremetal.jenkins;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import hudson.slaves.Cloud;
@@ -74,6 +75,80 @@ public class BaremetalCloudInstanceMonitorUnitTest {
         Assert.assertTrue(monitor.removed);
     }
 
+    private TestBaremetalCloudAgent newListedBaremetalCloudAgent(List<Instance> instances, Instance.LifecycleState state, final boolean terminate) throws Exception {
+        final BaremetalCloudClient client = mockery.mock(BaremetalCloudClient.class);
+        mockery.checking(new Expectations() {{
+            oneOf(client).getInstancesList("comp"); will(returnValue(instances));
+            if (state != null) {
+                oneOf(client).getInstanceState("in"); will(returnValue(state));
+            }
+            if (terminate) {
+                oneOf(client).terminateInstance("in");
+                oneOf(client).waitForInstanceTerminationToComplete("in");
+            }
+        }});
+        BaremetalCloudAgentTemplate template = new TestBaremetalCloudAgentTemplate.Builder()
+                .templateId(1)
+                .compartmentId("comp")
+                .build();
+        return new TestBaremetalCloudAgent.Builder()
+                .instanceId("in")
+                .templateId(1)
+                .cloud(new TestBaremetalCloud.Builder().client(client).clock(new TestClock()).templates(Arrays.asList(template)).build())
+                .build();
+    }
+
+    private static Instance newInstance(String id, Instance.LifecycleState state) {
+        return Instance.builder().id(id).lifecycleState(state).build();
+    }
+
+    @Test
+    public void testExecuteListedAlive() throws Exception {
+        TestBaremetalCloudAgent agent = newListedBaremetalCloudAgent(
+                Arrays.asList(newInstance("other", Instance.LifecycleState.Terminated), newInstance("in", Instance.LifecycleState.Running)),
+                null, false);
+        TestBaremetalCloudInstanceMonitor monitor = new TestBaremetalCloudInstanceMonitor(agent);
+        monitor.execute(null);
+        Assert.assertFalse(monitor.removed);
+    }
+
+    @Test
+    public void testExecuteListedNotAlive() throws Exception {
+        TestBaremetalCloudAgent agent = newListedBaremetalCloudAgent(
+                Arrays.asList(newInstance("in", Instance.LifecycleState.Stopped)),
+                null, true);
+        TestBaremetalCloudInstanceMonitor monitor = new TestBaremetalCloudInstanceMonitor(agent);
+        monitor.execute(null);
+        Assert.assertTrue(monitor.removed);
+    }
+
+    @Test
+    public void testExecuteNotListed() throws Exception {
+        TestBaremetalCloudAgent agent = newListedBaremetalCloudAgent(
+                Collections.<Instance>emptyList(),
+                Instance.LifecycleState.Running, false);
+        TestBaremetalCloudInstanceMonitor monitor = new TestBaremetalCloudInstanceMonitor(agent);
+        monitor.execute(null);
+        Assert.assertFalse(monitor.removed);
+    }
+
+    @Test
+    public void testExecuteTerminateError() throws Exception {
+        final BaremetalCloudClient client = mockery.mock(BaremetalCloudClient.class);
+        mockery.checking(new Expectations() {{
+            oneOf(client).getInstanceState("in"); will(returnValue(Instance.LifecycleState.Stopped));
+            oneOf(client).terminateInstance("in"); will(throwException(new Exception("terminate")));
+        }});
+        TestBaremetalCloudAgent agent = new TestBaremetalCloudAgent.Builder()
+                .instanceId("in")
+                .cloud(new TestBaremetalCloud.Builder().client(client).clock(new TestClock()).build())
+                .build();
+        TestBaremetalCloudInstanceMonitor monitor = new TestBaremetalCloudInstanceMonitor(agent);
+        monitor.execute(null);
+        Assert.assertFalse(monitor.removed);
+        Assert.assertEquals(0, monitor.getPendingTerminationCount());
+    }
+
     @Test
     public void testExecuteError() {
         TestBaremetalCloudAgent agent = new TestBaremetalCloudAgent.Builder().build();
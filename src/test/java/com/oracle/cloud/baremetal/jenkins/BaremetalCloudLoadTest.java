@@ -0,0 +1,201 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oracle.bmc.core.model.Instance;
+import com.oracle.cloud.baremetal.jenkins.client.FakeOciServer;
+import com.oracle.cloud.baremetal.jenkins.client.SDKBaremetalCloudClient;
+
+import hudson.model.Node;
+import hudson.model.labels.LabelAtom;
+import hudson.slaves.NodeProvisioner.PlannedNode;
+
+/**
+ * Drives {@link BaremetalCloud#provision} through the real SDK clients
+ * against {@link FakeOciServer}. The SSH probe is skipped, so no Jenkins is
+ * needed. The scale and latency can be raised with system properties, for
+ * example {@code -Dfake.launches=500 -Dfake.maxLatencyMillis=200}.
+ */
+public class BaremetalCloudLoadTest {
+    private static final Logger LOGGER = Logger.getLogger(BaremetalCloudLoadTest.class.getName());
+
+    private static final int LAUNCHES = Integer.getInteger("fake.launches", 20);
+    private static final long MIN_LATENCY_MILLIS = Long.getLong("fake.minLatencyMillis", 5);
+    private static final long MAX_LATENCY_MILLIS = Long.getLong("fake.maxLatencyMillis", 20);
+    private static final long PROVISIONING_MILLIS = Long.getLong("fake.provisioningMillis", 500);
+    private static final long TIMEOUT_MINUTES = Long.getLong("fake.timeoutMinutes", 5);
+
+    private static final String LABEL = "fake";
+    private static final String PUBLIC_KEY = "ssh-rsa AAAAB3NzaC1yc2EAAAADAQABAAAAYQCphMI+vErH97+bZKJWc8ADbw7PzwxgUsQvANRarF0Poaxmv4/yQf0fsVz0r6/2tSlmj4pV6oQC7fPuyyH4OE21MXYV1XVSbqYWuycAVAgR/OwxVUM3OcKiSeyeoiBmTTc=";
+
+    static class LoadTestTemplate extends TestBaremetalCloudAgentTemplate {
+        LoadTestTemplate() {
+            super(new TestBaremetalCloudAgentTemplate.Builder()
+                    .templateId(1)
+                    .compartmentId(FakeOciServer.COMPARTMENT_ID)
+                    .availableDomain(FakeOciServer.AVAILABILITY_DOMAIN)
+                    .subnetId(FakeOciServer.SUBNET_ID)
+                    .imageId(FakeOciServer.IMAGE_ID)
+                    .shape(FakeOciServer.SHAPE)
+                    .ocpu("1")
+                    .memoryInGBs("4")
+                    .numExecutors("1")
+                    .labelString(LABEL)
+                    .mode(Node.Mode.NORMAL)
+                    .assignPublicIP(true)
+                    .stopOnIdle(false)
+                    .startTimeoutSeconds(String.valueOf(TimeUnit.MINUTES.toSeconds(TIMEOUT_MINUTES))));
+        }
+
+        @Override
+        public String getPublicKey() {
+            return PUBLIC_KEY;
+        }
+    }
+
+    static class LoadTestCloud extends TestBaremetalCloud {
+        final NodeCountIndex index = new NodeCountIndex(new TestClock());
+
+        LoadTestCloud(TestBaremetalCloud.Builder builder) {
+            super(builder);
+        }
+
+        @Override
+        NodeCountIndex getNodeCountIndex() {
+            return index;
+        }
+
+        @Override
+        boolean probeSsh(ProvisionState state, BaremetalCloudAgentTemplate template) {
+            return true;
+        }
+
+        @Override
+        BaremetalCloudAgent newBaremetalCloudAgent(String name, BaremetalCloudAgentTemplate template,
+                String cloudName, String instanceId, String host) {
+            return new TestBaremetalCloudAgent.Builder()
+                    .name(name)
+                    .cloudName(cloudName)
+                    .instanceId(instanceId)
+                    .templateId(template.getTemplateId())
+                    .build();
+        }
+    }
+
+    private FakeOciServer server;
+    private SDKBaremetalCloudClient client;
+    private LoadTestTemplate template;
+    private LoadTestCloud cloud;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeOciServer()
+                .latency(Duration.ofMillis(MIN_LATENCY_MILLIS), Duration.ofMillis(MAX_LATENCY_MILLIS))
+                .lifecycle(Duration.ofMillis(PROVISIONING_MILLIS), Duration.ofMillis(PROVISIONING_MILLIS))
+                .pageSize(7);
+        client = server.newClient(10);
+        template = new LoadTestTemplate();
+        cloud = new LoadTestCloud(new TestBaremetalCloud.Builder()
+                .cloudName("load")
+                .instanceCapStr(String.valueOf(LAUNCHES * 2))
+                .templates(Collections.singletonList(template))
+                .client(client));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (client != null) {
+            client.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    /**
+     * @return the instance ids of the provisioned agents, or of as many as succeeded
+     */
+    private Set<String> provision(int count, boolean failuresAllowed) throws Exception {
+        long startNanos = System.nanoTime();
+        Collection<PlannedNode> planned = cloud.provision(new LabelAtom(LABEL), count);
+        Assert.assertEquals(count, planned.size());
+
+        Set<String> instanceIds = new HashSet<>();
+        int failures = 0;
+        for (PlannedNode node : planned) {
+            try {
+                instanceIds.add(((BaremetalCloudAgent) node.future.get(TIMEOUT_MINUTES, TimeUnit.MINUTES)).getInstanceId());
+            } catch (ExecutionException e) {
+                if (!failuresAllowed) {
+                    throw e;
+                }
+                failures++;
+            }
+        }
+        LOGGER.info(String.format("Provisioned %d of %d agents in %d ms with %d requests, %d throttled, at most %d concurrent",
+                instanceIds.size(), count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                server.getRequestCount(), server.getThrottledCount(), server.getMaxConcurrentRequests()));
+        Assert.assertEquals(count, instanceIds.size() + failures);
+        return instanceIds;
+    }
+
+    @Test
+    public void testProvisionAtScale() throws Exception {
+        Set<String> instanceIds = provision(LAUNCHES, false);
+
+        Assert.assertEquals(LAUNCHES, instanceIds.size());
+        Assert.assertEquals(LAUNCHES, server.getInstanceCount(Instance.LifecycleState.Running));
+        Assert.assertEquals(LAUNCHES, server.getOperationCount("LaunchInstance"));
+        Assert.assertEquals(LAUNCHES, cloud.getTemplateNodeCount(template.getTemplateId()));
+
+        for (String instanceId : instanceIds) {
+            client.terminateInstance(instanceId);
+        }
+        Assert.assertEquals(0, server.getInstanceCount(Instance.LifecycleState.Running));
+    }
+
+    @Test
+    public void testPagination() throws Exception {
+        List<String> running = server.addInstances(20, Instance.LifecycleState.Running);
+        List<String> stopped = server.addInstances(10, Instance.LifecycleState.Stopped);
+
+        Assert.assertEquals(running.size() + stopped.size(), client.getInstancesList(FakeOciServer.COMPARTMENT_ID).size());
+        // 30 instances in pages of 7
+        Assert.assertEquals(5, server.getOperationCount("ListInstances"));
+
+        Set<String> ids = new HashSet<>();
+        for (Instance instance : client.getStoppedInstances(FakeOciServer.COMPARTMENT_ID, FakeOciServer.AVAILABILITY_DOMAIN)) {
+            ids.add(instance.getId());
+        }
+        Assert.assertEquals(new HashSet<>(stopped), ids);
+    }
+
+    @Test
+    public void testThrottleStorm() throws Exception {
+        server.throttle(0.2, "0");
+        int count = Math.max(1, LAUNCHES / 2);
+
+        Set<String> instanceIds = provision(count, true);
+
+        Assert.assertTrue(server.getThrottledCount() > 0);
+        // Throttling says nothing about the template.
+        Assert.assertNull(template.getDisableCause());
+        Assert.assertFalse(template.isTemplateSleep());
+        server.throttle(0, null);
+        // Instances of failed provisions are terminated in the background.
+        Assert.assertTrue(server.getInstanceCount(Instance.LifecycleState.Running) >= instanceIds.size());
+    }
+}
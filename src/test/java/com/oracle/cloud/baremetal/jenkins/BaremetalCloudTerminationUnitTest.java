@@ -0,0 +1,63 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.oracle.cloud.baremetal.jenkins.client.BaremetalCloudClient;
+
+public class BaremetalCloudTerminationUnitTest {
+    @Rule
+    public final BaremetalCloudMockery mockery = new BaremetalCloudMockery();
+
+    @Test
+    public void testJoinTerminateInProgress() throws Exception {
+        final BaremetalCloudClient client = mockery.mock(BaremetalCloudClient.class);
+        final TestBaremetalCloud cloud = new TestBaremetalCloud.Builder().client(client).clock(new TestClock()).build();
+        mockery.checking(new Expectations() {{
+            oneOf(client).terminateInstance("join");
+            // The second request arrives while the first one is waiting.
+            oneOf(client).waitForInstanceTerminationToComplete("join"); will(new CustomAction("terminate again") {
+                @Override
+                public Object invoke(Invocation invocation) throws Throwable {
+                    cloud.recycleCloudResources("join");
+                    return null;
+                }
+            });
+        }});
+
+        cloud.recycleCloudResources("join");
+        Assert.assertNull(BaremetalCloud.TERMINATIONS.get("join"));
+    }
+
+    @Test
+    public void testTerminateWhileStopping() throws Exception {
+        final BaremetalCloudClient client = mockery.mock(BaremetalCloudClient.class);
+        final TestBaremetalCloud cloud = new TestBaremetalCloud.Builder().client(client).clock(new TestClock()).build();
+        final AtomicReference<CompletableFuture<Void>> terminated = new AtomicReference<>();
+        mockery.checking(new Expectations() {{
+            oneOf(client).stopInstance("stopping");
+            // The terminate request arrives while the stop is waiting.
+            oneOf(client).waitForInstanceTerminationToComplete("stopping"); will(new CustomAction("terminate") {
+                @Override
+                public Object invoke(Invocation invocation) throws Throwable {
+                    terminated.set(cloud.requestTermination("stopping", TerminationTracker.Action.TERMINATE));
+                    return null;
+                }
+            });
+            oneOf(client).terminateInstance("stopping");
+            oneOf(client).waitForInstanceTerminationToComplete("stopping");
+        }});
+
+        cloud.stopCloudResources("stopping");
+        Assert.assertTrue(terminated.get().isDone());
+        Assert.assertFalse(terminated.get().isCompletedExceptionally());
+        Assert.assertNull(BaremetalCloud.TERMINATIONS.get("stopping"));
+    }
+}
@@ -0,0 +1,56 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jmock.Expectations;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.oracle.bmc.core.model.Image;
+import com.oracle.cloud.baremetal.jenkins.client.BaremetalCloudClient;
+
+public class ImageCatalogUnitTest {
+    @Rule
+    public final BaremetalCloudMockery mockery = new BaremetalCloudMockery();
+
+    private static Image newImage(String id, String displayName, long timeCreated) {
+        return Image.builder()
+                .id(id)
+                .displayName(displayName)
+                .timeCreated(new Date(timeCreated))
+                .build();
+    }
+
+    @Test
+    public void testGetNewerImage() {
+        ImageCatalog catalog = new ImageCatalog(Arrays.asList(
+                newImage("a1", "a", 1),
+                newImage("a3", "a", 3),
+                newImage("a2", "a", 2),
+                newImage("b1", "b", 1)));
+        Assert.assertEquals("a3", catalog.getNewerImage("a1").getId());
+        Assert.assertEquals("a3", catalog.getNewerImage("a2").getId());
+        Assert.assertNull(catalog.getNewerImage("a3"));
+        Assert.assertNull(catalog.getNewerImage("b1"));
+        Assert.assertNull(catalog.getNewerImage("unknown"));
+        Assert.assertEquals(4, catalog.size());
+    }
+
+    @Test
+    public void testGetImageCatalogListsOnce() throws Exception {
+        BaremetalCloudClient client = mockery.mock(BaremetalCloudClient.class);
+        mockery.checking(new Expectations() {{
+            oneOf(client).getImagesList("comp"); will(returnValue(Arrays.asList(newImage("a1", "a", 1))));
+            oneOf(client).getImagesList("other"); will(returnValue(Arrays.asList(newImage("b1", "b", 1))));
+        }});
+
+        Map<String, ImageCatalog> catalogs = new HashMap<>();
+        ImageCatalog catalog = BaremetalCloudTemplateMonitor.getImageCatalog(catalogs, client, "cred", "comp");
+        Assert.assertSame(catalog, BaremetalCloudTemplateMonitor.getImageCatalog(catalogs, client, "cred", "comp"));
+        Assert.assertNotSame(catalog, BaremetalCloudTemplateMonitor.getImageCatalog(catalogs, client, "cred", "other"));
+    }
+}
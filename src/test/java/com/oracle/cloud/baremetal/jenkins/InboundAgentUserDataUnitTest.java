@@ -0,0 +1,31 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InboundAgentUserDataUnitTest {
+
+    @Test
+    public void testBuild() {
+        String script = InboundAgentUserData.build("https://jenkins/", "oci-compute-1", "s3cr3t", "opc",
+                "/home/opc/agent", "", "-Xmx1g", "echo init");
+        Assert.assertTrue(script, script.startsWith("#!/bin/bash\n"));
+        Assert.assertTrue(script, script.contains("dir='/home/opc/agent'\n"));
+        Assert.assertTrue(script, script.contains("echo init\n"));
+        Assert.assertTrue(script, script.contains("curl -fsS -o \"$dir/agent.jar\" 'https://jenkins/jnlpJars/agent.jar'"));
+        Assert.assertTrue(script, script.contains("java -Xmx1g -jar \"$dir/agent.jar\" -url 'https://jenkins/'"
+                + " -name 'oci-compute-1' -secret 's3cr3t' -webSocket"));
+    }
+
+    @Test
+    public void testBuildDefaults() {
+        String script = InboundAgentUserData.build("https://jenkins/", "a", "s", "opc", "", null, null, null);
+        Assert.assertTrue(script, script.contains("dir=$(getent passwd \"$user\" | cut -d: -f6)\n"));
+        Assert.assertFalse(script, script.contains("init.sh"));
+    }
+
+    @Test
+    public void testQuote() {
+        Assert.assertEquals("'it'\\''s'", InboundAgentUserData.quote("it's"));
+    }
+}
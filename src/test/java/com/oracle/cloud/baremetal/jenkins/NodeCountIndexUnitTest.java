@@ -0,0 +1,67 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NodeCountIndexUnitTest {
+
+    private static BaremetalCloudAgent newAgent(String name, String cloudName, int templateId) {
+        return new TestBaremetalCloudAgent.Builder()
+                .name(name)
+                .cloudName(cloudName)
+                .templateId(templateId)
+                .build();
+    }
+
+    @Test
+    public void testCounts() {
+        NodeCountIndex index = new NodeCountIndex(new TestClock());
+        index.nodeAdded(newAgent("a1", "c1", 1));
+        index.nodeAdded(newAgent("a1", "c1", 1));
+        index.nodeAdded(newAgent("a2", "c1", 2));
+        index.nodeAdded(newAgent("a3", "c2", 1));
+        index.pendingAdded("c1", 1, "p1");
+
+        Assert.assertEquals(3, index.count("c1"));
+        Assert.assertEquals(2, index.count("c1", 1));
+        Assert.assertEquals(1, index.count("c1", 2));
+        Assert.assertEquals(1, index.count("c2"));
+        Assert.assertEquals(0, index.count("c3"));
+
+        index.pendingRemoved("c1", 1, "p1");
+        index.nodeRemoved(newAgent("a2", "c1", 2));
+        Assert.assertEquals(1, index.count("c1"));
+        Assert.assertEquals(0, index.count("c1", 2));
+    }
+
+    @Test
+    public void testRebuild() {
+        TestClock clock = new TestClock();
+        NodeCountIndex index = new NodeCountIndex(clock);
+        index.nodeAdded(newAgent("gone", "c1", 1));
+        index.pendingAdded("c1", 1, "p1");
+
+        index.rebuild(Arrays.asList(newAgent("a1", "c1", 1), newAgent("a2", "c1", 1)));
+        // "gone" was counted too recently to be dropped
+        Assert.assertEquals(4, index.count("c1", 1));
+
+        clock.sleep(TimeUnit.MINUTES.toMillis(1));
+        index.rebuild(Arrays.asList(newAgent("a1", "c1", 1), newAgent("a2", "c1", 1)));
+        Assert.assertEquals(3, index.count("c1", 1));
+
+        index.rebuild(Collections.emptyList());
+        Assert.assertEquals(1, index.count("c1", 1));
+    }
+
+    @Test
+    public void testEnsureInitialized() {
+        NodeCountIndex index = new NodeCountIndex(new TestClock());
+        index.ensureInitialized(() -> Arrays.asList(newAgent("a1", "c1", 1)));
+        index.ensureInitialized(() -> Arrays.asList(newAgent("a1", "c1", 1), newAgent("a2", "c1", 1)));
+        Assert.assertEquals(1, index.count("c1"));
+    }
+}
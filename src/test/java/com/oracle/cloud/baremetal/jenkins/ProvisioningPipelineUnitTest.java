@@ -0,0 +1,78 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class ProvisioningPipelineUnitTest {
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final TestClock clock = new TestClock();
+    private final ProvisioningPipeline pipeline = new ProvisioningPipeline(
+            stage -> MoreExecutors.newDirectExecutorService(), scheduler, clock);
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testSubmit() throws Exception {
+        Assert.assertEquals("ok", pipeline.submit(ProvisioningPipeline.Stage.LAUNCH, () -> "ok").get());
+    }
+
+    @Test
+    public void testSubmitFailure() throws Exception {
+        try {
+            pipeline.submit(ProvisioningPipeline.Stage.LAUNCH, () -> {
+                throw new IOException("test");
+            }).get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testPoll() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        String result = pipeline.poll(ProvisioningPipeline.Stage.API,
+                () -> attempts.incrementAndGet() < 3 ? null : "ok",
+                0, 1, "timeout").get(10, TimeUnit.SECONDS);
+        Assert.assertEquals("ok", result);
+        Assert.assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void testPollTimeout() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            pipeline.poll(ProvisioningPipeline.Stage.SSH, () -> {
+                attempts.incrementAndGet();
+                clock.sleep(1000);
+                return null;
+            }, TimeUnit.SECONDS.toNanos(3), 1, "timeout").get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+            Assert.assertEquals("timeout", e.getCause().getMessage());
+        }
+        Assert.assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void testUnwrap() {
+        IOException e = new IOException("test");
+        Assert.assertSame(e, ProvisioningPipeline.unwrap(new CompletionException(e)));
+        Assert.assertSame(e, ProvisioningPipeline.unwrap(e));
+    }
+}
@@ -0,0 +1,75 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.jmock.Expectations;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.oracle.bmc.core.model.Instance;
+import com.oracle.cloud.baremetal.jenkins.client.BaremetalCloudClient;
+
+public class StoppedInstanceIndexUnitTest {
+    @Rule
+    public final BaremetalCloudMockery mockery = new BaremetalCloudMockery();
+
+    private static final String PREFIX = "jenkins-1.2.3.4-";
+
+    private static Instance newInstance(String id, String displayName) {
+        return Instance.builder()
+                .id(id)
+                .displayName(displayName)
+                .shape("shape")
+                .imageId("image")
+                .lifecycleState(Instance.LifecycleState.Stopped)
+                .build();
+    }
+
+    @Test
+    public void testGetNamePrefix() {
+        Assert.assertEquals(PREFIX, StoppedInstanceIndex.getNamePrefix(PREFIX + "0b1c2d3e-4f50-6172-8394-a5b6c7d8e9f0"));
+        Assert.assertNull(StoppedInstanceIndex.getNamePrefix("my-instance"));
+        Assert.assertNull(StoppedInstanceIndex.getNamePrefix(null));
+    }
+
+    @Test
+    public void testClaim() throws Exception {
+        BaremetalCloudClient client = mockery.mock(BaremetalCloudClient.class);
+        mockery.checking(new Expectations() {{
+            oneOf(client).getStoppedInstances("comp", "ad"); will(returnValue(Arrays.asList(
+                    newInstance("i1", PREFIX + "0b1c2d3e-4f50-6172-8394-a5b6c7d8e9f0"),
+                    newInstance("i2", "jenkins-other-1.2.3.4-0b1c2d3e-4f50-6172-8394-a5b6c7d8e9f1"))));
+        }});
+
+        StoppedInstanceIndex index = new StoppedInstanceIndex(new TestClock());
+        Instance instance = index.claim(client, "comp", "ad", "shape", "image", PREFIX);
+        Assert.assertEquals("i1", instance.getId());
+        // The list is not read again before it is stale, and i1 cannot be claimed twice.
+        Assert.assertNull(index.claim(client, "comp", "ad", "shape", "image", PREFIX));
+        Assert.assertNull(index.claim(client, "comp", "ad", "other", "image", PREFIX));
+    }
+
+    @Test
+    public void testClaimedNotRelisted() throws Exception {
+        TestClock clock = new TestClock();
+        BaremetalCloudClient client = mockery.mock(BaremetalCloudClient.class);
+        mockery.checking(new Expectations() {{
+            exactly(3).of(client).getStoppedInstances("comp", "ad"); will(returnValue(Collections.singletonList(
+                    newInstance("i1", PREFIX + "0b1c2d3e-4f50-6172-8394-a5b6c7d8e9f0"))));
+        }});
+
+        StoppedInstanceIndex index = new StoppedInstanceIndex(clock);
+        Assert.assertNotNull(index.claim(client, "comp", "ad", "shape", "image", PREFIX));
+
+        // Still listed as stopped while starting, but claimed.
+        clock.sleep(TimeUnit.NANOSECONDS.toMillis(StoppedInstanceIndex.REFRESH_NANOS));
+        Assert.assertNull(index.claim(client, "comp", "ad", "shape", "image", PREFIX));
+
+        // Stopped again.
+        index.release("i1");
+        Assert.assertNotNull(index.claim(client, "comp", "ad", "shape", "image", PREFIX));
+    }
+}
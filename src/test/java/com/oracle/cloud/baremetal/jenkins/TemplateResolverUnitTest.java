@@ -0,0 +1,90 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import hudson.model.Node;
+import hudson.model.labels.LabelAtom;
+
+public class TemplateResolverUnitTest {
+
+    @Test
+    public void testCached() {
+        BaremetalCloudAgentTemplate template = new TestBaremetalCloudAgentTemplate();
+        AtomicInteger calls = new AtomicInteger();
+        AtomicLong version = new AtomicLong();
+        TemplateResolver resolver = new TemplateResolver(label -> {
+            calls.incrementAndGet();
+            return label == null || label.getName().equals("a") ? template : null;
+        }, version::get);
+
+        Assert.assertSame(template, resolver.resolve(new LabelAtom("a")));
+        Assert.assertSame(template, resolver.resolve(new LabelAtom("a")));
+        Assert.assertNull(resolver.resolve(new LabelAtom("b")));
+        Assert.assertNull(resolver.resolve(new LabelAtom("b")));
+        Assert.assertSame(template, resolver.resolve(null));
+        Assert.assertSame(template, resolver.resolve(null));
+        Assert.assertEquals(3, calls.get());
+
+        version.incrementAndGet();
+        Assert.assertSame(template, resolver.resolve(new LabelAtom("a")));
+        Assert.assertNull(resolver.resolve(new LabelAtom("b")));
+        Assert.assertSame(template, resolver.resolve(null));
+        Assert.assertEquals(6, calls.get());
+    }
+
+    @Test
+    public void testMaxLabels() {
+        AtomicInteger calls = new AtomicInteger();
+        TemplateResolver resolver = new TemplateResolver(label -> {
+            calls.incrementAndGet();
+            return null;
+        }, () -> 0);
+
+        for (int i = 0; i <= TemplateResolver.MAX_LABELS; i++) {
+            resolver.resolve(new LabelAtom("l" + i));
+        }
+        // The cache was cleared for the last label.
+        resolver.resolve(new LabelAtom("l0"));
+        Assert.assertEquals(TemplateResolver.MAX_LABELS + 2, calls.get());
+    }
+
+    @Test
+    public void testAvailabilityTransitions() {
+        BaremetalCloudAgentTemplate t1 = new TestBaremetalCloudAgentTemplate.Builder()
+                .templateId(1)
+                .labelString("a")
+                .mode(Node.Mode.EXCLUSIVE)
+                .build();
+        BaremetalCloudAgentTemplate t2 = new TestBaremetalCloudAgentTemplate.Builder()
+                .templateId(2)
+                .labelString("a b")
+                .mode(Node.Mode.NORMAL)
+                .build();
+        BaremetalCloud cloud = new TestBaremetalCloud.Builder()
+                .templates(Arrays.asList(t1, t2))
+                .build();
+        LabelAtom a = new LabelAtom("a");
+
+        Assert.assertSame(t1, cloud.getTemplate(a));
+        Assert.assertSame(t2, cloud.getTemplate(null));
+        Assert.assertNull(cloud.getTemplate(new LabelAtom("c")));
+
+        t1.setTemplateSleep(true);
+        Assert.assertSame(t2, cloud.getTemplate(a));
+        t1.setTemplateSleep(false);
+        Assert.assertSame(t1, cloud.getTemplate(a));
+
+        for (int i = 0; i < BaremetalCloudAgentTemplate.FAILURE_COUNT_LIMIT; i++) {
+            t1.increaseFailureCount("failed");
+        }
+        Assert.assertNotNull(t1.getDisableCause());
+        Assert.assertSame(t2, cloud.getTemplate(a));
+        t1.resetFailureCount();
+        Assert.assertSame(t1, cloud.getTemplate(a));
+    }
+}
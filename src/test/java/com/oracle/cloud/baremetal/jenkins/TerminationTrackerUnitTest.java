@@ -0,0 +1,76 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TerminationTrackerUnitTest {
+
+    @Test
+    public void testJoinInProgress() {
+        TerminationTracker tracker = new TerminationTracker();
+        TerminationTracker.Started s1 = tracker.begin("in", TerminationTracker.Action.TERMINATE, new TestClock());
+        TerminationTracker.Started s2 = tracker.begin("in", TerminationTracker.Action.TERMINATE, new TestClock());
+        TerminationTracker.Request r1 = s1.request;
+        TerminationTracker.Request r2 = s2.request;
+
+        Assert.assertTrue(s1.created);
+        Assert.assertFalse(s2.created);
+        Assert.assertSame(r1, r2);
+        Assert.assertEquals(TerminationTracker.State.REQUESTED, r1.getState());
+
+        tracker.waiting(r1);
+        Assert.assertEquals(TerminationTracker.State.WAITING, r2.getState());
+        Assert.assertEquals(1, tracker.getInProgress().size());
+    }
+
+    @Test
+    public void testComplete() {
+        TerminationTracker tracker = new TerminationTracker();
+        TerminationTracker.Request r1 = tracker.begin("in", TerminationTracker.Action.STOP, new TestClock()).request;
+        tracker.complete(r1);
+
+        Assert.assertEquals(TerminationTracker.State.DONE, r1.getState());
+        Assert.assertTrue(r1.completion.isDone());
+        Assert.assertNull(tracker.get("in"));
+
+        TerminationTracker.Started s2 = tracker.begin("in", TerminationTracker.Action.STOP, new TestClock());
+        Assert.assertTrue(s2.created);
+        Assert.assertNotSame(r1, s2.request);
+    }
+
+    @Test
+    public void testFail() {
+        TerminationTracker tracker = new TerminationTracker();
+        TerminationTracker.Request r1 = tracker.begin("in", TerminationTracker.Action.TERMINATE, new TestClock()).request;
+        tracker.fail(r1, new Exception("test"));
+
+        Assert.assertEquals(TerminationTracker.State.FAILED, r1.getState());
+        Assert.assertTrue(r1.completion.isCompletedExceptionally());
+        Assert.assertTrue(tracker.getInProgress().isEmpty());
+    }
+
+    @Test
+    public void testTerminateReplacesStop() {
+        TerminationTracker tracker = new TerminationTracker();
+        TerminationTracker.Request stop = tracker.begin("in", TerminationTracker.Action.STOP, new TestClock()).request;
+        TerminationTracker.Started terminate = tracker.begin("in", TerminationTracker.Action.TERMINATE, new TestClock());
+
+        Assert.assertTrue(terminate.created);
+        Assert.assertNotSame(stop, terminate.request);
+        Assert.assertSame(terminate.request, tracker.get("in"));
+
+        // The stop completing does not forget the terminate.
+        tracker.complete(stop);
+        Assert.assertSame(terminate.request, tracker.get("in"));
+    }
+
+    @Test
+    public void testStopJoinsTerminate() {
+        TerminationTracker tracker = new TerminationTracker();
+        TerminationTracker.Request terminate = tracker.begin("in", TerminationTracker.Action.TERMINATE, new TestClock()).request;
+        TerminationTracker.Started stop = tracker.begin("in", TerminationTracker.Action.STOP, new TestClock());
+
+        Assert.assertFalse(stop.created);
+        Assert.assertSame(terminate, stop.request);
+    }
+}
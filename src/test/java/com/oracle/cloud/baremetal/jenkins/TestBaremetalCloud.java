@@ -3,7 +3,9 @@ package com.oracle.cloud.baremetal.jenkins;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import com.oracle.cloud.baremetal.jenkins.client.BaremetalCloudClient;
 import com.oracle.cloud.baremetal.jenkins.retry.Retry;
 
@@ -83,6 +85,11 @@ public class TestBaremetalCloud extends BaremetalCloud{
         return Objects.requireNonNull(client, "client");
     }
 
+    @Override
+    ExecutorService getTerminationExecutor() {
+        return MoreExecutors.newDirectExecutorService();
+    }
+
     @Override
     public Retry<String> getTerminationRetry(Callable<String> task) {
         return new TestRetry<String>(task);
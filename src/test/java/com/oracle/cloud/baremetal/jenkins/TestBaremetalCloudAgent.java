@@ -11,12 +11,19 @@ import jenkins.model.Jenkins;
 public class TestBaremetalCloudAgent extends BaremetalCloudAgent {
 
     public static class Builder {
+        private String name;
         private String numExecutors;
         private String cloudName;
         private String instanceId;
+        private Integer templateId;
 
         private BaremetalCloud cloud;
 
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
         public Builder numExecutors(String numExecutors) {
             this.numExecutors = numExecutors;
             return this;
@@ -36,6 +43,11 @@ public class TestBaremetalCloudAgent extends BaremetalCloudAgent {
             return this;
         }
 
+        public Builder templateId(int templateId) {
+            this.templateId = templateId;
+            return this;
+        }
+
         public Builder cloud(BaremetalCloud cloud) {
             this.cloud = cloud;
             return this;
@@ -50,9 +62,11 @@ public class TestBaremetalCloudAgent extends BaremetalCloudAgent {
         public TestBaremetalCloudAgent build() {
             StringBuilder xml = new StringBuilder();
             xml.append("<slave class='").append(TestBaremetalCloudAgent.class.getName()).append("'>\n");
+            appendXml(xml, "name", name);
             appendXml(xml, "numExecutors", numExecutors);
             appendXml(xml, "cloudName", cloudName);
             appendXml(xml, "instanceId", instanceId);
+            appendXml(xml, "templateId", templateId);
             xml.append("</slave>");
 
             TestBaremetalCloudAgent agent = (TestBaremetalCloudAgent)Jenkins.XSTREAM2.fromXML(xml.toString());
@@ -0,0 +1,36 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class VirtualThreadsUnitTest {
+
+    @Test
+    public void testFallback() {
+        Assume.assumeFalse(VirtualThreads.isEnabled());
+        ExecutorService fallback = Executors.newSingleThreadExecutor();
+        try {
+            Assert.assertSame(fallback, VirtualThreads.newExecutor("test", () -> fallback));
+        } finally {
+            fallback.shutdown();
+        }
+    }
+
+    @Test
+    public void testVirtualExecutor() throws Exception {
+        Assume.assumeTrue(VirtualThreads.isSupported());
+        ExecutorService executor = VirtualThreads.newVirtualExecutor("test");
+        Assert.assertNotNull(executor);
+        try {
+            String name = executor.submit(() -> Thread.currentThread().getName()).get(10, TimeUnit.SECONDS);
+            Assert.assertTrue(name, name.startsWith("test "));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.oracle.cloud.baremetal.jenkins;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.jmock.Expectations;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.oracle.bmc.core.model.Instance;
+import com.oracle.cloud.baremetal.jenkins.client.BaremetalCloudClient;
+
+public class WarmPoolUnitTest {
+    @Rule
+    public final BaremetalCloudMockery mockery = new BaremetalCloudMockery();
+
+    static class WarmPoolTestCloud extends TestBaremetalCloud {
+        final NodeCountIndex index = new NodeCountIndex(new TestClock());
+
+        WarmPoolTestCloud(TestBaremetalCloud.Builder builder) {
+            super(builder);
+        }
+
+        @Override
+        NodeCountIndex getNodeCountIndex() {
+            return index;
+        }
+
+        @Override
+        BaremetalCloudAgent newBaremetalCloudAgent(String name, BaremetalCloudAgentTemplate template,
+                String cloudName, String instanceId, String host) {
+            return new TestBaremetalCloudAgent.Builder()
+                    .name(name)
+                    .cloudName(cloudName)
+                    .instanceId(instanceId)
+                    .templateId(template.getTemplateId())
+                    .build();
+        }
+    }
+
+    private static Instance newInstance(String id, String displayName, Instance.LifecycleState state) {
+        return Instance.builder().id(id).displayName(displayName).lifecycleState(state).build();
+    }
+
+    private BaremetalCloudAgentTemplate newTemplate(String minWarmSpares) {
+        BaremetalCloudAgentTemplate template = new TestBaremetalCloudAgentTemplate.Builder()
+                .templateId(1)
+                .compartmentId("comp")
+                .build();
+        template.setMinWarmSpares(minWarmSpares);
+        return template;
+    }
+
+    @Test
+    public void testAdoptAndClaim() throws Exception {
+        BaremetalCloudAgentTemplate template = newTemplate("1");
+        BaremetalCloudClient client = mockery.mock(BaremetalCloudClient.class);
+        WarmPoolTestCloud cloud = new WarmPoolTestCloud(new TestBaremetalCloud.Builder()
+                .instanceCapStr("10")
+                .templates(Collections.singletonList(template))
+                .client(client));
+        String prefix = cloud.getSpareInstanceNamePrefix(template);
+        mockery.checking(new Expectations() {{
+            oneOf(client).getInstancesList("comp"); will(returnValue(Arrays.asList(
+                    newInstance("running", prefix + "a", Instance.LifecycleState.Running),
+                    newInstance("starting", prefix + "b", Instance.LifecycleState.Provisioning),
+                    newInstance("other", "jenkins-other", Instance.LifecycleState.Running))));
+            oneOf(client).getInstanceIp(template, "running"); will(returnValue("10.0.0.1"));
+            oneOf(client).terminateInstance("starting");
+            oneOf(client).waitForInstanceTerminationToComplete("starting");
+            oneOf(client).getInstanceState("running"); will(returnValue(Instance.LifecycleState.Running));
+        }});
+
+        WarmPool pool = new WarmPool();
+        pool.maintain(cloud, Collections.emptyList());
+        Assert.assertEquals(1, pool.getReadyCount(cloud.name, 1));
+        Assert.assertEquals(1, cloud.index.count(cloud.name, 1));
+
+        BaremetalCloudAgent agent = pool.claim(cloud, template);
+        Assert.assertNotNull(agent);
+        Assert.assertEquals("running", agent.getInstanceId());
+        Assert.assertEquals(BaremetalCloud.NAME_PREFIX + "a", agent.getNodeName());
+        Assert.assertEquals(0, pool.getReadyCount(cloud.name, 1));
+        Assert.assertEquals(1, cloud.index.count(cloud.name, 1));
+        Assert.assertNull(pool.claim(cloud, template));
+    }
+
+    @Test
+    public void testRetireSurplusAndDead() throws Exception {
+        BaremetalCloudAgentTemplate template = newTemplate("1");
+        BaremetalCloudClient client = mockery.mock(BaremetalCloudClient.class);
+        WarmPoolTestCloud cloud = new WarmPoolTestCloud(new TestBaremetalCloud.Builder()
+                .instanceCapStr("10")
+                .templates(Collections.singletonList(template))
+                .client(client));
+        String prefix = cloud.getSpareInstanceNamePrefix(template);
+        mockery.checking(new Expectations() {{
+            oneOf(client).getInstancesList("comp"); will(returnValue(Arrays.asList(
+                    newInstance("first", prefix + "a", Instance.LifecycleState.Running),
+                    newInstance("second", prefix + "b", Instance.LifecycleState.Running))));
+            oneOf(client).getInstanceIp(template, "first"); will(returnValue("10.0.0.1"));
+            oneOf(client).getInstanceIp(template, "second"); will(returnValue("10.0.0.2"));
+            oneOf(client).getInstanceState("first"); will(returnValue(Instance.LifecycleState.Running));
+            oneOf(client).getInstanceState("second"); will(returnValue(Instance.LifecycleState.Running));
+            oneOf(client).terminateInstance("second");
+            oneOf(client).waitForInstanceTerminationToComplete("second");
+            oneOf(client).getInstanceState("first"); will(returnValue(Instance.LifecycleState.Terminated));
+        }});
+
+        WarmPool pool = new WarmPool();
+        // Two spares were adopted for a minimum of one: the newest is retired.
+        pool.maintain(cloud, Collections.emptyList());
+        Assert.assertEquals(1, pool.getReadyCount(cloud.name, 1));
+        Assert.assertEquals(1, cloud.index.count(cloud.name, 1));
+
+        // A terminated spare is dropped without another terminate request.
+        template.setMinWarmSpares("0");
+        pool.maintain(cloud, Collections.emptyList());
+        Assert.assertEquals(0, pool.getReadyCount(cloud.name, 1));
+        Assert.assertEquals(0, cloud.index.count(cloud.name, 1));
+    }
+}
@@ -0,0 +1,62 @@
+package com.oracle.cloud.baremetal.jenkins.client;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.bmc.model.BmcException;
+
+public class ApiRateLimiterUnitTest {
+
+    @Test
+    public void testIsWrite() {
+        Assert.assertFalse(ApiRateLimiter.isWrite("GET"));
+        Assert.assertFalse(ApiRateLimiter.isWrite("HEAD"));
+        Assert.assertTrue(ApiRateLimiter.isWrite("POST"));
+        Assert.assertTrue(ApiRateLimiter.isWrite("PUT"));
+        Assert.assertTrue(ApiRateLimiter.isWrite("DELETE"));
+    }
+
+    @Test
+    public void testParseRetryAfter() {
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(7), ApiRateLimiter.parseRetryAfter("7"));
+        Assert.assertEquals(ApiRateLimiter.DEFAULT_RETRY_AFTER_NANOS, ApiRateLimiter.parseRetryAfter(null));
+        Assert.assertEquals(ApiRateLimiter.DEFAULT_RETRY_AFTER_NANOS, ApiRateLimiter.parseRetryAfter("soon"));
+        Assert.assertEquals(0, ApiRateLimiter.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+    }
+
+    @Test
+    public void testSeparateBudgets() {
+        ApiRateLimiter limiter = new ApiRateLimiter(20, 5);
+        TokenBucket reads = limiter.getBucket("tenant", "region", false);
+        TokenBucket writes = limiter.getBucket("tenant", "region", true);
+        Assert.assertNotSame(reads, writes);
+        Assert.assertSame(reads, limiter.getBucket("tenant", "region", false));
+        Assert.assertNotSame(reads, limiter.getBucket("tenant", "other", false));
+        Assert.assertNotSame(reads, limiter.getBucket("other", "region", false));
+
+        limiter.onResponse("tenant", "region", true, 429, "0");
+        Assert.assertEquals(1, writes.getStats().throttled);
+        Assert.assertEquals(0, reads.getStats().throttled);
+        Assert.assertEquals(4, limiter.getStats().size());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        ApiRateLimiter limiter = new ApiRateLimiter(0, 0);
+        Assert.assertNull(limiter.getBucket("tenant", "region", false));
+        limiter.acquire("tenant", "region", true);
+        limiter.onResponse("tenant", "region", true, 429, "10");
+        Assert.assertTrue(limiter.getStats().isEmpty());
+    }
+
+    @Test
+    public void testIsThrottled() {
+        BmcException throttled = new BmcException(429, "TooManyRequests", "Too many requests", "id");
+        Assert.assertTrue(ApiRateLimiter.isThrottled(new CompletionException(throttled)));
+        Assert.assertFalse(ApiRateLimiter.isThrottled(new BmcException(500, "InternalError", "failed", "id")));
+        Assert.assertFalse(ApiRateLimiter.isThrottled(new RuntimeException()));
+    }
+}
@@ -0,0 +1,678 @@
+package com.oracle.cloud.baremetal.jenkins.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oracle.bmc.auth.SimpleAuthenticationDetailsProvider;
+import com.oracle.bmc.core.model.CreateVnicDetails;
+import com.oracle.bmc.core.model.Image;
+import com.oracle.bmc.core.model.Instance;
+import com.oracle.bmc.core.model.LaunchInstanceDetails;
+import com.oracle.bmc.core.model.Shape;
+import com.oracle.bmc.core.model.Subnet;
+import com.oracle.bmc.core.model.Vcn;
+import com.oracle.bmc.core.model.Vnic;
+import com.oracle.bmc.core.model.VnicAttachment;
+import com.oracle.bmc.http.Serialization;
+import com.oracle.bmc.identity.model.AvailabilityDomain;
+import com.oracle.bmc.identity.model.Compartment;
+import com.oracle.bmc.identity.model.Tenancy;
+import com.oracle.bmc.identity.model.User;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * An embedded stand-in for the subset of the OCI Compute, VirtualNetwork and
+ * Identity REST APIs used by {@link SDKBaremetalCloudClient}, for scale and
+ * latency tests of the real SDK clients. Responses are serialized from the
+ * SDK models with the SDK object mapper; request signatures are not checked.
+ * <p>
+ * The latency of each call, the duration of instance lifecycle transitions,
+ * the page size of lists and the share of calls throttled with 429
+ * TooManyRequests can be changed at any time.
+ */
+public class FakeOciServer implements AutoCloseable {
+    public static final String REGION_ID = "us-phoenix-1";
+    public static final String USER_ID = "ocid1.user.oc1..fake";
+    public static final String COMPARTMENT_ID = "ocid1.compartment.oc1..fake";
+    public static final String AVAILABILITY_DOMAIN = "fake:PHX-AD-1";
+    public static final String VCN_ID = "ocid1.vcn.oc1.phx.fake";
+    public static final String SUBNET_ID = "ocid1.subnet.oc1.phx.fake";
+    public static final String IMAGE_ID = "ocid1.image.oc1.phx.fake";
+    public static final String SHAPE = "VM.Standard.E4.Flex";
+
+    private static final String API_PREFIX = "/20160918/";
+    private static final AtomicInteger TENANCIES = new AtomicInteger();
+    private static String privateKeyPem;
+
+    private final String tenancyId = "ocid1.tenancy.oc1..fake" + TENANCIES.incrementAndGet();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper mapper = Serialization.getObjectMapper();
+    private final ConcurrentSkipListMap<String, FakeInstance> instances = new ConcurrentSkipListMap<>();
+    private final AtomicLong instanceIds = new AtomicLong();
+    private final AtomicLong requestIds = new AtomicLong();
+    private final Random throttleRandom = new Random(42);
+
+    private volatile long minLatencyNanos;
+    private volatile long maxLatencyNanos;
+    private volatile long provisioningNanos;
+    private volatile long terminatingNanos;
+    private volatile long stoppingNanos;
+    private volatile long startingNanos;
+    private volatile int pageSize = 100;
+    private volatile double throttleProbability;
+    private volatile String retryAfter = "0";
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final ConcurrentMap<String, LongAdder> operations = new ConcurrentHashMap<>();
+
+    /** An instance whose lifecycle state advances with time. */
+    private final class FakeInstance {
+        final String id;
+        final long sequence;
+        final LaunchInstanceDetails details;
+        final Date timeCreated = new Date();
+        Instance.LifecycleState state;
+        long stateSinceNanos;
+
+        FakeInstance(String id, long sequence, LaunchInstanceDetails details, Instance.LifecycleState state) {
+            this.id = id;
+            this.sequence = sequence;
+            this.details = details;
+            this.state = state;
+            this.stateSinceNanos = System.nanoTime();
+        }
+
+        synchronized Instance.LifecycleState getState() {
+            long elapsed = System.nanoTime() - stateSinceNanos;
+            if (state == Instance.LifecycleState.Provisioning && elapsed >= provisioningNanos) {
+                setState(Instance.LifecycleState.Running);
+            } else if (state == Instance.LifecycleState.Starting && elapsed >= startingNanos) {
+                setState(Instance.LifecycleState.Running);
+            } else if (state == Instance.LifecycleState.Stopping && elapsed >= stoppingNanos) {
+                setState(Instance.LifecycleState.Stopped);
+            } else if (state == Instance.LifecycleState.Terminating && elapsed >= terminatingNanos) {
+                setState(Instance.LifecycleState.Terminated);
+            }
+            return state;
+        }
+
+        synchronized void setState(Instance.LifecycleState state) {
+            this.state = state;
+            this.stateSinceNanos = System.nanoTime();
+        }
+
+        Instance toModel() {
+            return Instance.builder()
+                    .id(id)
+                    .displayName(details.getDisplayName())
+                    .compartmentId(details.getCompartmentId())
+                    .availabilityDomain(details.getAvailabilityDomain())
+                    .shape(details.getShape())
+                    .imageId(details.getImageId())
+                    .region(REGION_ID)
+                    .metadata(details.getMetadata())
+                    .freeformTags(details.getFreeformTags())
+                    .definedTags(details.getDefinedTags())
+                    .timeCreated(timeCreated)
+                    .lifecycleState(getState())
+                    .build();
+        }
+
+        String getVnicId() {
+            return id.replace("instance", "vnic");
+        }
+
+        Vnic toVnic() {
+            CreateVnicDetails vnic = details.getCreateVnicDetails();
+            boolean assignPublicIp = vnic == null || !Boolean.FALSE.equals(vnic.getAssignPublicIp());
+            return Vnic.builder()
+                    .id(getVnicId())
+                    .compartmentId(details.getCompartmentId())
+                    .availabilityDomain(details.getAvailabilityDomain())
+                    .subnetId(SUBNET_ID)
+                    .privateIp("10.0." + (sequence / 250) % 250 + "." + (sequence % 250 + 2))
+                    .publicIp(assignPublicIp ? "198.51." + (sequence / 250) % 250 + "." + (sequence % 250 + 2) : null)
+                    .lifecycleState(Vnic.LifecycleState.Available)
+                    .build();
+        }
+    }
+
+    /**
+     * Thrown by a handler to answer with an OCI error.
+     */
+    private static final class ErrorResponse extends Exception {
+        private static final long serialVersionUID = 1L;
+        final int status;
+        final String code;
+
+        ErrorResponse(int status, String code, String message) {
+            super(message);
+            this.status = status;
+            this.code = code;
+        }
+    }
+
+    public FakeOciServer() throws IOException {
+        executor = Executors.newCachedThreadPool(new NamingThreadFactory(new DaemonThreadFactory(), "Fake OCI server"));
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1000);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public String getEndpoint() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return the tenancy of the clients of this server; each server has its
+     *         own, so that the rate limits of one test do not affect another
+     */
+    public String getTenancyId() {
+        return tenancyId;
+    }
+
+    /**
+     * @param min the shortest latency of a call
+     * @param max the longest latency of a call
+     * @return this server
+     */
+    public FakeOciServer latency(Duration min, Duration max) {
+        this.minLatencyNanos = min.toNanos();
+        this.maxLatencyNanos = Math.max(min.toNanos(), max.toNanos());
+        return this;
+    }
+
+    /**
+     * @param provisioning time until a launched instance is running
+     * @param terminating time until a terminating instance is terminated
+     * @return this server
+     */
+    public FakeOciServer lifecycle(Duration provisioning, Duration terminating) {
+        this.provisioningNanos = provisioning.toNanos();
+        this.terminatingNanos = terminating.toNanos();
+        this.stoppingNanos = terminating.toNanos();
+        this.startingNanos = provisioning.toNanos();
+        return this;
+    }
+
+    /**
+     * @param pageSize the largest number of items in a page of a list
+     * @return this server
+     */
+    public FakeOciServer pageSize(int pageSize) {
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * @param probability share of calls answered with 429 TooManyRequests
+     * @param retryAfter the Retry-After header of those answers, or null for none
+     * @return this server
+     */
+    public FakeOciServer throttle(double probability, String retryAfter) {
+        this.throttleProbability = probability;
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    /**
+     * Adds instances without calling the API, for example to test listing.
+     *
+     * @param count the number of instances
+     * @param state the lifecycle state of the instances, which then advances
+     * @return the ids of the new instances
+     */
+    public List<String> addInstances(int count, Instance.LifecycleState state) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LaunchInstanceDetails details = LaunchInstanceDetails.builder()
+                    .compartmentId(COMPARTMENT_ID)
+                    .availabilityDomain(AVAILABILITY_DOMAIN)
+                    .displayName("seeded-" + i)
+                    .imageId(IMAGE_ID)
+                    .shape(SHAPE)
+                    .subnetId(SUBNET_ID)
+                    .build();
+            ids.add(newInstance(details, state).id);
+        }
+        return ids;
+    }
+
+    private FakeInstance newInstance(LaunchInstanceDetails details, Instance.LifecycleState state) {
+        long sequence = instanceIds.incrementAndGet();
+        // Zero padded, so that lists are in launch order.
+        String id = String.format("ocid1.instance.oc1.phx.fake%08d", sequence);
+        FakeInstance instance = new FakeInstance(id, sequence, details, state);
+        instances.put(id, instance);
+        return instance;
+    }
+
+    /**
+     * @param state a lifecycle state
+     * @return the number of instances currently in the state
+     */
+    public int getInstanceCount(Instance.LifecycleState state) {
+        int count = 0;
+        for (FakeInstance instance : instances.values()) {
+            if (instance.getState() == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxInFlight.get();
+    }
+
+    /**
+     * @param operation an operation name, such as {@code LaunchInstance}
+     * @return the number of calls of the operation, including throttled ones
+     */
+    public long getOperationCount(String operation) {
+        LongAdder count = operations.get(operation);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * @param maxAsyncThreads max number of threads for async clients
+     * @return a client of this server, with its own SDK clients
+     */
+    public SDKBaremetalCloudClient newClient(int maxAsyncThreads) {
+        String pem = getPrivateKeyPem();
+        SimpleAuthenticationDetailsProvider provider = SimpleAuthenticationDetailsProvider.builder()
+                .tenantId(tenancyId)
+                .userId(USER_ID)
+                .fingerprint("00:11:22:33:44:55:66:77:88:99:aa:bb:cc:dd:ee:ff")
+                .privateKeySupplier(() -> new ByteArrayInputStream(pem.getBytes(StandardCharsets.UTF_8)))
+                .build();
+        SDKBaremetalCloudClient client = new SDKBaremetalCloudClient(provider, REGION_ID, maxAsyncThreads);
+        client.setEndpoint(getEndpoint());
+        return client;
+    }
+
+    /**
+     * @return an API key to sign requests with, which this server ignores
+     */
+    private static synchronized String getPrivateKeyPem() {
+        if (privateKeyPem == null) {
+            try {
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+                generator.initialize(2048);
+                StringWriter writer = new StringWriter();
+                try (JcaPEMWriter pem = new JcaPEMWriter(writer)) {
+                    pem.writeObject(generator.generateKeyPair().getPrivate());
+                }
+                privateKeyPem = writer.toString();
+            } catch (NoSuchAlgorithmException | IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return privateKeyPem;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            sleepLatency();
+            String path = exchange.getRequestURI().getPath();
+            if (!path.startsWith(API_PREFIX)) {
+                throw new ErrorResponse(404, "NotAuthorizedOrNotFound", "Unknown path " + path);
+            }
+            String[] segments = path.substring(API_PREFIX.length()).split("/");
+            String resource = segments[0];
+            String id = segments.length > 1 ? URLDecoder.decode(segments[1], "UTF-8") : null;
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String method = exchange.getRequestMethod();
+
+            String operation = getOperation(method, resource, id);
+            operations.computeIfAbsent(operation, o -> new LongAdder()).increment();
+            if (isThrottled()) {
+                throttled.increment();
+                if (retryAfter != null) {
+                    exchange.getResponseHeaders().add("Retry-After", retryAfter);
+                }
+                throw new ErrorResponse(429, "TooManyRequests", "Too many requests for the tenancy");
+            }
+            route(exchange, operation, id, query);
+        } catch (ErrorResponse e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("code", e.code);
+            error.put("message", e.getMessage());
+            send(exchange, e.status, error);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("code", "InternalError");
+            error.put("message", String.valueOf(e));
+            send(exchange, 500, error);
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private void sleepLatency() throws InterruptedException {
+        long min = minLatencyNanos;
+        long max = maxLatencyNanos;
+        long latency = max > min ? ThreadLocalRandom.current().nextLong(min, max + 1) : min;
+        if (latency > 0) {
+            TimeUnit.NANOSECONDS.sleep(latency);
+        }
+    }
+
+    private boolean isThrottled() {
+        double probability = throttleProbability;
+        if (probability <= 0) {
+            return false;
+        }
+        synchronized (throttleRandom) {
+            return throttleRandom.nextDouble() < probability;
+        }
+    }
+
+    private static String getOperation(String method, String resource, String id) {
+        switch (method + " " + resource + (id == null ? "" : "/{id}")) {
+            case "POST instances": return "LaunchInstance";
+            case "GET instances": return "ListInstances";
+            case "GET instances/{id}": return "GetInstance";
+            case "POST instances/{id}": return "InstanceAction";
+            case "DELETE instances/{id}": return "TerminateInstance";
+            case "GET vnicAttachments": return "ListVnicAttachments";
+            case "GET images": return "ListImages";
+            case "GET shapes": return "ListShapes";
+            case "GET vnics/{id}": return "GetVnic";
+            case "GET subnets/{id}": return "GetSubnet";
+            case "GET subnets": return "ListSubnets";
+            case "GET vcns": return "ListVcns";
+            case "GET networkSecurityGroups": return "ListNetworkSecurityGroups";
+            case "GET users/{id}": return "GetUser";
+            case "GET tenancies/{id}": return "GetTenancy";
+            case "GET compartments": return "ListCompartments";
+            case "GET availabilityDomains": return "ListAvailabilityDomains";
+            case "GET tagNamespaces": return "ListTagNamespaces";
+            default: return method + " " + resource;
+        }
+    }
+
+    private void route(HttpExchange exchange, String operation, String id, Map<String, String> query)
+            throws IOException, ErrorResponse {
+        switch (operation) {
+            case "LaunchInstance":
+                send(exchange, 200, launchInstance(mapper.readValue(exchange.getRequestBody(), LaunchInstanceDetails.class)));
+                break;
+            case "GetInstance":
+                send(exchange, 200, getInstance(id).toModel());
+                break;
+            case "ListInstances":
+                sendPage(exchange, query, listInstances(query));
+                break;
+            case "InstanceAction":
+                send(exchange, 200, instanceAction(id, query.get("action")).toModel());
+                break;
+            case "TerminateInstance":
+                FakeInstance terminated = getInstance(id);
+                if (terminated.getState() != Instance.LifecycleState.Terminated) {
+                    terminated.setState(Instance.LifecycleState.Terminating);
+                }
+                exchange.getResponseHeaders().add("opc-request-id", nextRequestId());
+                exchange.sendResponseHeaders(204, -1);
+                break;
+            case "ListVnicAttachments":
+                sendPage(exchange, query, listVnicAttachments(query.get("instanceId")));
+                break;
+            case "GetVnic":
+                send(exchange, 200, getInstance(id.replace("vnic", "instance")).toVnic());
+                break;
+            case "GetSubnet":
+                if (!SUBNET_ID.equals(id)) {
+                    throw new ErrorResponse(404, "NotAuthorizedOrNotFound", "Subnet " + id + " not found");
+                }
+                send(exchange, 200, newSubnet());
+                break;
+            case "ListSubnets":
+                sendPage(exchange, query, Collections.singletonList(newSubnet()));
+                break;
+            case "ListVcns":
+                sendPage(exchange, query, Collections.singletonList(Vcn.builder()
+                        .id(VCN_ID)
+                        .compartmentId(COMPARTMENT_ID)
+                        .displayName("fake-vcn")
+                        .cidrBlock("10.0.0.0/16")
+                        .lifecycleState(Vcn.LifecycleState.Available)
+                        .build()));
+                break;
+            case "ListNetworkSecurityGroups":
+            case "ListTagNamespaces":
+                sendPage(exchange, query, Collections.emptyList());
+                break;
+            case "ListImages":
+                sendPage(exchange, query, Collections.singletonList(Image.builder()
+                        .id(IMAGE_ID)
+                        .compartmentId(COMPARTMENT_ID)
+                        .displayName("Oracle-Linux-8-fake")
+                        .operatingSystem("Oracle Linux")
+                        .operatingSystemVersion("8")
+                        .timeCreated(new Date())
+                        .lifecycleState(Image.LifecycleState.Available)
+                        .build()));
+                break;
+            case "ListShapes":
+                sendPage(exchange, query, Collections.singletonList(Shape.builder().shape(SHAPE).build()));
+                break;
+            case "GetUser":
+                send(exchange, 200, User.builder()
+                        .id(id)
+                        .compartmentId(tenancyId)
+                        .name("fake")
+                        .lifecycleState(User.LifecycleState.Active)
+                        .build());
+                break;
+            case "GetTenancy":
+                send(exchange, 200, Tenancy.builder().id(id).name("fake").homeRegionKey("PHX").build());
+                break;
+            case "ListCompartments":
+                sendPage(exchange, query, Collections.singletonList(Compartment.builder()
+                        .id(COMPARTMENT_ID)
+                        .compartmentId(tenancyId)
+                        .name("fake")
+                        .lifecycleState(Compartment.LifecycleState.Active)
+                        .build()));
+                break;
+            case "ListAvailabilityDomains":
+                sendPage(exchange, query, Collections.singletonList(AvailabilityDomain.builder()
+                        .name(AVAILABILITY_DOMAIN)
+                        .compartmentId(tenancyId)
+                        .build()));
+                break;
+            default:
+                throw new ErrorResponse(404, "NotAuthorizedOrNotFound", "Unsupported operation " + operation);
+        }
+    }
+
+    private Instance launchInstance(LaunchInstanceDetails details) throws ErrorResponse {
+        String subnetId = details.getCreateVnicDetails() != null && details.getCreateVnicDetails().getSubnetId() != null
+                ? details.getCreateVnicDetails().getSubnetId() : details.getSubnetId();
+        if (!SUBNET_ID.equals(subnetId)) {
+            throw new ErrorResponse(404, "NotAuthorizedOrNotFound", "Subnet " + subnetId + " not found");
+        }
+        if (details.getShape() == null || details.getCompartmentId() == null || details.getAvailabilityDomain() == null) {
+            throw new ErrorResponse(400, "MissingParameter", "Shape, compartment and availability domain are required");
+        }
+        return newInstance(details, Instance.LifecycleState.Provisioning).toModel();
+    }
+
+    private FakeInstance getInstance(String id) throws ErrorResponse {
+        FakeInstance instance = id == null ? null : instances.get(id);
+        if (instance == null) {
+            throw new ErrorResponse(404, "NotAuthorizedOrNotFound", "Instance " + id + " not found");
+        }
+        return instance;
+    }
+
+    private List<Instance> listInstances(Map<String, String> query) {
+        List<Instance> result = new ArrayList<>();
+        for (FakeInstance instance : instances.values()) {
+            Instance model = instance.toModel();
+            if (matches(query.get("compartmentId"), model.getCompartmentId())
+                    && matches(query.get("availabilityDomain"), model.getAvailabilityDomain())
+                    && matches(query.get("displayName"), model.getDisplayName())
+                    && matches(query.get("lifecycleState"), model.getLifecycleState().getValue())) {
+                result.add(model);
+            }
+        }
+        return result;
+    }
+
+    private static boolean matches(String filter, String value) {
+        return filter == null || filter.equals(value);
+    }
+
+    private FakeInstance instanceAction(String id, String action) throws ErrorResponse {
+        FakeInstance instance = getInstance(id);
+        synchronized (instance) {
+            Instance.LifecycleState state = instance.getState();
+            if ("STOP".equals(action) && state == Instance.LifecycleState.Running) {
+                instance.setState(Instance.LifecycleState.Stopping);
+            } else if ("START".equals(action) && state == Instance.LifecycleState.Stopped) {
+                instance.setState(Instance.LifecycleState.Starting);
+            } else if (!"STOP".equals(action) && !"START".equals(action)) {
+                throw new ErrorResponse(400, "InvalidParameter", "Unsupported action " + action);
+            } else {
+                throw new ErrorResponse(409, "IncorrectState", "Cannot " + action + " an instance which is " + state);
+            }
+        }
+        return instance;
+    }
+
+    private List<VnicAttachment> listVnicAttachments(String instanceId) {
+        FakeInstance instance = instanceId == null ? null : instances.get(instanceId);
+        if (instance == null || instance.getState() == Instance.LifecycleState.Provisioning) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(VnicAttachment.builder()
+                .id(instance.id.replace("instance", "vnicattachment"))
+                .instanceId(instance.id)
+                .vnicId(instance.getVnicId())
+                .compartmentId(instance.details.getCompartmentId())
+                .availabilityDomain(instance.details.getAvailabilityDomain())
+                .subnetId(SUBNET_ID)
+                .lifecycleState(VnicAttachment.LifecycleState.Attached)
+                .build());
+    }
+
+    private static Subnet newSubnet() {
+        return Subnet.builder()
+                .id(SUBNET_ID)
+                .vcnId(VCN_ID)
+                .compartmentId(COMPARTMENT_ID)
+                .displayName("fake-subnet")
+                .cidrBlock("10.0.0.0/16")
+                .prohibitPublicIpOnVnic(false)
+                .lifecycleState(Subnet.LifecycleState.Available)
+                .build();
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws IOException {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery != null && !rawQuery.isEmpty()) {
+            for (String pair : rawQuery.split("&")) {
+                int eq = pair.indexOf('=');
+                String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), "UTF-8");
+                String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), "UTF-8");
+                query.put(name, value);
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Sends the page of the items selected by the {@code page} and
+     * {@code limit} parameters, with the token of the next page if any.
+     */
+    private void sendPage(HttpExchange exchange, Map<String, String> query, List<?> items) throws IOException, ErrorResponse {
+        int start;
+        int limit;
+        try {
+            start = query.containsKey("page") ? Integer.parseInt(query.get("page")) : 0;
+            limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : pageSize;
+        } catch (NumberFormatException e) {
+            throw new ErrorResponse(400, "InvalidParameter", "Invalid page or limit");
+        }
+        int end = Math.min(items.size(), start + Math.max(1, Math.min(limit, pageSize)));
+        if (end < items.size()) {
+            exchange.getResponseHeaders().add("opc-next-page", String.valueOf(end));
+        }
+        send(exchange, 200, start >= items.size() ? Collections.emptyList() : items.subList(start, end));
+    }
+
+    private void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.getResponseHeaders().add("opc-request-id", nextRequestId());
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String nextRequestId() {
+        return "fake-" + requestIds.incrementAndGet();
+    }
+}
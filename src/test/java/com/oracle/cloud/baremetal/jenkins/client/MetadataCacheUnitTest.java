@@ -0,0 +1,115 @@
+package com.oracle.cloud.baremetal.jenkins.client;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+public class MetadataCacheUnitTest {
+    static class TestTicker extends Ticker {
+        long now;
+
+        @Override
+        public long read() {
+            return now;
+        }
+    }
+
+    @Test
+    public void testCachedPerKey() throws Exception {
+        MetadataCache cache = new MetadataCache(100, TimeUnit.MINUTES.toNanos(5), new TestTicker());
+        AtomicInteger loads = new AtomicInteger();
+        Assert.assertEquals(Integer.valueOf(1), cache.get("cred1", "images", loads::incrementAndGet, "comp1"));
+        Assert.assertEquals(Integer.valueOf(1), cache.get("cred1", "images", loads::incrementAndGet, "comp1"));
+        Assert.assertEquals(1, loads.get());
+        cache.get("cred1", "images", loads::incrementAndGet, "comp2");
+        cache.get("cred2", "images", loads::incrementAndGet, "comp1");
+        cache.get("cred1", "vcns", loads::incrementAndGet, "comp1");
+        Assert.assertEquals(4, loads.get());
+        Assert.assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void testExpired() throws Exception {
+        TestTicker ticker = new TestTicker();
+        MetadataCache cache = new MetadataCache(100, TimeUnit.MINUTES.toNanos(5), ticker);
+        AtomicInteger loads = new AtomicInteger();
+        Assert.assertEquals(Integer.valueOf(1), cache.get("cred", "shapes", loads::incrementAndGet));
+        ticker.now = TimeUnit.MINUTES.toNanos(5);
+        Assert.assertEquals(Integer.valueOf(2), cache.get("cred", "shapes", loads::incrementAndGet));
+    }
+
+    @Test
+    public void testBounded() throws Exception {
+        MetadataCache cache = new MetadataCache(2, TimeUnit.MINUTES.toNanos(5), new TestTicker());
+        for (int i = 0; i < 10; i++) {
+            cache.get("cred", "images", () -> "images", "comp" + i);
+        }
+        Assert.assertTrue(cache.size() <= 2);
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        MetadataCache cache = new MetadataCache(100, 0, new TestTicker());
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("cred", "images", loads::incrementAndGet);
+        cache.get("cred", "images", loads::incrementAndGet);
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testFailureNotCached() throws Exception {
+        MetadataCache cache = new MetadataCache(100, TimeUnit.MINUTES.toNanos(5), new TestTicker());
+        try {
+            cache.get("cred", "images", () -> {
+                throw new IllegalStateException("failed");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("failed", e.getMessage());
+        }
+        Assert.assertEquals("images", cache.get("cred", "images", () -> "images"));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        MetadataCache cache = new MetadataCache(100, TimeUnit.MINUTES.toNanos(5), new TestTicker());
+        cache.get("cred", "images", () -> "images");
+        cache.invalidate();
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        MetadataCache cache = new MetadataCache(100, TimeUnit.MINUTES.toNanos(5), new TestTicker());
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future<?>[4];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> cache.get("cred", "compartments", () -> {
+                    started.countDown();
+                    release.await();
+                    return loads.incrementAndGet();
+                }));
+            }
+            Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+            release.countDown();
+            for (Future<?> future : futures) {
+                Assert.assertEquals(1, future.get(10, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.oracle.cloud.baremetal.jenkins.client;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.oracle.cloud.baremetal.jenkins.BaremetalCloudMockery;
+
+public class SDKBaremetalCloudClientFactoryUnitTest {
+    @Rule public final BaremetalCloudMockery mockery = new BaremetalCloudMockery();
+
+    class TestFactory extends SDKBaremetalCloudClientFactory {
+        long now;
+        int created;
+        boolean unresolvable;
+
+        TestFactory(long ttlNanos) {
+            super(ttlNanos);
+        }
+
+        @Override
+        long nanoTime() {
+            return now;
+        }
+
+        @Override
+        BaremetalCloudClient newClient(String credentialsId, int maxAsyncThreads) {
+            if (unresolvable) {
+                return null;
+            }
+            created++;
+            return mockery.mock(BaremetalCloudClient.class);
+        }
+    }
+
+    @Test
+    public void testCachedPerKey() {
+        TestFactory factory = new TestFactory(TimeUnit.MINUTES.toNanos(30));
+        BaremetalCloudClient c1 = factory.createClient("cred1", 10);
+        Assert.assertSame(c1, factory.createClient("cred1", 10));
+        Assert.assertNotSame(c1, factory.createClient("cred1", 20));
+        Assert.assertNotSame(c1, factory.createClient("cred2", 10));
+        Assert.assertEquals(3, factory.created);
+    }
+
+    @Test
+    public void testExpired() {
+        TestFactory factory = new TestFactory(TimeUnit.MINUTES.toNanos(30));
+        BaremetalCloudClient c1 = factory.createClient("cred1", 10);
+        factory.now += TimeUnit.MINUTES.toNanos(29);
+        Assert.assertSame(c1, factory.createClient("cred1", 10));
+        factory.now += TimeUnit.MINUTES.toNanos(1);
+        Assert.assertNotSame(c1, factory.createClient("cred1", 10));
+        Assert.assertEquals(2, factory.created);
+    }
+
+    @Test
+    public void testInvalidate() {
+        TestFactory factory = new TestFactory(TimeUnit.MINUTES.toNanos(30));
+        BaremetalCloudClient c1 = factory.createClient("cred1", 10);
+        factory.invalidate();
+        Assert.assertEquals(0, factory.size());
+        Assert.assertNotSame(c1, factory.createClient("cred1", 10));
+    }
+
+    @Test
+    public void testUnresolvableNotCached() {
+        TestFactory factory = new TestFactory(TimeUnit.MINUTES.toNanos(30));
+        factory.unresolvable = true;
+        Assert.assertNull(factory.createClient("cred1", 10));
+        Assert.assertEquals(0, factory.size());
+        factory.unresolvable = false;
+        Assert.assertNotNull(factory.createClient("cred1", 10));
+    }
+
+    @Test
+    public void testConcurrentMissCreatesOnce() throws Exception {
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger created = new AtomicInteger();
+        BaremetalCloudClient client = mockery.mock(BaremetalCloudClient.class);
+        SDKBaremetalCloudClientFactory factory = new SDKBaremetalCloudClientFactory(TimeUnit.MINUTES.toNanos(30)) {
+            @Override
+            BaremetalCloudClient newClient(String credentialsId, int maxAsyncThreads) {
+                created.incrementAndGet();
+                creating.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return client;
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<BaremetalCloudClient> first = executor.submit(() -> factory.createClient("cred1", 10));
+            Assert.assertTrue(creating.await(10, TimeUnit.SECONDS));
+            Future<BaremetalCloudClient> second = executor.submit(() -> factory.createClient("cred1", 10));
+            Assert.assertFalse(second.isDone());
+
+            release.countDown();
+            Assert.assertSame(client, first.get(10, TimeUnit.SECONDS));
+            Assert.assertSame(client, second.get(10, TimeUnit.SECONDS));
+            Assert.assertEquals(1, created.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCacheDisabled() {
+        TestFactory factory = new TestFactory(0);
+        factory.createClient("cred1", 10);
+        factory.createClient("cred1", 10);
+        Assert.assertEquals(2, factory.created);
+        Assert.assertEquals(0, factory.size());
+    }
+}
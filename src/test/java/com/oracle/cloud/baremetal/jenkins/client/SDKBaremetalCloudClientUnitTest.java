@@ -0,0 +1,53 @@
+package com.oracle.cloud.baremetal.jenkins.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.bmc.core.model.LaunchInstanceDetails;
+import com.oracle.cloud.baremetal.jenkins.BaremetalCloudAgentTemplate;
+import com.oracle.cloud.baremetal.jenkins.BaremetalCloudNsgTemplate;
+import com.oracle.cloud.baremetal.jenkins.BaremetalCloudTagsTemplate;
+import com.oracle.cloud.baremetal.jenkins.TestBaremetalCloudAgentTemplate;
+
+public class SDKBaremetalCloudClientUnitTest {
+    @Test
+    public void testNewLaunchInstanceDetails() {
+        BaremetalCloudAgentTemplate template = new TestBaremetalCloudAgentTemplate.Builder()
+                .compartmentId("comp")
+                .availableDomain("ad")
+                .subnetId("subnet")
+                .imageId("image")
+                .shape("shape")
+                .ocpu("2")
+                .memoryInGBs("32")
+                .assignPublicIP(true)
+                .nsgIds(Arrays.asList(new BaremetalCloudNsgTemplate("comp", "nsg1"), new BaremetalCloudNsgTemplate("comp", "nsg2")))
+                .tags(Arrays.asList(
+                        new BaremetalCloudTagsTemplate("None", "free", "1"),
+                        new BaremetalCloudTagsTemplate("ns", "a", "2"),
+                        new BaremetalCloudTagsTemplate("ns", "b", "3")))
+                .build();
+
+        LaunchInstanceDetails details = SDKBaremetalCloudClient.newLaunchInstanceDetails("name", template, "ssh-rsa key", "data", true);
+        Assert.assertEquals("name", details.getDisplayName());
+        Assert.assertEquals("ad", details.getAvailabilityDomain());
+        Assert.assertEquals("comp", details.getCompartmentId());
+        Assert.assertEquals("image", details.getImageId());
+        Assert.assertEquals("shape", details.getShape());
+        Assert.assertEquals(Float.valueOf(2), details.getShapeConfig().getOcpus());
+        Assert.assertEquals(Float.valueOf(32), details.getShapeConfig().getMemoryInGBs());
+        // The subnet prohibits public IPs.
+        Assert.assertFalse(details.getCreateVnicDetails().getAssignPublicIp());
+        Assert.assertEquals(Arrays.asList("nsg1", "nsg2"), details.getCreateVnicDetails().getNsgIds());
+        Assert.assertEquals("ssh-rsa key", details.getMetadata().get("ssh_authorized_keys"));
+        Assert.assertEquals(Base64.getEncoder().encodeToString("data".getBytes(StandardCharsets.UTF_8)), details.getMetadata().get("user_data"));
+        Assert.assertEquals(Collections.singletonMap("free", "1"), details.getFreeformTags());
+        Assert.assertEquals("2", details.getDefinedTags().get("ns").get("a"));
+        Assert.assertEquals("3", details.getDefinedTags().get("ns").get("b"));
+    }
+}
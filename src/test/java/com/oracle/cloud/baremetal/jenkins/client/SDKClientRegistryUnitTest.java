@@ -0,0 +1,62 @@
+package com.oracle.cloud.baremetal.jenkins.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SDKClientRegistryUnitTest {
+
+    static class TestClient implements AutoCloseable {
+        boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static SDKClientRegistry.Key key(String credentialsId) {
+        return new SDKClientRegistry.Key(credentialsId, "us-phoenix-1", 0, TestClient.class);
+    }
+
+    @Test
+    public void testSharedPerKey() {
+        SDKClientRegistry registry = new SDKClientRegistry();
+        AtomicInteger created = new AtomicInteger();
+
+        TestClient c1 = registry.get(key("cred1"), () -> { created.incrementAndGet(); return new TestClient(); });
+        TestClient c2 = registry.get(key("cred1"), () -> { created.incrementAndGet(); return new TestClient(); });
+        TestClient c3 = registry.get(key("cred2"), () -> { created.incrementAndGet(); return new TestClient(); });
+
+        Assert.assertSame(c1, c2);
+        Assert.assertNotSame(c1, c3);
+        Assert.assertEquals(2, created.get());
+    }
+
+    @Test
+    public void testInvalidate() {
+        SDKClientRegistry registry = new SDKClientRegistry();
+        TestClient c1 = registry.get(key("cred1"), TestClient::new);
+        TestClient c2 = registry.get(key("cred2"), TestClient::new);
+
+        registry.invalidate("cred1");
+
+        Assert.assertEquals(1, registry.size());
+        Assert.assertNotSame(c1, registry.get(key("cred1"), TestClient::new));
+        Assert.assertSame(c2, registry.get(key("cred2"), TestClient::new));
+        // Retired clients are closed after a grace period, not immediately.
+        Assert.assertFalse(c1.closed);
+    }
+
+    @Test
+    public void testCloseAll() {
+        SDKClientRegistry registry = new SDKClientRegistry();
+        TestClient c1 = registry.get(key("cred1"), TestClient::new);
+
+        registry.closeAll();
+
+        Assert.assertTrue(c1.closed);
+        Assert.assertEquals(0, registry.size());
+    }
+}
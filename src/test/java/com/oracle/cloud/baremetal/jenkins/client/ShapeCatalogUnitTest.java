@@ -0,0 +1,48 @@
+package com.oracle.cloud.baremetal.jenkins.client;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.bmc.core.model.Shape;
+import com.oracle.bmc.core.model.ShapeMemoryOptions;
+import com.oracle.bmc.core.model.ShapeOcpuOptions;
+
+public class ShapeCatalogUnitTest {
+
+    private static Shape newFlexShape(String name, float minOcpus, float maxOcpus, float minMemory, float maxMemory) {
+        return Shape.builder()
+                .shape(name)
+                .ocpuOptions(ShapeOcpuOptions.builder().min(minOcpus).max(maxOcpus).build())
+                .memoryOptions(ShapeMemoryOptions.builder().minInGBs(minMemory).maxInGBs(maxMemory).build())
+                .build();
+    }
+
+    @Test
+    public void testRanges() {
+        ShapeCatalog catalog = new ShapeCatalog(Arrays.asList(
+                newFlexShape("VM.Standard.E4.Flex", 1, 64, 1, 1024),
+                Shape.builder().shape("VM.Standard2.1").build()));
+
+        ShapeCatalog.Entry flex = catalog.get("VM.Standard.E4.Flex");
+        Assert.assertArrayEquals(new Integer[] { 1, 64 }, flex.getOcpuRange());
+        Assert.assertArrayEquals(new Integer[] { 1, 1024 }, flex.getMemoryRange());
+
+        ShapeCatalog.Entry fixed = catalog.get("VM.Standard2.1");
+        Assert.assertArrayEquals(new Integer[] { null, null }, fixed.getOcpuRange());
+        Assert.assertNull(catalog.get("unknown"));
+    }
+
+    @Test
+    public void testShapesAreDeduplicatedInOrder() {
+        ShapeCatalog catalog = new ShapeCatalog(Arrays.asList(
+                newFlexShape("b", 1, 2, 1, 2),
+                newFlexShape("a", 1, 4, 1, 4),
+                newFlexShape("b", 1, 8, 1, 8)));
+        Assert.assertEquals(2, catalog.getShapes().size());
+        Assert.assertEquals("b", catalog.getShapes().get(0).getName());
+        Assert.assertEquals("a", catalog.getShapes().get(1).getName());
+        Assert.assertArrayEquals(new Integer[] { 1, 2 }, catalog.get("b").getOcpuRange());
+    }
+}
@@ -0,0 +1,75 @@
+package com.oracle.cloud.baremetal.jenkins.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TokenBucketUnitTest {
+    static class TestBucket extends TokenBucket {
+        long now;
+
+        TestBucket(double permitsPerSecond, double capacity) {
+            super(permitsPerSecond, capacity);
+        }
+
+        @Override
+        long nanoTime() {
+            return now;
+        }
+    }
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testBurstThenRate() {
+        TestBucket bucket = new TestBucket(2, 2);
+        Assert.assertEquals(0, bucket.reserve());
+        Assert.assertEquals(0, bucket.reserve());
+        // Queued callers wait for their own token.
+        Assert.assertEquals(SECOND / 2, bucket.reserve());
+        Assert.assertEquals(SECOND, bucket.reserve());
+
+        bucket.now = 2 * SECOND;
+        Assert.assertEquals(0, bucket.reserve());
+        TokenBucket.Stats stats = bucket.getStats();
+        Assert.assertEquals(5, stats.acquired);
+        Assert.assertEquals(2, stats.waits);
+        Assert.assertEquals(SECOND * 3 / 2, stats.waitNanos);
+        Assert.assertEquals(SECOND, stats.maxWaitNanos);
+    }
+
+    @Test
+    public void testThrottled() {
+        TestBucket bucket = new TestBucket(10, 10);
+        bucket.onThrottled(3 * SECOND);
+        Assert.assertEquals(5, bucket.getStats().rate, 0.001);
+        Assert.assertEquals(1, bucket.getStats().throttled);
+        // Retry-After pauses the bucket.
+        Assert.assertEquals(3 * SECOND, bucket.reserve());
+
+        for (int i = 0; i < 10; i++) {
+            bucket.onThrottled(0);
+        }
+        Assert.assertEquals(10 * TokenBucket.MIN_RATE_FRACTION, bucket.getStats().rate, 0.001);
+    }
+
+    @Test
+    public void testRecovery() {
+        TestBucket bucket = new TestBucket(10, 10);
+        bucket.onThrottled(0);
+        for (int i = 0; i < 100; i++) {
+            bucket.onSuccess();
+        }
+        Assert.assertEquals(10, bucket.getStats().rate, 0.001);
+    }
+
+    @Test
+    public void testOccupancy() {
+        TestBucket bucket = new TestBucket(4, 4);
+        Assert.assertEquals(0, bucket.getStats().getOccupancy(), 0.001);
+        bucket.reserve();
+        bucket.reserve();
+        Assert.assertEquals(0.5, bucket.getStats().getOccupancy(), 0.001);
+    }
+}
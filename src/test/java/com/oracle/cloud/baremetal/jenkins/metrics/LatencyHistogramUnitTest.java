@@ -0,0 +1,77 @@
+package com.oracle.cloud.baremetal.jenkins.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramUnitTest {
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Test
+    public void testBuckets() {
+        Assert.assertEquals(0, LatencyHistogram.getBucket(0));
+        Assert.assertEquals(0, LatencyHistogram.getBucket(1));
+        Assert.assertEquals(1, LatencyHistogram.getBucket(2));
+        Assert.assertEquals(2, LatencyHistogram.getBucket(3));
+        Assert.assertEquals(2, LatencyHistogram.getBucket(4));
+        Assert.assertEquals(10, LatencyHistogram.getBucket(1024));
+        Assert.assertEquals(11, LatencyHistogram.getBucket(1025));
+        Assert.assertEquals(LatencyHistogram.BOUNDED_BUCKETS, LatencyHistogram.getBucket(Long.MAX_VALUE));
+        Assert.assertEquals(1024, LatencyHistogram.getUpperBoundMillis(10));
+        Assert.assertEquals(Long.MAX_VALUE, LatencyHistogram.getUpperBoundMillis(LatencyHistogram.BOUNDED_BUCKETS));
+    }
+
+    @Test
+    public void testSnapshot() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(millis(3));
+        }
+        histogram.record(millis(1000));
+        histogram.record(TimeUnit.HOURS.toNanos(1));
+        histogram.record(-1);
+
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        Assert.assertEquals(101, snapshot.count);
+        Assert.assertEquals(98 * millis(3) + millis(1000) + TimeUnit.HOURS.toNanos(1), snapshot.sumNanos);
+        Assert.assertEquals(TimeUnit.HOURS.toNanos(1), snapshot.maxNanos);
+        Assert.assertEquals(1, snapshot.getCumulativeCount(0));
+        Assert.assertEquals(99, snapshot.getCumulativeCount(2));
+        Assert.assertEquals(100, snapshot.getCumulativeCount(10));
+        Assert.assertEquals(101, snapshot.getCumulativeCount(snapshot.getBucketCount() - 1));
+
+        Assert.assertEquals(4, snapshot.getQuantileMillis(0.5));
+        Assert.assertEquals(1024, snapshot.getQuantileMillis(0.99));
+        Assert.assertEquals(TimeUnit.HOURS.toMillis(1), snapshot.getQuantileMillis(1));
+    }
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().getSnapshot();
+        Assert.assertEquals(0, snapshot.count);
+        Assert.assertEquals(0, snapshot.getQuantileMillis(0.99));
+    }
+
+    @Test
+    public void testConcurrentRecords() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    histogram.record(millis(j % 100));
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        Assert.assertEquals(40000, snapshot.count);
+        Assert.assertEquals(40000, snapshot.getCumulativeCount(snapshot.getBucketCount() - 1));
+    }
+}
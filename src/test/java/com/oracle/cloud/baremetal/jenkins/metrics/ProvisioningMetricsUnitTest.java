@@ -0,0 +1,112 @@
+package com.oracle.cloud.baremetal.jenkins.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.sf.json.JSONObject;
+
+public class ProvisioningMetricsUnitTest {
+    static class TestProvisioningMetrics extends ProvisioningMetrics {
+        long nanos;
+
+        TestProvisioningMetrics(Iterable<ProvisioningMetricsListener> listeners) {
+            super(() -> listeners);
+        }
+
+        @Override
+        long nanoTime() {
+            return nanos;
+        }
+    }
+
+    @Test
+    public void testTimer() {
+        TestProvisioningMetrics metrics = new TestProvisioningMetrics(Collections.emptyList());
+        String template = ProvisioningMetrics.getTemplateName("cloud", 1);
+        ProvisioningMetrics.Timer timer = metrics.start(template, "ssh");
+        timer.attempt();
+        timer.attempt();
+        timer.attempt();
+        metrics.nanos += TimeUnit.SECONDS.toNanos(5);
+        timer.stop(null, null);
+        // Only the first stop counts.
+        timer.stop(false);
+
+        ProvisioningMetrics.StageSnapshot ssh = metrics.getSnapshot("").get("cloud/1").get("ssh");
+        Assert.assertEquals(1, ssh.successes);
+        Assert.assertEquals(0, ssh.failures);
+        Assert.assertEquals(2, ssh.retries);
+        Assert.assertEquals(1, ssh.latency.count);
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(5), ssh.latency.sumNanos);
+    }
+
+    @Test
+    public void testFailure() {
+        TestProvisioningMetrics metrics = new TestProvisioningMetrics(Collections.emptyList());
+        metrics.start("cloud/1", "launch").stop(null, new Exception("failed"));
+        metrics.start("cloud/1", "launch").stop(null, null);
+
+        ProvisioningMetrics.StageSnapshot launch = metrics.getSnapshot("").get("cloud/1").get("launch");
+        Assert.assertEquals(1, launch.successes);
+        Assert.assertEquals(1, launch.failures);
+        Assert.assertEquals(0, launch.retries);
+        Assert.assertEquals(2, launch.latency.count);
+    }
+
+    @Test
+    public void testSnapshotPrefix() {
+        TestProvisioningMetrics metrics = new TestProvisioningMetrics(Collections.emptyList());
+        metrics.record(ProvisioningMetrics.getTemplateName("cloud", 1), "launch", true, 1);
+        metrics.record(ProvisioningMetrics.getTemplateName("cloud", 2), "launch", true, 1);
+        metrics.record(ProvisioningMetrics.getTemplateName("cloud2", 1), "launch", true, 1);
+
+        Map<String, Map<String, ProvisioningMetrics.StageSnapshot>> snapshot = metrics.getSnapshot(ProvisioningMetrics.getCloudPrefix("cloud"));
+        Assert.assertEquals(Arrays.asList("cloud/1", "cloud/2"), new ArrayList<>(snapshot.keySet()));
+    }
+
+    @Test
+    public void testListeners() {
+        List<String> records = new ArrayList<>();
+        ProvisioningMetricsListener listener = new ProvisioningMetricsListener() {
+            @Override
+            public void onRecord(String template, String stage, ProvisioningMetrics.Outcome outcome, long nanos) {
+                records.add(template + " " + stage + " " + outcome + " " + nanos);
+            }
+        };
+        ProvisioningMetricsListener failing = new ProvisioningMetricsListener() {
+            @Override
+            public void onRecord(String template, String stage, ProvisioningMetrics.Outcome outcome, long nanos) {
+                throw new IllegalStateException("failed");
+            }
+        };
+        TestProvisioningMetrics metrics = new TestProvisioningMetrics(Arrays.asList(failing, listener));
+        metrics.recordRetries("cloud/1", "launcher.connect", 1);
+        metrics.record("cloud/1", "launcher.connect", false, 10);
+
+        Assert.assertEquals(Arrays.asList(
+                "cloud/1 launcher.connect RETRY 0",
+                "cloud/1 launcher.connect FAILURE 10"), records);
+    }
+
+    @Test
+    public void testJson() {
+        TestProvisioningMetrics metrics = new TestProvisioningMetrics(Collections.emptyList());
+        metrics.record("cloud/1", "provision", true, TimeUnit.SECONDS.toNanos(90));
+
+        JSONObject provision = metrics.toJson("").getJSONObject("cloud/1").getJSONObject("provision");
+        Assert.assertEquals(1, provision.getLong("successes"));
+        Assert.assertEquals(90000, provision.getLong("sumMillis"));
+        Assert.assertEquals(90000, provision.getLong("p99Millis"));
+        Assert.assertEquals("+Inf", provision.getJSONArray("buckets")
+                .getJSONObject(LatencyHistogram.BOUNDED_BUCKETS).getString("le"));
+        Assert.assertEquals(1, provision.getJSONArray("buckets")
+                .getJSONObject(LatencyHistogram.BOUNDED_BUCKETS).getLong("count"));
+    }
+}
@@ -0,0 +1,140 @@
+package com.oracle.cloud.baremetal.jenkins.retry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BackoffRetryUnitTest {
+    private static final Duration SHORT = Duration.ofMillis(1);
+
+    private static <T> BackoffRetry.Builder<T> fastRetry(Callable<T> task) {
+        return BackoffRetry.builder(task).backoff(SHORT, SHORT, 2);
+    }
+
+    @Test
+    public void testSucceedsAfterFailures() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        BackoffRetry<String> retry = fastRetry(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new IOException("failed");
+            }
+            return "ok";
+        }).build();
+        Assert.assertEquals("ok", retry.run());
+        Assert.assertEquals(3, retry.getAttempts());
+        Assert.assertFalse(retry.canRetry());
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        BackoffRetry<String> retry = BackoffRetryUnitTest.<String>fastRetry(() -> {
+            calls.incrementAndGet();
+            throw new IOException("failed " + calls.get());
+        }).maxAttempts(4).build();
+        try {
+            retry.run();
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertEquals("failed 4", e.getMessage());
+        }
+        Assert.assertEquals(4, calls.get());
+    }
+
+    @Test
+    public void testNotRetryable() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> future = BackoffRetryUnitTest.<String>fastRetry(() -> {
+            calls.incrementAndGet();
+            throw new IllegalArgumentException("bad request");
+        }).retryOn(e -> !(e instanceof IllegalArgumentException)).build().runAsync();
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testAttemptTimeout() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        BackoffRetry<String> retry = fastRetry(() -> {
+            if (calls.incrementAndGet() == 1) {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            }
+            return "ok";
+        }).attemptTimeout(Duration.ofMillis(50)).build();
+        Assert.assertEquals("ok", retry.run());
+        Assert.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testTimeoutFailure() throws Exception {
+        BackoffRetry<String> retry = fastRetry(() -> {
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            return "ok";
+        }).maxAttempts(1).attemptTimeout(Duration.ofMillis(10)).build();
+        try {
+            retry.run();
+            Assert.fail();
+        } catch (TimeoutException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> future = fastRetry(() -> {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return "ok";
+        }).build().runAsync();
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        future.cancel(true);
+        Assert.assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        try {
+            future.get();
+            Assert.fail();
+        } catch (CancellationException e) {
+            // expected
+        }
+        Thread.sleep(50);
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testDelay() {
+        BackoffRetry<String> retry = BackoffRetry.<String>builder(() -> "ok")
+                .backoff(Duration.ofSeconds(1), Duration.ofSeconds(5), 2)
+                .jitter(0.5)
+                .build();
+        long second = TimeUnit.SECONDS.toNanos(1);
+        Assert.assertEquals(second, retry.getDelayNanos(1, 0));
+        Assert.assertEquals(2 * second, retry.getDelayNanos(2, 0));
+        Assert.assertEquals(4 * second, retry.getDelayNanos(3, 0));
+        Assert.assertEquals(5 * second, retry.getDelayNanos(4, 0));
+        // Jitter removes up to half of the delay.
+        Assert.assertEquals(second / 2, retry.getDelayNanos(1, 1));
+    }
+}
@@ -0,0 +1,23 @@
+package com.oracle.cloud.baremetal.jenkins.ssh;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AgentJarUnitTest {
+
+    @Test
+    public void testDigest() throws Exception {
+        AgentJar.Info info = AgentJar.digest(new ByteArrayInputStream("abc".getBytes(StandardCharsets.US_ASCII)));
+        Assert.assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", info.checksum);
+        Assert.assertEquals(3, info.size);
+    }
+
+    @Test
+    public void testGetCheckCommand() {
+        Assert.assertEquals("[ \"$(sha256sum \"/home/opc/slave.jar\" 2>/dev/null | cut -d ' ' -f 1)\" = \"abc\" ]",
+                AgentJar.getCheckCommand("/home/opc/slave.jar", "abc"));
+    }
+}
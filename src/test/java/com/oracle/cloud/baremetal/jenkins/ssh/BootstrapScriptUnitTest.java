@@ -0,0 +1,134 @@
+package com.oracle.cloud.baremetal.jenkins.ssh;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BootstrapScriptUnitTest {
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testScript() {
+        BootstrapScript script = new BootstrapScript("/home/opc", "echo init", 60, "java",
+                new AgentJar.Info("abc", 3), false, null, "java -jar /home/opc/slave.jar");
+        String s = script.toString();
+        Assert.assertTrue(s, s.contains("echo init\n"));
+        Assert.assertTrue(s, s.contains("timeout 60 /bin/bash \"$dir/init.sh\" < /dev/null"));
+        Assert.assertTrue(s, s.contains("!= \"abc\" ]"));
+        Assert.assertTrue(s, s.contains("head -c 3 > \"$jar.tmp\""));
+        Assert.assertTrue(s, s.startsWith("main() {\n"));
+        Assert.assertTrue(s, s.endsWith("exec java -jar /home/opc/slave.jar\n}\nmain\n"));
+    }
+
+    @Test
+    public void testScriptAgentUser() {
+        BootstrapScript script = new BootstrapScript("/home/opc", null, 0, "java",
+                new AgentJar.Info("abc", 3), false, "jenkins", "java -jar /home/opc/slave.jar");
+        String s = script.toString();
+        Assert.assertFalse(s, s.contains("init.sh"));
+        Assert.assertTrue(s, s.contains("sudo chown jenkins \"$jar\""));
+        Assert.assertTrue(s, s.endsWith("exec sudo -i -u jenkins java -jar /home/opc/slave.jar\n}\nmain\n"));
+    }
+
+    @Test
+    public void testScriptAlwaysCopyJar() {
+        BootstrapScript script = new BootstrapScript("/home/opc", null, 0, "java",
+                new AgentJar.Info("abc", 3), true, null, "java -jar /home/opc/slave.jar");
+        String s = script.toString();
+        Assert.assertFalse(s, s.contains("sha256sum"));
+        Assert.assertTrue(s, s.contains("\nstep upload 3\nhead -c 3 > \"$jar.tmp\""));
+    }
+
+    /**
+     * Runs the script as the launcher does, with the jar sent on the same
+     * standard input once asked for, and the agent replaced by {@code cat}.
+     */
+    @Test
+    public void testBash() throws Exception {
+        Assume.assumeTrue(new File("/bin/bash").canExecute());
+        File dir = tmp.newFolder();
+        byte[] jar = new byte[100000];
+        new Random(1).nextBytes(jar);
+        BootstrapScript script = new BootstrapScript(dir.getAbsolutePath(), "echo init", 0, "true",
+                new AgentJar.Info("abc", jar.length), false, null, "cat");
+
+        ProcessBuilder builder = new ProcessBuilder("/bin/bash", "-s");
+        // The init script marks the home directory as initialized.
+        builder.environment().put("HOME", dir.getAbsolutePath());
+        Process process = builder.start();
+        try {
+            OutputStream stdin = process.getOutputStream();
+            InputStream stdout = process.getInputStream();
+            stdin.write(script.getBytes());
+            stdin.flush();
+
+            List<String> steps = new ArrayList<>();
+            String line;
+            while ((line = BootstrapScript.readLine(stdout)) != null) {
+                BootstrapScript.Step step = BootstrapScript.parseStep(line);
+                if (step == null) {
+                    continue;
+                }
+                Assert.assertFalse(line, step.isFailed());
+                steps.add(step.name);
+                if (BootstrapScript.UPLOAD.equals(step.name)) {
+                    Assert.assertEquals(jar.length, step.value);
+                    stdin.write(jar);
+                    stdin.flush();
+                } else if (BootstrapScript.LAUNCH.equals(step.name)) {
+                    break;
+                }
+            }
+            Assert.assertEquals(Arrays.asList(BootstrapScript.MKDIR, BootstrapScript.INIT, BootstrapScript.JAVA,
+                    BootstrapScript.UPLOAD, BootstrapScript.JAR, BootstrapScript.LAUNCH), steps);
+            Assert.assertArrayEquals(jar, Files.readAllBytes(new File(dir, "slave.jar").toPath()));
+
+            // The agent gets the rest of the session.
+            stdin.write("channel\n".getBytes(StandardCharsets.UTF_8));
+            stdin.close();
+            Assert.assertEquals("channel", BootstrapScript.readLine(stdout));
+            Assert.assertNull(BootstrapScript.readLine(stdout));
+            Assert.assertTrue(process.waitFor(10, TimeUnit.SECONDS));
+            Assert.assertEquals(0, process.exitValue());
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+
+    @Test
+    public void testParseStep() {
+        BootstrapScript.Step step = BootstrapScript.parseStep(BootstrapScript.STEP_PREFIX + "init 124");
+        Assert.assertEquals(BootstrapScript.INIT, step.name);
+        Assert.assertTrue(step.isFailed());
+
+        step = BootstrapScript.parseStep(BootstrapScript.STEP_PREFIX + "upload 1024");
+        Assert.assertEquals(1024, step.value);
+        Assert.assertFalse(step.isFailed());
+
+        Assert.assertNull(BootstrapScript.parseStep("openjdk full version \"17\""));
+    }
+
+    @Test
+    public void testReadLine() throws Exception {
+        InputStream in = new ByteArrayInputStream("one\r\ntwo\nrest".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals("one", BootstrapScript.readLine(in));
+        Assert.assertEquals("two", BootstrapScript.readLine(in));
+        Assert.assertEquals("rest", BootstrapScript.readLine(in));
+        Assert.assertNull(BootstrapScript.readLine(in));
+    }
+}
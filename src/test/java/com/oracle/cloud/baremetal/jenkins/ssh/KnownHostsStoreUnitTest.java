@@ -0,0 +1,85 @@
+package com.oracle.cloud.baremetal.jenkins.ssh;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.trilead.ssh2.KnownHosts;
+
+public class KnownHostsStoreUnitTest {
+    private static final byte[] KEY1 = { 1, 2, 3 };
+    private static final byte[] KEY2 = { 4, 5, 6 };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testVerify() throws Exception {
+        KnownHostsStore store = new KnownHostsStore(folder.newFile("known_hosts"));
+        Assert.assertEquals(KnownHosts.HOSTKEY_IS_NEW, store.verify("10.0.0.1", "ssh-rsa", KEY1));
+        store.add("10.0.0.1", "ssh-rsa", KEY1);
+        Assert.assertEquals(KnownHosts.HOSTKEY_IS_OK, store.verify("10.0.0.1", "ssh-rsa", KEY1));
+        Assert.assertEquals(KnownHosts.HOSTKEY_HAS_CHANGED, store.verify("10.0.0.1", "ssh-rsa", KEY2));
+        Assert.assertEquals(KnownHosts.HOSTKEY_IS_NEW, store.verify("10.0.0.1", "ssh-ed25519", KEY2));
+        Assert.assertEquals(KnownHosts.HOSTKEY_IS_NEW, store.verify("10.0.0.2", "ssh-rsa", KEY1));
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        KnownHostsStore store = new KnownHostsStore(folder.newFile("known_hosts"));
+        store.add("10.0.0.1", "ssh-rsa", KEY1);
+        store.remove("10.0.0.1");
+        Assert.assertEquals(KnownHosts.HOSTKEY_IS_NEW, store.verify("10.0.0.1", "ssh-rsa", KEY2));
+        Assert.assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        File file = folder.newFile("known_hosts");
+        String key1 = Base64.getEncoder().encodeToString(KEY1);
+        Files.write(file.toPath(), ("10.0.0.1,10.0.0.2 ssh-rsa " + key1 + "\n"
+                + "|1|hashed ssh-rsa " + key1 + "\n"
+                + "# comment\n").getBytes(StandardCharsets.UTF_8));
+
+        KnownHostsStore store = new KnownHostsStore(file);
+        Assert.assertEquals(KnownHosts.HOSTKEY_IS_OK, store.verify("10.0.0.1", "ssh-rsa", KEY1));
+        Assert.assertEquals(KnownHosts.HOSTKEY_IS_OK, store.verify("10.0.0.2", "ssh-rsa", KEY1));
+        Assert.assertEquals(2, store.size());
+    }
+
+    @Test
+    public void testJournalReplay() throws Exception {
+        File file = folder.newFile("known_hosts");
+        KnownHostsStore store = new KnownHostsStore(file);
+        store.add("10.0.0.1", "ssh-rsa", KEY1);
+        store.add("10.0.0.2", "ssh-rsa", KEY2);
+        store.remove("10.0.0.1");
+        Assert.assertTrue(new File(file.getPath() + ".journal").exists());
+
+        KnownHostsStore reloaded = new KnownHostsStore(file);
+        Assert.assertEquals(KnownHosts.HOSTKEY_IS_NEW, reloaded.verify("10.0.0.1", "ssh-rsa", KEY1));
+        Assert.assertEquals(KnownHosts.HOSTKEY_IS_OK, reloaded.verify("10.0.0.2", "ssh-rsa", KEY2));
+
+        // Loading folds the journal into the file.
+        Assert.assertFalse(new File(file.getPath() + ".journal").exists());
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        Assert.assertEquals(1, lines.size());
+        Assert.assertEquals("10.0.0.2 ssh-rsa " + Base64.getEncoder().encodeToString(KEY2), lines.get(0));
+    }
+
+    @Test
+    public void testAddIsDeduplicated() throws Exception {
+        File file = folder.newFile("known_hosts");
+        KnownHostsStore store = new KnownHostsStore(file);
+        store.add("10.0.0.1", "ssh-rsa", KEY1);
+        store.add("10.0.0.1", "ssh-rsa", KEY1);
+        Assert.assertEquals(1, Files.readAllLines(new File(file.getPath() + ".journal").toPath()).size());
+    }
+}
@@ -0,0 +1,56 @@
+package com.oracle.cloud.baremetal.jenkins.ssh;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LaunchTimingsUnitTest {
+
+    static class TestLaunchTimings extends LaunchTimings {
+        long nanos;
+
+        @Override
+        long nanoTime() {
+            return nanos;
+        }
+
+        void sleep(long millis) {
+            nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+
+    @Test
+    public void testPhases() {
+        TestLaunchTimings timings = new TestLaunchTimings();
+        timings.start("connect");
+        timings.sleep(100);
+        timings.start("init");
+        timings.sleep(2000);
+        timings.end();
+        timings.sleep(50);
+        timings.end();
+
+        Assert.assertEquals(Arrays.asList("connect", "init"), Arrays.asList(timings.getPhaseMillis().keySet().toArray()));
+        Assert.assertEquals(Long.valueOf(100), timings.getPhaseMillis().get("connect"));
+        Assert.assertEquals(Long.valueOf(2000), timings.getPhaseMillis().get("init"));
+        Assert.assertEquals("connect=100ms, init=2000ms", timings.toString());
+    }
+
+    @Test
+    public void testRetries() {
+        TestLaunchTimings timings = new TestLaunchTimings();
+        timings.retried(1);
+        timings.start("connect");
+        timings.retried(2);
+        timings.retried(0);
+        Assert.assertEquals("connect", timings.getPhase());
+        timings.start("init");
+        timings.end();
+
+        Assert.assertNull(timings.getPhase());
+        Assert.assertEquals(Collections.singletonMap("connect", 2), timings.getRetries());
+    }
+}
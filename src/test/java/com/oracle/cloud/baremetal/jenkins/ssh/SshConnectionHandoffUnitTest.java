@@ -0,0 +1,69 @@
+package com.oracle.cloud.baremetal.jenkins.ssh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.trilead.ssh2.Connection;
+
+public class SshConnectionHandoffUnitTest {
+
+    static class TestSshConnectionHandoff extends SshConnectionHandoff {
+        long nanos;
+
+        TestSshConnectionHandoff() {
+            super(TimeUnit.MINUTES.toNanos(5));
+        }
+
+        @Override
+        long nanoTime() {
+            return nanos;
+        }
+
+        @Override
+        void schedule(Runnable task, long delayNanos) {
+        }
+    }
+
+    @Test
+    public void testTake() {
+        TestSshConnectionHandoff handoff = new TestSshConnectionHandoff();
+        Connection connection = new Connection("host", 22);
+        handoff.offer("in", "host", "opc", connection);
+
+        Assert.assertSame(connection, handoff.take("in", "host", "opc"));
+        Assert.assertNull(handoff.take("in", "host", "opc"));
+    }
+
+    @Test
+    public void testTakeMismatch() {
+        TestSshConnectionHandoff handoff = new TestSshConnectionHandoff();
+        handoff.offer("in", "host", "opc", new Connection("host", 22));
+
+        Assert.assertNull(handoff.take("in", "other", "opc"));
+        Assert.assertEquals(0, handoff.size());
+    }
+
+    @Test
+    public void testExpire() {
+        TestSshConnectionHandoff handoff = new TestSshConnectionHandoff();
+        handoff.offer("in", "host", "opc", new Connection("host", 22));
+
+        handoff.nanos += TimeUnit.MINUTES.toNanos(4);
+        handoff.expire();
+        Assert.assertEquals(1, handoff.size());
+
+        handoff.nanos += TimeUnit.MINUTES.toNanos(1);
+        Assert.assertNull(handoff.take("in", "host", "opc"));
+        Assert.assertEquals(0, handoff.size());
+    }
+
+    @Test
+    public void testDiscard() {
+        TestSshConnectionHandoff handoff = new TestSshConnectionHandoff();
+        handoff.offer("in", "host", "opc", new Connection("host", 22));
+        handoff.discard("in");
+        Assert.assertEquals(0, handoff.size());
+    }
+}
@@ -0,0 +1,41 @@
+package com.oracle.cloud.baremetal.jenkins.ssh;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StreamPumpUnitTest {
+
+    @Test
+    public void testConcurrentStreams() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PipedOutputStream stdoutWriter = new PipedOutputStream();
+        PipedInputStream stdout = new PipedInputStream(stdoutWriter);
+
+        StreamPump stdoutPump = StreamPump.start(stdout, out, "stdout");
+        // stderr is fully copied while stdout is still open.
+        StreamPump stderrPump = StreamPump.start(new ByteArrayInputStream("err\n".getBytes(StandardCharsets.UTF_8)), out, "stderr");
+        Assert.assertTrue(stderrPump.join(10000));
+        Assert.assertFalse(stdoutPump.join(10));
+
+        stdoutWriter.write("out\n".getBytes(StandardCharsets.UTF_8));
+        stdoutWriter.close();
+        Assert.assertTrue(stdoutPump.join(10000));
+        Assert.assertEquals("err\nout\n", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        PipedOutputStream writer = new PipedOutputStream();
+        StreamPump pump = StreamPump.start(new PipedInputStream(writer), new ByteArrayOutputStream(), "stdout");
+        Assert.assertFalse(pump.join(10));
+
+        pump.stop();
+        Assert.assertTrue(pump.join(10000));
+    }
+}